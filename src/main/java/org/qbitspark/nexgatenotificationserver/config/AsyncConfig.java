@@ -1,34 +1,124 @@
 package org.qbitspark.nexgatenotificationserver.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.PrioritizedTask;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.PriorityTaskQueue;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.BlockingQueue;
 
 @Slf4j
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
     @Value("${notification.batch.parallel-threads:5}")
     private int parallelThreads;
 
+    @Value("${notification.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    // platform: the fixed pool above; virtual: up to virtual-concurrency batches, each on its
+    // own virtual thread (needs Java 21; falls back to platform otherwise)
+    @Value("${notification.executor.mode:platform}")
+    private String executorMode;
+
+    @Value("${notification.executor.virtual-concurrency:1000}")
+    private int virtualConcurrency;
+
+    @Value("${notification.campaign.max-concurrent:2}")
+    private int maxConcurrentCampaigns;
+
+    /**
+     * Work queue is priority ordered (see PrioritizedTask): URGENT batches skip ahead of
+     * LOW ones already queued. Anything not submitted as a PrioritizedTask runs as NORMAL.
+     */
     @Bean(name = "notificationExecutor")
-    public Executor notificationExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    public ThreadPoolTaskExecutor notificationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+                return new PriorityTaskQueue(queueCapacity);
+            }
+        };
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(PrioritizedTask::wrap);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+
+        if (useVirtualThreads()) {
+            // Sends block on I/O; parked virtual threads cost next to nothing, so in-flight
+            // batches are bounded by virtual-concurrency and the per-provider limits instead
+            executor.setCorePoolSize(virtualConcurrency);
+            executor.setMaxPoolSize(virtualConcurrency);
+            executor.setAllowCoreThreadTimeOut(true);
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("notification-vt-").getVirtualThreadFactory());
+            executor.initialize();
+
+            log.info("Initialized notification executor with up to {} virtual threads", virtualConcurrency);
+            return executor;
+        }
+
         executor.setCorePoolSize(parallelThreads);
         executor.setMaxPoolSize(parallelThreads * 2);
-        executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("notification-batch-");
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(60);
         executor.initialize();
 
         log.info("Initialized notification executor with {} threads", parallelThreads);
         return executor;
     }
-}
\ No newline at end of file
+
+    private boolean useVirtualThreads() {
+        return useVirtualThreads(executorMode);
+    }
+
+    /** Whether {@code mode} (notification.executor.mode) asks for virtual threads and this JVM has them. */
+    public static boolean useVirtualThreads(String mode) {
+        if (!"virtual".equalsIgnoreCase(mode)) {
+            return false;
+        }
+        if (Runtime.version().feature() < 21) {
+            log.warn("⚠️ notification.executor.mode=virtual needs Java 21, running on {}; using platform threads",
+                    Runtime.version().feature());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * One long-lived thread per running campaign; each only reads its source and hands
+     * pages to notificationExecutor. Extra campaigns wait in the queue.
+     */
+    @Bean(name = "campaignExecutor")
+    public ThreadPoolTaskExecutor campaignExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentCampaigns);
+        executor.setMaxPoolSize(maxConcurrentCampaigns);
+        executor.setThreadNamePrefix("campaign-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Long-running background upkeep: partition maintenance and archiving, history index
+     * builds, the channel mask backfill and the dedupe cache warm-up. Kept off the scheduler's
+     * threads, startup and the common fork-join pool; two threads, so one long index build
+     * doesn't hold up everything else.
+     */
+    @Bean(name = "maintenanceExecutor")
+    public ThreadPoolTaskExecutor maintenanceExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setThreadNamePrefix("maintenance-");
+        executor.initialize();
+        return executor;
+    }
+}
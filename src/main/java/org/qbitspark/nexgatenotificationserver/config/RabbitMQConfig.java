@@ -3,59 +3,203 @@ package org.qbitspark.nexgatenotificationserver.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.qbitspark.nexgatenotificationserver.converter.NotificationMessageConverter;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.service.fanout.RecipientFanOutService;
+import org.qbitspark.nexgatenotificationserver.service.retry.RetryTiers;
+import org.qbitspark.nexgatenotificationserver.service.sharding.UserShardRouter;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class RabbitMQConfig {
 
+    @Value("${notification.consumer.batch-size:50}")
+    private int consumerBatchSize;
+
+    @Value("${notification.consumer.receive-timeout-ms:200}")
+    private long consumerReceiveTimeoutMs;
+
+    @Value("${notification.wire.format:JSON}")
+    private NotificationMessageConverter.WireFormat wireFormat;
+
+    @Value("${notification.wire.compression:NONE}")
+    private NotificationMessageConverter.Compression wireCompression;
+
+    @Value("${notification.wire.compress-min-bytes:1024}")
+    private int compressMinBytes;
+
+    @Value("${notification.wire.streaming-threshold-bytes:262144}")
+    private int streamingThresholdBytes;
+
+    @Value("${notification.sharding.enabled:false}")
+    private boolean shardingEnabled;
+
+    @Value("${notification.fanout.consumers:2}")
+    private int fanOutConsumers;
+
     @Bean
     public TopicExchange notificationExchange() {
         return new TopicExchange("notification.exchange");
     }
 
     // ── Wallet ────────────────────────────────────────────────
-    @Bean public Queue walletQueue() { return new Queue("notification.wallet.queue", true); }
+    @Bean public Queue walletQueue() { return domainQueue("notification.wallet.queue"); }
     @Bean public Binding walletBinding(Queue walletQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(walletQueue).to(notificationExchange).with("notification.wallet");
     }
 
     // ── Payment ───────────────────────────────────────────────
-    @Bean public Queue paymentQueue() { return new Queue("notification.payment.queue", true); }
+    @Bean public Queue paymentQueue() { return domainQueue("notification.payment.queue"); }
     @Bean public Binding paymentBinding(Queue paymentQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(paymentQueue).to(notificationExchange).with("notification.payment");
     }
 
     // ── Order ─────────────────────────────────────────────────
-    @Bean public Queue orderQueue() { return new Queue("notification.order.queue", true); }
+    @Bean public Queue orderQueue() { return domainQueue("notification.order.queue"); }
     @Bean public Binding orderBinding(Queue orderQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(orderQueue).to(notificationExchange).with("notification.order");
     }
 
     // ── Shop ──────────────────────────────────────────────────
-    @Bean public Queue shopQueue() { return new Queue("notification.shop.queue", true); }
+    @Bean public Queue shopQueue() { return domainQueue("notification.shop.queue"); }
     @Bean public Binding shopBinding(Queue shopQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(shopQueue).to(notificationExchange).with("notification.shop");
     }
 
     // ── Group Purchase ────────────────────────────────────────
-    @Bean public Queue groupPurchaseQueue() { return new Queue("notification.group_purchase.queue", true); }
+    @Bean public Queue groupPurchaseQueue() { return domainQueue("notification.group_purchase.queue"); }
     @Bean public Binding groupPurchaseBinding(Queue groupPurchaseQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(groupPurchaseQueue).to(notificationExchange).with("notification.group_purchase");
     }
 
     // ── Event ─────────────────────────────────────────────────
-    @Bean public Queue eventQueue() { return new Queue("notification.event.queue", true); }
+    @Bean public Queue eventQueue() { return domainQueue("notification.event.queue"); }
     @Bean public Binding eventBinding(Queue eventQueue, TopicExchange notificationExchange) {
         return BindingBuilder.bind(eventQueue).to(notificationExchange).with("notification.event");
     }
 
+    // ── Promotional campaigns ─────────────────────────────────
+    @Bean public Queue promotionalQueue() { return new Queue("notification.promotional.queue", true); }
+    @Bean public Binding promotionalBinding(Queue promotionalQueue, TopicExchange notificationExchange) {
+        return BindingBuilder.bind(promotionalQueue).to(notificationExchange).with("notification.promotional");
+    }
+
+    // ── Fan-out work queue (internal, default exchange) ───────
+    @Bean public Queue workQueue() { return priorityQueue(RecipientFanOutService.WORK_QUEUE); }
+
+    // ── User shards (notification.sharding.enabled) ───────────
+    // Consistent-hash exchange: the binding key is the queue's weight, the routing key
+    // (userId) is hashed. Single active consumer per queue keeps each shard sequential.
+    @Bean
+    @ConditionalOnProperty(name = "notification.sharding.enabled", havingValue = "true")
+    public Declarables shardTopology(UserShardRouter shardRouter) {
+        List<Declarable> declarables = new ArrayList<>();
+        CustomExchange shardExchange = new CustomExchange(UserShardRouter.SHARD_EXCHANGE, "x-consistent-hash", true, false);
+        declarables.add(shardExchange);
+
+        for (String queueName : shardRouter.shardQueueNames()) {
+            Queue shardQueue = QueueBuilder.durable(queueName)
+                    .singleActiveConsumer()
+                    .deadLetterExchange(RetryTiers.DEAD_LETTER_EXCHANGE)
+                    .deadLetterRoutingKey(RetryTiers.DEAD_QUEUE)
+                    .build();
+            declarables.add(shardQueue);
+            declarables.add(BindingBuilder.bind(shardQueue).to(shardExchange).with("1").noargs());
+        }
+
+        return new Declarables(declarables);
+    }
+
+    // ── Retry / dead letter ───────────────────────────────────
+    @Bean
+    public DirectExchange retryExchange() {
+        return new DirectExchange(RetryTiers.RETRY_EXCHANGE);
+    }
+
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(RetryTiers.DEAD_LETTER_EXCHANGE);
+    }
+
+    // Domain messages rejected by a consumer (e.g. unparseable) end up here
+    @Bean public Queue deadQueue() { return new Queue(RetryTiers.DEAD_QUEUE, true); }
+    @Bean public Binding deadBinding(Queue deadQueue, DirectExchange deadLetterExchange) {
+        return BindingBuilder.bind(deadQueue).to(deadLetterExchange).with(RetryTiers.DEAD_QUEUE);
+    }
+
+    /**
+     * Per channel: one TTL queue per delay tier, each dead-lettering into the channel's ready
+     * queue, plus a DLQ for retries that exhausted every tier. Routing keys are the queue names.
+     */
+    @Bean
+    public Declarables retryTopology(RetryTiers retryTiers, DirectExchange retryExchange,
+                                     DirectExchange deadLetterExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            String readyQueueName = retryTiers.readyQueue(channel);
+            Queue readyQueue = new Queue(readyQueueName, true);
+            declarables.add(readyQueue);
+            declarables.add(BindingBuilder.bind(readyQueue).to(retryExchange).with(readyQueueName));
+
+            for (int tier = 0; tier < retryTiers.size(); tier++) {
+                String delayQueueName = retryTiers.delayQueue(channel, tier);
+                Queue delayQueue = QueueBuilder.durable(delayQueueName)
+                        .ttl((int) retryTiers.delay(tier).toMillis())
+                        .deadLetterExchange(RetryTiers.RETRY_EXCHANGE)
+                        .deadLetterRoutingKey(readyQueueName)
+                        .build();
+                declarables.add(delayQueue);
+                declarables.add(BindingBuilder.bind(delayQueue).to(retryExchange).with(delayQueueName));
+            }
+
+            String deadQueueName = retryTiers.deadQueue(channel);
+            Queue deadQueue = new Queue(deadQueueName, true);
+            declarables.add(deadQueue);
+            declarables.add(BindingBuilder.bind(deadQueue).to(deadLetterExchange).with(deadQueueName));
+        }
+
+        return new Declarables(declarables);
+    }
+
     // ── Shared infrastructure ─────────────────────────────────
+    // Durable queue ordered by AMQP message priority (see NotificationPriority.getMessagePriority);
+    // rejected messages are dead-lettered to notification.dead.queue
+    private Queue priorityQueue(String name) {
+        return priorityQueueBuilder(name).build();
+    }
+
+    // When sharding, one consumer cluster-wide reads each domain queue so events reach the
+    // shards in publish order
+    private Queue domainQueue(String name) {
+        QueueBuilder builder = priorityQueueBuilder(name);
+        if (shardingEnabled) {
+            builder.singleActiveConsumer();
+        }
+        return builder.build();
+    }
+
+    private QueueBuilder priorityQueueBuilder(String name) {
+        return QueueBuilder.durable(name)
+                .maxPriority(NotificationPriority.MAX_MESSAGE_PRIORITY)
+                .deadLetterExchange(RetryTiers.DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(RetryTiers.DEAD_QUEUE);
+    }
+
     @Bean
     @Primary
     public ObjectMapper objectMapper() {
@@ -65,9 +209,68 @@ public class RabbitMQConfig {
         return mapper;
     }
 
+    // Reads JSON, Smile or CBOR, optionally gzip/zstd compressed; writes the configured format
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter(objectMapper());
+    public NotificationMessageConverter messageConverter() {
+        return new NotificationMessageConverter(
+                objectMapper(), wireFormat, wireCompression, compressMinBytes, streamingThresholdBytes);
+    }
+
+    /**
+     * Delivers up to batch-size messages per listener call, waiting at most receive-timeout-ms
+     * for a batch to fill. batch-size, receive-timeout-ms and prefetch can be overridden per
+     * queue, keyed by the domain part of the queue name, e.g. notification.consumer.order.batch-size
+     * for notification.order.queue.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            ConnectionFactory connectionFactory, Environment environment) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        // Acked by DeliveryAcknowledger once the event has actually been delivered
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setContainerCustomizer(container -> applyBatchSettings(container, environment));
+        return factory;
+    }
+
+    /**
+     * Chunk consumers for the fan-out work queue. Prefetch 1 means a node only holds the
+     * chunk it is working on, so chunks spread across the cluster by free capacity.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory workListenerContainerFactory(ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setPrefetchCount(1);
+        factory.setConcurrentConsumers(fanOutConsumers);
+        return factory;
+    }
+
+    private void applyBatchSettings(SimpleMessageListenerContainer container, Environment environment) {
+        String domain = queueDomain(container.getQueueNames()[0]);
+        int batchSize = environment.getProperty(
+                "notification.consumer." + domain + ".batch-size", Integer.class, consumerBatchSize);
+        long receiveTimeout = environment.getProperty(
+                "notification.consumer." + domain + ".receive-timeout-ms", Long.class, consumerReceiveTimeoutMs);
+
+        // With manual ack, prefetch is the cap on unacked messages per consumer. Two batches
+        // lets the next one fill while the previous is still being delivered; beyond that
+        // BatchDispatcher blocks the listener and the backlog stays in the broker.
+        int prefetch = environment.getProperty(
+                "notification.consumer." + domain + ".prefetch", Integer.class, batchSize * 2);
+
+        container.setBatchSize(batchSize);
+        container.setReceiveTimeout(receiveTimeout);
+        container.setPrefetchCount(prefetch);
+    }
+
+    // notification.group_purchase.queue -> group_purchase
+    private String queueDomain(String queueName) {
+        return queueName.replaceFirst("^notification\\.", "").replaceFirst("\\.queue$", "");
     }
 
     @Bean
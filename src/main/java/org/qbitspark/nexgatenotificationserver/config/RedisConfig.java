@@ -0,0 +1,26 @@
+package org.qbitspark.nexgatenotificationserver.config;
+
+import org.qbitspark.nexgatenotificationserver.service.idempotency.DeliveryIdempotencyService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+public class RedisConfig {
+
+    // Delivery marks made by other nodes feed this node's dedupe near cache
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory, DeliveryIdempotencyService idempotencyService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> idempotencyService.onMarked(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(DeliveryIdempotencyService.MARKED_TOPIC));
+        return container;
+    }
+}
@@ -0,0 +1,102 @@
+package org.qbitspark.nexgatenotificationserver.consumer;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Manual-ack glue for the batch listeners: each AMQP message is acked only after the
+ * future for its event completes, i.e. after its recipients have actually been sent.
+ *
+ * - delivery finished                           → basicAck
+ * - future failed with AmqpRejectAndDontRequeue → basicNack, no requeue (that event is bad;
+ *                                                 the queue dead-letters it to notification.dead.queue)
+ * - delivery failed otherwise (infra)           → basicNack, requeue (RabbitMQ keeps it until we can deliver)
+ *
+ * If the processor throws instead of returning futures, an executor rejection requeues the
+ * whole listener batch; anything else is narrowed down by processing each message on its own,
+ * so only the message that still fails is rejected.
+ */
+@Slf4j
+@Component
+public class DeliveryAcknowledger {
+
+    public void processAndAck(
+            List<Message<NotificationEvent>> messages,
+            Channel channel,
+            Function<List<NotificationEvent>, List<CompletableFuture<Void>>> processor) {
+
+        List<NotificationEvent> events = messages.stream().map(Message::getPayload).toList();
+
+        List<CompletableFuture<Void>> completions;
+        try {
+            completions = processor.apply(events);
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Executor rejected {} messages, requeueing: {}", messages.size(), e.getMessage());
+            messages.forEach(message -> nack(channel, deliveryTag(message), true));
+            return;
+        } catch (Exception e) {
+            if (messages.size() == 1) {
+                log.error("❌ Failed to start processing tag {}, rejecting: {}",
+                        deliveryTag(messages.get(0)), e.getMessage(), e);
+                nack(channel, deliveryTag(messages.get(0)), false);
+                return;
+            }
+            log.warn("⚠️ Failed to start processing {} messages, retrying them one by one: {}",
+                    messages.size(), e.getMessage());
+            messages.forEach(message -> processAndAck(List.of(message), channel, processor));
+            return;
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            long deliveryTag = deliveryTag(messages.get(i));
+            completions.get(i).whenComplete((ignored, ex) -> {
+                if (ex == null) {
+                    ack(channel, deliveryTag);
+                } else if (unwrap(ex) instanceof AmqpRejectAndDontRequeueException) {
+                    log.error("❌ Rejecting tag {}: {}", deliveryTag, ex.getMessage());
+                    nack(channel, deliveryTag, false);
+                } else {
+                    log.warn("⚠️ Delivery failed for tag {}, requeueing: {}", deliveryTag, ex.getMessage());
+                    nack(channel, deliveryTag, true);
+                }
+            });
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private long deliveryTag(Message<NotificationEvent> message) {
+        return message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+    }
+
+    private void ack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (IOException e) {
+            // Channel is gone; the broker redelivers the message to another consumer
+            log.error("❌ Failed to ack delivery tag {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    private void nack(Channel channel, long deliveryTag, boolean requeue) {
+        try {
+            channel.basicNack(deliveryTag, false, requeue);
+        } catch (IOException e) {
+            log.error("❌ Failed to nack delivery tag {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+}
@@ -1,33 +1,54 @@
 package org.qbitspark.nexgatenotificationserver.consumer;
 
+import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
 import org.qbitspark.nexgatenotificationserver.service.event.EventNotificationHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class EventNotificationConsumer {
 
     private final EventNotificationHandler eventNotificationHandler;
+    private final DeliveryAcknowledger acknowledger;
+    private final BatchDispatcher batchDispatcher;
+
+    @RabbitListener(queues = "notification.event.queue", containerFactory = "batchListenerContainerFactory")
+    public void handleEventNotifications(List<Message<NotificationEvent>> messages, Channel channel) {
+        log.info("🎫 Received {} event notifications", messages.size());
+
+        // Ticket PDFs are rendered per event, so the handler still takes them one at a time
+        acknowledger.processAndAck(messages, channel,
+                events -> events.stream().map(this::handleEventNotification).toList());
+    }
 
-    @RabbitListener(queues = "notification.event.queue")
-    public void handleEventNotification(NotificationEvent event) {
-        log.info("🎫 Received event notification: type={}, recipients={}",
-                event.getType(), event.getRecipients().size());
+    // Through the dispatcher like every other batch: same executor cap and priority, and the
+    // future fails (message requeued or rejected) when the handler does
+    private CompletableFuture<Void> handleEventNotification(NotificationEvent event) {
+        log.info("🎫 Handling event notification: type={}, recipients={}",
+                event.getType(), event.recipientCount());
 
+        NotificationPriority priority = NotificationPriority.orDefault(event.getPriority());
         if (event.getType() == NotificationType.EVENT_BOOKING_CONFIRMED) {
-            eventNotificationHandler.handleBuyerNotification(event);
+            return batchDispatcher.dispatch(priority, () -> eventNotificationHandler.handleBuyerNotification(event));
 
         } else if (event.getType() == NotificationType.EVENT_ATTENDEE_TICKET_ISSUED) {
-            eventNotificationHandler.handleAttendeeNotification(event);
+            return batchDispatcher.dispatch(priority, () -> eventNotificationHandler.handleAttendeeNotification(event));
 
         } else {
             log.warn("⚠️ Unknown event notification type: {}", event.getType());
+            return CompletableFuture.completedFuture(null);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package org.qbitspark.nexgatenotificationserver.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.FanOutChunk;
+import org.qbitspark.nexgatenotificationserver.service.fanout.RecipientFanOutService;
+import org.qbitspark.nexgatenotificationserver.service.orchestrator.NotificationOrchestrator;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FanOutChunkConsumer {
+
+    private final NotificationOrchestrator orchestrator;
+    private final RecipientFanOutService fanOutService;
+
+    // Blocks until the chunk is delivered, so the message is acked only after delivery and
+    // a node takes its next chunk only when it has capacity for it. A failed chunk goes back
+    // to the end of the queue with its attempt counted, up to max-attempts, then to the DLQ.
+    @RabbitListener(queues = RecipientFanOutService.WORK_QUEUE, containerFactory = "workListenerContainerFactory")
+    public void handleChunk(FanOutChunk chunk) {
+        log.info("🧩 Received chunk {}/{} with {} recipients (correlationId: {}, attempt {})",
+                chunk.getChunkNumber(), chunk.getTotalChunks(),
+                chunk.getEvent().recipientCount(), chunk.getCorrelationId(), chunk.getAttempt() + 1);
+
+        try {
+            orchestrator.processChunk(chunk).join();
+        } catch (RuntimeException e) {
+            if (!fanOutService.retry(chunk)) {
+                log.error("☠️ Chunk {} of correlationId {} failed {} times, dead-lettering: {}",
+                        chunk.getChunkNumber(), chunk.getCorrelationId(), chunk.getAttempt() + 1, e.getMessage());
+                throw new AmqpRejectAndDontRequeueException("Chunk failed too often", e);
+            }
+            log.warn("⚠️ Chunk {} of correlationId {} failed, queued again: {}",
+                    chunk.getChunkNumber(), chunk.getCorrelationId(), e.getMessage());
+        }
+    }
+}
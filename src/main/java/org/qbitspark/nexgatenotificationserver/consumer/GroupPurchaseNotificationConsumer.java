@@ -1,20 +1,27 @@
+package org.qbitspark.nexgatenotificationserver.consumer;
 
-package org.qbitspark.nexgatenotificationserver.consumer;import lombok.RequiredArgsConstructor;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
 import org.qbitspark.nexgatenotificationserver.service.orchestrator.NotificationOrchestrator;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.stereotype.Component;@Slf4j
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class GroupPurchaseNotificationConsumer {
     private final NotificationOrchestrator orchestrator;
+    private final DeliveryAcknowledger acknowledger;
 
-    @RabbitListener(queues = "notification.group_purchase.queue")
-    public void handleGroupPurchaseNotification(NotificationEvent event) {
-        log.info("🎉 Received group purchase notification: type={}, recipients={}",
-                event.getType(), event.getRecipients().size());
+    @RabbitListener(queues = "notification.group_purchase.queue", containerFactory = "batchListenerContainerFactory")
+    public void handleGroupPurchaseNotifications(List<Message<NotificationEvent>> messages, Channel channel) {
+        log.info("🎉 Received {} group purchase notifications", messages.size());
 
-        orchestrator.process(event);
+        acknowledger.processAndAck(messages, channel, orchestrator::processAll);
     }
 }
\ No newline at end of file
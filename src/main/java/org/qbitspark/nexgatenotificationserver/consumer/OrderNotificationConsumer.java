@@ -1,24 +1,28 @@
 package org.qbitspark.nexgatenotificationserver.consumer;
 
+import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
 import org.qbitspark.nexgatenotificationserver.service.orchestrator.NotificationOrchestrator;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class OrderNotificationConsumer {
 
     private final NotificationOrchestrator orchestrator;
+    private final DeliveryAcknowledger acknowledger;
 
-    @RabbitListener(queues = "notification.order.queue")
-    public void handleOrderNotification(NotificationEvent event) {
-        log.info("Received order notification: type={}, recipients={}",
-                event.getType(), event.getRecipients().size());
+    @RabbitListener(queues = "notification.order.queue", containerFactory = "batchListenerContainerFactory")
+    public void handleOrderNotifications(List<Message<NotificationEvent>> messages, Channel channel) {
+        log.info("Received {} order notifications", messages.size());
 
-        orchestrator.process(event);
+        acknowledger.processAndAck(messages, channel, orchestrator::processAll);
     }
 }
\ No newline at end of file
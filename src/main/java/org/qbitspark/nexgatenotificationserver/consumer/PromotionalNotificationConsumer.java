@@ -1,4 +1,24 @@
 package org.qbitspark.nexgatenotificationserver.consumer;
 
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.CampaignDefinition;
+import org.qbitspark.nexgatenotificationserver.service.campaign.CampaignEngine;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
 public class PromotionalNotificationConsumer {
+
+    private final CampaignEngine campaignEngine;
+
+    // The message only defines the campaign; the engine streams the audience from its source
+    @RabbitListener(queues = "notification.promotional.queue")
+    public void handleCampaign(CampaignDefinition definition) {
+        log.info("📣 Received campaign {} ({})", definition.getCampaignId(), definition.getType());
+
+        campaignEngine.start(definition);
+    }
 }
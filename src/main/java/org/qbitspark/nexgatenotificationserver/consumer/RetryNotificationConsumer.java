@@ -0,0 +1,24 @@
+package org.qbitspark.nexgatenotificationserver.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.ChannelRetry;
+import org.qbitspark.nexgatenotificationserver.service.retry.ChannelRetryService;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RetryNotificationConsumer {
+
+    private final ChannelRetryService retryService;
+
+    // One ready queue per channel, so a backlog of SMS retries never delays EMAIL retries
+    @RabbitListener(queues = "#{@retryTiers.readyQueueNames()}")
+    public void handleRetry(ChannelRetry retry) {
+        log.info("🔁 Received {} retry for notification {}", retry.getChannel(), retry.getNotificationId());
+
+        retryService.retry(retry);
+    }
+}
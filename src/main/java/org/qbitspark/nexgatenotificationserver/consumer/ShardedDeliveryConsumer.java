@@ -0,0 +1,108 @@
+package org.qbitspark.nexgatenotificationserver.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchProcessor;
+import org.qbitspark.nexgatenotificationserver.service.sharding.UserShardRouter;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One listener container per shard queue, each with a single consumer thread: the lane.
+ * Deliveries are processed on that thread in queue order and acked together afterwards,
+ * so a user's notifications go out in the order their events were published.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "notification.sharding.enabled", havingValue = "true")
+public class ShardedDeliveryConsumer implements RabbitListenerConfigurer {
+
+    private final UserShardRouter shardRouter;
+    private final NotificationBatchProcessor batchProcessor;
+    private final ObjectMapper objectMapper;
+    private final SimpleRabbitListenerContainerFactory batchListenerContainerFactory;
+    private final AtomicInteger batchCounter = new AtomicInteger();
+
+    public ShardedDeliveryConsumer(
+            UserShardRouter shardRouter,
+            NotificationBatchProcessor batchProcessor,
+            ObjectMapper objectMapper,
+            @Qualifier("batchListenerContainerFactory") SimpleRabbitListenerContainerFactory batchListenerContainerFactory) {
+        this.shardRouter = shardRouter;
+        this.batchProcessor = batchProcessor;
+        this.objectMapper = objectMapper;
+        this.batchListenerContainerFactory = batchListenerContainerFactory;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (String queue : shardRouter.localShardQueueNames()) {
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("lane-" + queue);
+            endpoint.setQueueNames(queue);
+            endpoint.setConcurrency("1");
+            endpoint.setMessageListener((ChannelAwareBatchMessageListener) this::handleLane);
+            registrar.registerEndpoint(endpoint, batchListenerContainerFactory);
+        }
+        log.info("🛣️ Registered {} ordered delivery lanes", shardRouter.localShardQueueNames().length);
+    }
+
+    private void handleLane(List<Message> messages, Channel channel) {
+        List<DeliveryTask> tasks = new ArrayList<>(messages.size());
+        long lastTag = -1;
+        for (Message message : messages) {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            try {
+                tasks.add(objectMapper.readValue(message.getBody(), DeliveryTask.class));
+                lastTag = deliveryTag;
+            } catch (IOException e) {
+                log.error("❌ Unreadable delivery on tag {}, rejecting: {}", deliveryTag, e.getMessage());
+                nack(channel, deliveryTag, false, false);
+            }
+        }
+
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Synchronous on purpose: the lane thread is what keeps per-user order
+            batchProcessor.processTasks(batchCounter.incrementAndGet(), tasks);
+            ack(channel, lastTag);
+        } catch (Exception e) {
+            log.warn("⚠️ Lane batch failed, requeueing {} deliveries: {}", tasks.size(), e.getMessage());
+            nack(channel, lastTag, true, true);
+        }
+    }
+
+    private void ack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicAck(deliveryTag, true);
+        } catch (IOException e) {
+            // Channel is gone; the broker redelivers the batch to the lane's next consumer
+            log.error("❌ Failed to ack up to delivery tag {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    private void nack(Channel channel, long deliveryTag, boolean multiple, boolean requeue) {
+        try {
+            channel.basicNack(deliveryTag, multiple, requeue);
+        } catch (IOException e) {
+            log.error("❌ Failed to nack delivery tag {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+}
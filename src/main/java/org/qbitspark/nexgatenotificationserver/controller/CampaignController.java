@@ -0,0 +1,30 @@
+package org.qbitspark.nexgatenotificationserver.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.entity.CampaignEntity;
+import org.qbitspark.nexgatenotificationserver.service.campaign.CampaignEngine;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/campaigns")
+@RequiredArgsConstructor
+public class CampaignController {
+
+    private final CampaignEngine campaignEngine;
+
+    @GetMapping("/{campaignId}")
+    public ResponseEntity<CampaignEntity> get(@PathVariable String campaignId) {
+        return ResponseEntity.of(campaignEngine.find(campaignId));
+    }
+
+    @PostMapping("/{campaignId}/pause")
+    public ResponseEntity<CampaignEntity> pause(@PathVariable String campaignId) {
+        return ResponseEntity.of(campaignEngine.pause(campaignId));
+    }
+
+    @PostMapping("/{campaignId}/resume")
+    public ResponseEntity<CampaignEntity> resume(@PathVariable String campaignId) {
+        return ResponseEntity.of(campaignEngine.resume(campaignId));
+    }
+}
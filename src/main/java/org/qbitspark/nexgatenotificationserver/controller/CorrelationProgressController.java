@@ -0,0 +1,26 @@
+package org.qbitspark.nexgatenotificationserver.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.dto.CorrelationProgress;
+import org.qbitspark.nexgatenotificationserver.service.progress.CorrelationProgressService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/progress")
+@RequiredArgsConstructor
+public class CorrelationProgressController {
+
+    private final CorrelationProgressService progressService;
+
+    @GetMapping("/correlations/{correlationId}")
+    public ResponseEntity<CorrelationProgress> byCorrelation(@PathVariable String correlationId) {
+        return ResponseEntity.of(progressService.find(correlationId));
+    }
+
+    // Publishers know their own eventId, not the correlationId assigned here
+    @GetMapping("/events/{eventId}")
+    public ResponseEntity<CorrelationProgress> byEvent(@PathVariable String eventId) {
+        return ResponseEntity.of(progressService.findByEventId(eventId));
+    }
+}
@@ -0,0 +1,50 @@
+package org.qbitspark.nexgatenotificationserver.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationHistoryPage;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationHistoryQuery;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.qbitspark.nexgatenotificationserver.service.history.NotificationHistoryService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/notifications")
+@RequiredArgsConstructor
+public class NotificationHistoryController {
+
+    private final NotificationHistoryService historyService;
+
+    // Newest first; pass nextCursor back as cursor for the following page
+    @GetMapping
+    public ResponseEntity<NotificationHistoryPage> history(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String correlationId,
+            @RequestParam(required = false) NotificationType type,
+            @RequestParam(required = false) NotificationStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(historyService.find(NotificationHistoryQuery.builder()
+                .userId(userId)
+                .correlationId(correlationId)
+                .type(type)
+                .status(status)
+                .from(from)
+                .to(to)
+                .cursor(cursor)
+                .limit(limit)
+                .build()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,191 @@
+package org.qbitspark.nexgatenotificationserver.converter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJackson2MessageConverter;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-type negotiated converter for every queue.
+ *
+ * Inbound: a gzip / deflate / zstd content-encoding is undone first, then the payload is read
+ * as JSON, Smile or CBOR by content-type. Anything else falls back to JSON, so existing
+ * publishers keep working unchanged.
+ *
+ * Outbound (our own publishes: fan-out chunks, shard deliveries, retries): format and
+ * compression come from notification.wire.*; payloads under compress-min-bytes go uncompressed.
+ *
+ * NotificationEvent bodies of streaming-threshold-bytes or more decode to a
+ * StreamedNotificationEvent, whose recipients are parsed batch by batch during dispatch.
+ */
+public class NotificationMessageConverter implements MessageConverter {
+
+    public static final String JSON = MessageProperties.CONTENT_TYPE_JSON;
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String CBOR = "application/cbor";
+
+    public enum WireFormat { JSON, SMILE, CBOR }
+
+    public enum Compression { NONE, GZIP, ZSTD }
+
+    private final ContentTypeDelegatingMessageConverter delegates;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper cborMapper;
+    private final int streamingThresholdBytes;
+    private final String outboundContentType;
+    private final Compression outboundCompression;
+    private final int compressMinBytes;
+
+    public NotificationMessageConverter(ObjectMapper jsonMapper, WireFormat format, Compression compression,
+                                        int compressMinBytes, int streamingThresholdBytes) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = binaryMapper(new SmileFactory());
+        this.cborMapper = binaryMapper(new CBORFactory());
+        this.delegates = new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter(jsonMapper));
+        this.delegates.addDelegate(SMILE, new BinaryJacksonConverter(smileMapper, SMILE));
+        this.delegates.addDelegate(CBOR, new BinaryJacksonConverter(cborMapper, CBOR));
+        this.streamingThresholdBytes = streamingThresholdBytes;
+        this.outboundContentType = switch (format) {
+            case JSON -> JSON;
+            case SMILE -> SMILE;
+            case CBOR -> CBOR;
+        };
+        this.outboundCompression = compression;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        messageProperties.setContentType(outboundContentType);
+        Message message = delegates.toMessage(object, messageProperties);
+        MessageProperties properties = message.getMessageProperties();
+
+        if (isBinary(outboundContentType)) {
+            // The Jackson converters stamp a charset here, which would make readers decode text
+            properties.setContentEncoding(null);
+        }
+        if (outboundCompression == Compression.NONE || message.getBody().length < compressMinBytes) {
+            return message;
+        }
+
+        byte[] compressed = compress(message.getBody(), outboundCompression);
+        properties.setContentEncoding(outboundCompression.name().toLowerCase());
+        properties.setContentLength(compressed.length);
+        return new Message(compressed, properties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        byte[] body = message.getBody();
+
+        // Spring's compressing post processors write e.g. "gzip, UTF-8" (older versions "gzip:UTF-8")
+        String encoding = properties.getContentEncoding();
+        String compression = encoding == null ? "" : encoding.split("[:,]")[0].trim().toLowerCase();
+        boolean compressed = switch (compression) {
+            case "gzip", "deflate", "zstd" -> true;
+            default -> false;
+        };
+
+        if (compressed) {
+            body = decompress(body, compression);
+        }
+
+        // Large events bound for a NotificationEvent listener skip recipient materialization
+        String contentType = properties.getContentType();
+        if (body.length >= streamingThresholdBytes
+                && properties.getInferredArgumentType() == NotificationEvent.class
+                && contentType != null && (contentType.contains("json") || isBinary(contentType))) {
+            return StreamedNotificationEvent.decode(mapperFor(contentType), body);
+        }
+
+        if (compressed || isBinary(contentType)) {
+            properties.setContentEncoding(null);
+            message = new Message(body, properties);
+        }
+        return delegates.fromMessage(message);
+    }
+
+    private ObjectMapper mapperFor(String contentType) {
+        if (contentType != null && contentType.startsWith(SMILE)) {
+            return smileMapper;
+        }
+        if (contentType != null && contentType.startsWith(CBOR)) {
+            return cborMapper;
+        }
+        return jsonMapper;
+    }
+
+    private static boolean isBinary(String contentType) {
+        return contentType != null && (contentType.startsWith(SMILE) || contentType.startsWith(CBOR));
+    }
+
+    private static ObjectMapper binaryMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+
+    private static byte[] compress(byte[] body, Compression compression) {
+        if (compression == Compression.ZSTD) {
+            // One-shot frames record the content size, which lets decompress size its buffer once
+            return Zstd.compress(body);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+        try (OutputStream stream = new GZIPOutputStream(out)) {
+            stream.write(body);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to gzip message", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] body, String compression) {
+        if (compression.equals("zstd")) {
+            long size = Zstd.getFrameContentSize(body);
+            if (size > 0 && size <= Integer.MAX_VALUE) {
+                return Zstd.decompress(body, (int) size);
+            }
+        }
+        try (InputStream in = switch (compression) {
+            case "gzip" -> new GZIPInputStream(new ByteArrayInputStream(body));
+            case "deflate" -> new InflaterInputStream(new ByteArrayInputStream(body));
+            default -> new ZstdInputStream(new ByteArrayInputStream(body));  // streamed frame, size unknown
+        }) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decompress " + compression + " message", e);
+        }
+    }
+
+    // Smile / CBOR flavour of Jackson2JsonMessageConverter: same type headers and inference
+    private static class BinaryJacksonConverter extends AbstractJackson2MessageConverter {
+        BinaryJacksonConverter(ObjectMapper objectMapper, String contentType) {
+            super(objectMapper, MimeTypeUtils.parseMimeType(contentType), "*");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.qbitspark.nexgatenotificationserver.converter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * NotificationEvent decoded from a large message body without materializing its recipients.
+ *
+ * Decoding reads the header fields (eventId, type, channels, priority, data, sendAt) and only
+ * counts the recipients, skipping over their tokens, since publishers may put them in any
+ * field order.
+ * forEachRecipientBatch then parses the recipients array token by token, handing each batch
+ * over as soon as it is full; with BatchDispatcher blocking on a full executor, only the
+ * batches in flight are ever on heap. getRecipients() still works and materializes the list,
+ * for callers that need all of it.
+ */
+public class StreamedNotificationEvent extends NotificationEvent {
+
+    private static final TypeReference<List<NotificationChannel>> CHANNELS = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> DATA = new TypeReference<>() {};
+
+    private final ObjectMapper mapper;
+    private final byte[] body;
+    private int recipientCount;
+
+    private StreamedNotificationEvent(ObjectMapper mapper, byte[] body) {
+        this.mapper = mapper;
+        this.body = body;
+    }
+
+    // Field names mirror the @JsonProperty names on NotificationEvent
+    public static StreamedNotificationEvent decode(ObjectMapper mapper, byte[] body) {
+        StreamedNotificationEvent event = new StreamedNotificationEvent(mapper, body);
+        try (JsonParser parser = mapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MessageConversionException("NotificationEvent body is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "recipients" -> event.recipientCount = countElements(parser);
+                    case "eventId" -> event.setEventId(mapper.readValue(parser, String.class));
+                    case "type" -> event.setType(mapper.readValue(parser, NotificationType.class));
+                    case "channels" -> event.setChannels(mapper.readValue(parser, CHANNELS));
+                    case "priority" -> event.setPriority(mapper.readValue(parser, NotificationPriority.class));
+                    case "data" -> event.setData(mapper.readValue(parser, DATA));
+                    case "sendAt" -> event.setSendAt(mapper.readValue(parser, Instant.class));
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode NotificationEvent header", e);
+        }
+        return event;
+    }
+
+    @Override
+    public int recipientCount() {
+        return recipientCount;
+    }
+
+    @Override
+    public void forEachRecipientBatch(int size, Consumer<List<Recipient>> consumer) {
+        if (super.getRecipients() != null) {
+            super.forEachRecipientBatch(size, consumer);
+            return;
+        }
+
+        try (JsonParser parser = mapper.createParser(body)) {
+            if (!seekRecipients(parser)) {
+                return;
+            }
+            List<Recipient> batch = new ArrayList<>(size);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(mapper.readValue(parser, Recipient.class));
+                if (batch.size() == size) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(size);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stream recipients", e);
+        }
+    }
+
+    // Never null: an event with no (or an empty) recipients array has an empty list
+    @Override
+    public List<Recipient> getRecipients() {
+        if (super.getRecipients() == null) {
+            if (recipientCount == 0) {
+                return List.of();
+            }
+            List<Recipient> all = new ArrayList<>(recipientCount);
+            forEachRecipientBatch(recipientCount, all::addAll);
+            setRecipients(all);
+        }
+        return super.getRecipients();
+    }
+
+    // Leaves the parser on the recipients array's START_ARRAY; false if there is none
+    private static boolean seekRecipients(JsonParser parser) throws IOException {
+        parser.nextToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("recipients")) {
+                return value == JsonToken.START_ARRAY;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static int countElements(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return 0;
+        }
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            count++;
+        }
+        return count;
+    }
+}
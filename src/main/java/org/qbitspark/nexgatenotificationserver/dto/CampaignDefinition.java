@@ -0,0 +1,52 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.CampaignSourceType;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A promotional campaign: what to send, plus where to stream the audience from.
+ * Recipients are never part of the message; they are read page by page from the source.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignDefinition {
+
+    @JsonProperty("campaignId")
+    private String campaignId;
+
+    @JsonProperty("type")
+    private NotificationType type;
+
+    @JsonProperty("channels")
+    private List<NotificationChannel> channels;
+
+    @JsonProperty("priority")
+    @Builder.Default
+    private NotificationPriority priority = NotificationPriority.LOW;
+
+    @JsonProperty("data")
+    private Map<String, Object> data;
+
+    @JsonProperty("sourceType")
+    private CampaignSourceType sourceType;
+
+    // File path for NDJSON_FILE, URL for CURSOR_ENDPOINT
+    @JsonProperty("sourceLocation")
+    private String sourceLocation;
+
+    // Recipients per second; null uses notification.campaign.rate-per-second
+    @JsonProperty("ratePerSecond")
+    private Integer ratePerSecond;
+}
@@ -0,0 +1,28 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+
+import java.util.UUID;
+
+/**
+ * Retry of a single failed channel for a single recipient. The event is trimmed to that
+ * recipient and channel, so replaying it can never re-send channels that already succeeded.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChannelRetry {
+    private UUID notificationId;
+    private String correlationId;
+    private NotificationChannel channel;
+    private NotificationEvent event;
+    private int attempt;
+    private String lastError;
+    // The channel already went out; only recording it on the notification row is left
+    private boolean sent;
+}
@@ -0,0 +1,41 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Delivery progress of one correlation (one processed event). Served by the progress
+ * endpoint and published to notification.exchange as notification.correlation.completed
+ * once every recipient has been processed.
+ *
+ * Counts reflect first attempts; later retries don't move a recipient between buckets.
+ * totalRecipients is null when the total isn't known up front (campaign pages, shard lanes).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrelationProgress {
+    private String correlationId;
+    private String eventId;
+    private NotificationType type;
+    private Long totalRecipients;
+    private long processed;
+    private long sent;
+    private long partial;
+    private long failed;
+    private long skipped;   // already delivered (publisher retry / redelivery)
+    private long deferred;  // every channel waiting for provider quota, on the retry queues
+    private Map<NotificationChannel, Long> sentByChannel;
+    private Map<NotificationChannel, Long> failedByChannel;
+    private boolean completed;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
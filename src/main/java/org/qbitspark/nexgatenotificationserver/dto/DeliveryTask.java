@@ -0,0 +1,20 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One recipient of one event — the unit of work handed to the batch processor.
+ * Lets a single batch carry recipients from many different events.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryTask {
+    private String correlationId;
+    private NotificationEvent event;
+    private Recipient recipient;
+}
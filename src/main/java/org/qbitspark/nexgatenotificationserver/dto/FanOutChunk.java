@@ -0,0 +1,23 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slice of a large event's recipients, published to the internal work queue so any node
+ * in the cluster can pick it up. The event carries only this chunk's recipients.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FanOutChunk {
+    private String correlationId;
+    private int chunkNumber;
+    private int totalChunks;
+    private NotificationEvent event;
+    // Failed deliveries of this chunk so far; dead-lettered at notification.fanout.max-attempts
+    private int attempt;
+}
@@ -5,12 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.With;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Data
 @Builder
@@ -18,12 +21,18 @@ import java.util.Map;
 @AllArgsConstructor
 public class NotificationEvent {
 
+    // Publisher-supplied, stable across publisher retries; deliveries are deduplicated on it
+    @JsonProperty("eventId")
+    private String eventId;
+
     @JsonProperty("type")
     private NotificationType type;
 
+    @With
     @JsonProperty("recipients")
     private List<Recipient> recipients;
 
+    @With
     @JsonProperty("channels")
     private List<NotificationChannel> channels;
 
@@ -33,4 +42,26 @@ public class NotificationEvent {
 
     @JsonProperty("data")
     private Map<String, Object> data;
-}
\ No newline at end of file
+
+    // Deliver no earlier than this; null or past means now. Future sends are stored as
+    // scheduled_notifications rows until due (see ScheduledDeliveryService)
+    @JsonProperty("sendAt")
+    private Instant sendAt;
+
+    public int recipientCount() {
+        return recipients == null ? 0 : recipients.size();
+    }
+
+    /**
+     * Hands the recipients to {@code consumer} in lists of at most {@code size}, in order.
+     * Streamed events decode each list only when it is handed over.
+     */
+    public void forEachRecipientBatch(int size, Consumer<List<Recipient>> consumer) {
+        if (recipients == null) {
+            return;
+        }
+        for (int i = 0; i < recipients.size(); i += size) {
+            consumer.accept(recipients.subList(i, Math.min(i + size, recipients.size())));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationHistoryItem {
+    private UUID id;
+    private String correlationId;
+    private String eventId;
+    private String userId;
+    private String recipientEmail;
+    private String recipientPhone;
+    private String recipientName;
+    private NotificationType type;
+    private NotificationStatus status;
+    private Set<NotificationChannel> channels;
+    private Set<NotificationChannel> failedChannels;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,29 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of a history lookup. userId or correlationId is required (each has its own index);
+ * the rest narrow the result. cursor is the nextCursor of the previous page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationHistoryQuery {
+    private String userId;
+    private String correlationId;
+    private NotificationType type;
+    private NotificationStatus status;
+    private LocalDateTime from;   // inclusive
+    private LocalDateTime to;     // exclusive
+    private String cursor;
+    private Integer limit;
+}
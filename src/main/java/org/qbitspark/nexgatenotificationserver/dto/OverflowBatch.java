@@ -0,0 +1,23 @@
+package org.qbitspark.nexgatenotificationserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+
+import java.util.List;
+
+/**
+ * A batch parked in the overflow journal while notificationExecutor is saturated.
+ * Task events carry no recipient list; each task's own recipient is all a batch needs.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverflowBatch {
+    private NotificationPriority priority;
+    private int batchNumber;
+    private List<DeliveryTask> tasks;
+}
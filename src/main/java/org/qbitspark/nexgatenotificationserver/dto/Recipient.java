@@ -6,6 +6,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalTime;
+import java.util.stream.Stream;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -26,4 +29,24 @@ public class Recipient {
 
     @JsonProperty("language")
     private String language;
-}
\ No newline at end of file
+
+    // IANA zone (e.g. "Africa/Nairobi") and quiet window for scheduled sends; each falls
+    // back to notification.scheduling.quiet-hours.* when absent
+    @JsonProperty("timezone")
+    private String timezone;
+
+    @JsonProperty("quietHoursStart")
+    private LocalTime quietHoursStart;
+
+    @JsonProperty("quietHoursEnd")
+    private LocalTime quietHoursEnd;
+
+    // Stable identity for routing and dedupe keys; recipients without a userId fall back
+    // to their email, then phone
+    public String deliveryKey() {
+        return Stream.of(userId, email, phone)
+                .filter(key -> key != null && !key.isBlank())
+                .findFirst()
+                .orElse("");
+    }
+}
@@ -0,0 +1,61 @@
+package org.qbitspark.nexgatenotificationserver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.qbitspark.nexgatenotificationserver.dto.CampaignDefinition;
+import org.qbitspark.nexgatenotificationserver.enums.CampaignStatus;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "campaigns")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignEntity {
+
+    @Id
+    private String campaignId;
+
+    @Enumerated(EnumType.STRING)
+    private CampaignStatus status;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    private CampaignDefinition definition;
+
+    // Source position after the last fully delivered page; a restart resumes from here
+    private String checkpoint;
+
+    private long sentRecipients;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    // Node running the campaign and how long its claim holds without being renewed; a
+    // RUNNING campaign with no live lease is taken over by the next node that polls
+    private String owner;
+    private LocalDateTime leaseUntil;
+
+    // First time any node ran it: with no checkpoint yet, the position is unknown, not zero
+    private LocalDateTime startedAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,48 @@
+package org.qbitspark.nexgatenotificationserver.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Channel collections stored as one integer column, one bit per channel
+ * (NotificationChannel.bit()). A null column (rows not yet migrated) reads as no channels.
+ */
+public final class ChannelMaskConverter {
+
+    private ChannelMaskConverter() {
+    }
+
+    @Converter
+    public static class ForList implements AttributeConverter<List<NotificationChannel>, Integer> {
+
+        @Override
+        public Integer convertToDatabaseColumn(List<NotificationChannel> channels) {
+            return NotificationChannel.mask(channels);
+        }
+
+        @Override
+        public List<NotificationChannel> convertToEntityAttribute(Integer mask) {
+            return new ArrayList<>(NotificationChannel.fromMask(mask == null ? 0 : mask));
+        }
+    }
+
+    // Reads as a fresh mutable EnumSet; callers assign a changed set rather than edit it in place
+    @Converter
+    public static class ForSet implements AttributeConverter<Set<NotificationChannel>, Integer> {
+
+        @Override
+        public Integer convertToDatabaseColumn(Set<NotificationChannel> channels) {
+            return NotificationChannel.mask(channels);
+        }
+
+        @Override
+        public Set<NotificationChannel> convertToEntityAttribute(Integer mask) {
+            return NotificationChannel.fromMask(mask == null ? 0 : mask);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.qbitspark.nexgatenotificationserver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One chunk of a fanned-out correlation whose counts are already in correlation_progress.
+ * Inserted in the same transaction as the counts, so a redelivered chunk is counted once.
+ * Rows go when their correlation completes.
+ */
+@Entity
+@Table(name = "correlation_chunks")
+@IdClass(CorrelationChunkEntity.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrelationChunkEntity {
+
+    @Id
+    private String correlationId;
+
+    @Id
+    private int chunkNumber;
+
+    private LocalDateTime recordedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String correlationId;
+        private int chunkNumber;
+    }
+}
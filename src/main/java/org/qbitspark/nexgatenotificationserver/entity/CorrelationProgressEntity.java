@@ -0,0 +1,53 @@
+package org.qbitspark.nexgatenotificationserver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cluster-wide progress of a fanned-out correlation. Every node that finishes a chunk
+ * increments this one row, so progress lives in one place regardless of who did the work.
+ */
+@Entity
+@Table(name = "correlation_progress")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrelationProgressEntity {
+
+    @Id
+    private String correlationId;
+
+    private String eventId;
+
+    @Enumerated(EnumType.STRING)
+    private NotificationType type;
+
+    private int totalRecipients;
+    private int totalChunks;
+    private int completedChunks;
+    private int processedRecipients;
+
+    // First-attempt outcomes, added by each node as it finishes a chunk
+    private long sent;
+    private long partial;
+    private long failed;
+    private long skipped;
+    // Added after the table existed: the default fills existing rows
+    @Column(columnDefinition = "bigint not null default 0")
+    private long deferred;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -12,8 +12,10 @@ import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Entity
@@ -29,6 +31,7 @@ public class NotificationEntity {
     private UUID id;
 
     private String correlationId;
+    private String eventId;  // publisher-supplied, may be null
     private String userId;
     private String recipientEmail;
     private String recipientPhone;
@@ -37,13 +40,20 @@ public class NotificationEntity {
     @Enumerated(EnumType.STRING)
     private NotificationType type;
 
-    @ElementCollection
-    @Enumerated(EnumType.STRING)
+    // Bitmask columns (ChannelMaskConverter) rather than join tables; see ChannelMaskMigration
+    @Convert(converter = ChannelMaskConverter.ForList.class)
+    @Column(name = "channel_mask")
     private List<NotificationChannel> channels;
 
     @Enumerated(EnumType.STRING)
     private NotificationStatus status;
 
+    // Channels that did not deliver; a channel is removed when one of its retries succeeds
+    @Convert(converter = ChannelMaskConverter.ForSet.class)
+    @Column(name = "failed_channel_mask")
+    @Builder.Default
+    private Set<NotificationChannel> failedChannels = new HashSet<>();
+
     @JdbcTypeCode(SqlTypes.JSON)
     private Map<String, Object> templateData;
 
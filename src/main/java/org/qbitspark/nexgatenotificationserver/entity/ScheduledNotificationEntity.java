@@ -0,0 +1,74 @@
+package org.qbitspark.nexgatenotificationserver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.ScheduledStatus;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * One future delivery: a recipient of an event with a sendAt, due at sendAt pushed past the
+ * recipient's quiet hours. Polling walks the (status, send_at) index from the oldest due row,
+ * so its cost depends on how much is due, not on how much is scheduled. (event_id,
+ * recipient_key) is unique, so a redelivered event doesn't schedule its recipients twice.
+ */
+@Entity
+@Table(name = "scheduled_notifications",
+        indexes = {
+                @Index(name = "idx_scheduled_notifications_due", columnList = "status, send_at"),
+                @Index(name = "uk_scheduled_notifications_delivery", columnList = "event_id, recipient_key",
+                        unique = true)
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledNotificationEntity {
+
+    // Sequence ids (not identity) so Hibernate can batch the inserts of large events
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "scheduled_notifications_seq")
+    @SequenceGenerator(name = "scheduled_notifications_seq", sequenceName = "scheduled_notifications_seq",
+            allocationSize = 50)
+    private Long id;
+
+    private String correlationId;
+    private String eventId;  // publisher-supplied, may be null
+    private String recipientKey;  // Recipient.deliveryKey()
+
+    @Enumerated(EnumType.STRING)
+    private NotificationPriority priority;
+
+    @Enumerated(EnumType.STRING)
+    private ScheduledStatus status;
+
+    private Instant sendAt;
+    private Instant claimedAt;
+
+    // Claims so far; added after the table existed, so existing rows get the default
+    @Column(columnDefinition = "integer not null default 0")
+    private int attempts;
+
+    // The event without its recipient list; each row carries its own recipient
+    @JdbcTypeCode(SqlTypes.JSON)
+    private NotificationEvent event;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Recipient recipient;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,6 @@
+package org.qbitspark.nexgatenotificationserver.enums;
+
+public enum CampaignSourceType {
+    NDJSON_FILE,      // one Recipient JSON object per line, on local disk
+    CURSOR_ENDPOINT   // GET <url>?cursor=&limit= returning { recipients, nextCursor }
+}
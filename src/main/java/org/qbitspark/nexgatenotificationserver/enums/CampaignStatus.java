@@ -0,0 +1,8 @@
+package org.qbitspark.nexgatenotificationserver.enums;
+
+public enum CampaignStatus {
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    FAILED
+}
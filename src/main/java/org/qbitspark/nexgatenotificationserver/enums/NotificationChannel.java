@@ -1,10 +1,38 @@
 package org.qbitspark.nexgatenotificationserver.enums;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
+// Stored as bitmasks by ordinal (see ChannelMaskConverter): only ever append new channels
 public enum NotificationChannel {
     EMAIL,
     SMS,
     PUSH,
     IN_APP,
     WEBHOOK,
-    CHAT_APP
-}
\ No newline at end of file
+    CHAT_APP;
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public static int mask(Collection<NotificationChannel> channels) {
+        int mask = 0;
+        if (channels != null) {
+            for (NotificationChannel channel : channels) {
+                mask |= channel.bit();
+            }
+        }
+        return mask;
+    }
+
+    public static EnumSet<NotificationChannel> fromMask(int mask) {
+        EnumSet<NotificationChannel> channels = EnumSet.noneOf(NotificationChannel.class);
+        for (NotificationChannel channel : values()) {
+            if ((mask & channel.bit()) != 0) {
+                channels.add(channel);
+            }
+        }
+        return channels;
+    }
+}
@@ -1,9 +1,27 @@
 package org.qbitspark.nexgatenotificationserver.enums;
 
 public enum NotificationPriority {
-    LOW,
-    NORMAL,
-    MEDIUM,
-    HIGH,
-    URGENT
-}
\ No newline at end of file
+    LOW(1),
+    NORMAL(3),
+    MEDIUM(5),
+    HIGH(7),
+    URGENT(9);
+
+    /** Highest AMQP priority used; notification queues are declared with x-max-priority set to this. */
+    public static final int MAX_MESSAGE_PRIORITY = 10;
+
+    /** AMQP message priority publishers should set so the broker can order the queue. */
+    private final int messagePriority;
+
+    NotificationPriority(int messagePriority) {
+        this.messagePriority = messagePriority;
+    }
+
+    public int getMessagePriority() {
+        return messagePriority;
+    }
+
+    public static NotificationPriority orDefault(NotificationPriority priority) {
+        return priority != null ? priority : NORMAL;
+    }
+}
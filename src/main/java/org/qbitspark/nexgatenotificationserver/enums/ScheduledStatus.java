@@ -0,0 +1,7 @@
+package org.qbitspark.nexgatenotificationserver.enums;
+
+public enum ScheduledStatus {
+    PENDING,
+    CLAIMED,    // Taken by a node; deleted once delivered, released again if it fails or the node dies
+    FAILED      // Claimed max-attempts times without being delivered; kept for inspection
+}
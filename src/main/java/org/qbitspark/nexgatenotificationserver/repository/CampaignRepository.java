@@ -0,0 +1,76 @@
+package org.qbitspark.nexgatenotificationserver.repository;
+
+import org.qbitspark.nexgatenotificationserver.entity.CampaignEntity;
+import org.qbitspark.nexgatenotificationserver.enums.CampaignStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lease updates only touch their own columns and only while the caller still holds the lease,
+ * so the running node and pause/resume calls from any node never overwrite each other.
+ */
+public interface CampaignRepository extends JpaRepository<CampaignEntity, String> {
+
+    List<CampaignEntity> findByStatus(CampaignStatus status);
+
+    // RUNNING campaigns nobody holds a live lease on
+    @Query("select c.campaignId from CampaignEntity c where c.status = :running " +
+            "and (c.owner is null or c.leaseUntil < :now)")
+    List<String> findUnowned(@Param("running") CampaignStatus running, @Param("now") LocalDateTime now);
+
+    // 1 for exactly one node at a time
+    @Transactional
+    @Modifying
+    @Query("update CampaignEntity c set c.owner = :owner, c.leaseUntil = :until, " +
+            "c.startedAt = coalesce(c.startedAt, :now) " +
+            "where c.campaignId = :campaignId and c.status = :running " +
+            "and (c.owner is null or c.owner = :owner or c.leaseUntil < :now)")
+    int claim(@Param("campaignId") String campaignId, @Param("owner") String owner,
+              @Param("running") CampaignStatus running, @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    // 0 once the campaign is no longer RUNNING (paused) or the lease went to another node
+    @Transactional
+    @Modifying
+    @Query("update CampaignEntity c set c.leaseUntil = :until " +
+            "where c.campaignId = :campaignId and c.owner = :owner and c.status = :running")
+    int renew(@Param("campaignId") String campaignId, @Param("owner") String owner,
+              @Param("running") CampaignStatus running, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("update CampaignEntity c set c.checkpoint = :checkpoint, c.sentRecipients = :sent, c.updatedAt = :now " +
+            "where c.campaignId = :campaignId and c.owner = :owner")
+    int saveProgress(@Param("campaignId") String campaignId, @Param("owner") String owner,
+                     @Param("checkpoint") String checkpoint, @Param("sent") long sent,
+                     @Param("now") LocalDateTime now);
+
+    // Ends the run with a final status (COMPLETED, FAILED)
+    @Transactional
+    @Modifying
+    @Query("update CampaignEntity c set c.status = :status, c.lastError = :lastError, c.owner = null, " +
+            "c.leaseUntil = null, c.updatedAt = :now where c.campaignId = :campaignId and c.owner = :owner")
+    int finish(@Param("campaignId") String campaignId, @Param("owner") String owner,
+               @Param("status") CampaignStatus status, @Param("lastError") String lastError,
+               @Param("now") LocalDateTime now);
+
+    // Gives the lease up and leaves the status alone: PAUSED stays paused, RUNNING is adopted
+    @Transactional
+    @Modifying
+    @Query("update CampaignEntity c set c.owner = null, c.leaseUntil = null " +
+            "where c.campaignId = :campaignId and c.owner = :owner")
+    int release(@Param("campaignId") String campaignId, @Param("owner") String owner);
+
+    @Transactional
+    @Modifying
+    @Query("update CampaignEntity c set c.status = :to, c.lastError = null, c.updatedAt = :now " +
+            "where c.campaignId = :campaignId and c.status in :from")
+    int transition(@Param("campaignId") String campaignId, @Param("from") List<CampaignStatus> from,
+                   @Param("to") CampaignStatus to, @Param("now") LocalDateTime now);
+}
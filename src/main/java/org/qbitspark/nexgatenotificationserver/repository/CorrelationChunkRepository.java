@@ -0,0 +1,26 @@
+package org.qbitspark.nexgatenotificationserver.repository;
+
+import org.qbitspark.nexgatenotificationserver.entity.CorrelationChunkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface CorrelationChunkRepository extends JpaRepository<CorrelationChunkEntity, CorrelationChunkEntity.Key> {
+
+    // 1 the first time a chunk is recorded, 0 for a redelivery
+    @Transactional
+    @Modifying
+    @Query(value = "insert into correlation_chunks (correlation_id, chunk_number, recorded_at) " +
+            "values (:correlationId, :chunkNumber, :now) on conflict do nothing", nativeQuery = true)
+    int claim(@Param("correlationId") String correlationId, @Param("chunkNumber") int chunkNumber,
+              @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CorrelationChunkEntity c where c.correlationId = :correlationId")
+    int deleteByCorrelation(@Param("correlationId") String correlationId);
+}
@@ -0,0 +1,47 @@
+package org.qbitspark.nexgatenotificationserver.repository;
+
+import org.qbitspark.nexgatenotificationserver.entity.CorrelationProgressEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface CorrelationProgressRepository extends JpaRepository<CorrelationProgressEntity, String> {
+
+    // Atomic in the database, so concurrent nodes never lose each other's chunks
+    @Transactional
+    @Modifying
+    @Query("update CorrelationProgressEntity p " +
+            "set p.completedChunks = p.completedChunks + 1, " +
+            "    p.processedRecipients = p.processedRecipients + :recipients, " +
+            "    p.sent = p.sent + :sent, p.partial = p.partial + :partial, " +
+            "    p.failed = p.failed + :failed, p.skipped = p.skipped + :skipped, " +
+            "    p.deferred = p.deferred + :deferred " +
+            "where p.correlationId = :correlationId and p.completedAt is null")
+    int recordChunk(@Param("correlationId") String correlationId, @Param("recipients") int recipients,
+                    @Param("sent") long sent, @Param("partial") long partial,
+                    @Param("failed") long failed, @Param("skipped") long skipped,
+                    @Param("deferred") long deferred);
+
+    // A redelivered fan-out keeps the row (and counts) its first delivery created
+    @Transactional
+    @Modifying
+    @Query(value = "insert into correlation_progress (correlation_id, event_id, type, total_recipients, total_chunks, " +
+            "completed_chunks, processed_recipients, sent, partial, failed, skipped, deferred, created_at) " +
+            "values (:correlationId, :eventId, :type, :totalRecipients, :totalChunks, 0, 0, 0, 0, 0, 0, 0, :now) " +
+            "on conflict (correlation_id) do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("correlationId") String correlationId, @Param("eventId") String eventId,
+                       @Param("type") String type, @Param("totalRecipients") int totalRecipients,
+                       @Param("totalChunks") int totalChunks, @Param("now") LocalDateTime now);
+
+    // Succeeds (returns 1) for exactly one caller: whoever finishes the last chunk
+    @Transactional
+    @Modifying
+    @Query("update CorrelationProgressEntity p set p.completedAt = :now " +
+            "where p.correlationId = :correlationId " +
+            "and p.completedAt is null and p.completedChunks >= p.totalChunks")
+    int markCompleted(@Param("correlationId") String correlationId, @Param("now") LocalDateTime now);
+}
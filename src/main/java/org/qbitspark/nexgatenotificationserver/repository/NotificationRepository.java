@@ -1,10 +1,40 @@
 package org.qbitspark.nexgatenotificationserver.repository;
 
+import jakarta.persistence.LockModeType;
 import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface NotificationRepository extends JpaRepository<NotificationEntity, UUID> {
-}
\ No newline at end of file
+
+    // Row lock so concurrent channel retries of the same notification don't lose updates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from NotificationEntity n where n.id = :id")
+    Optional<NotificationEntity> findByIdForUpdate(@Param("id") UUID id);
+
+    // Rows left in PROCESSING by a node that died mid-batch. SKIP LOCKED lets several
+    // nodes recover at once without claiming the same rows. Rows whose channel mask isn't
+    // backfilled yet (ChannelMaskMigration) wait for it.
+    @Query(value = "select * from notifications where status = 'PROCESSING' and created_at < :cutoff " +
+            "and channel_mask is not null " +
+            "order by created_at limit :limit for update skip locked", nativeQuery = true)
+    List<NotificationEntity> findStaleProcessingForUpdate(@Param("cutoff") LocalDateTime cutoff,
+                                                          @Param("limit") int limit);
+
+    // Served by idx_notifications_failed (partial on failed_channel_mask <> 0), so it only
+    // touches failed rows: pass NotificationChannel.bit() for one channel, or -1 for any
+    @Query(value = "select * from notifications where failed_channel_mask <> 0 " +
+            "and failed_channel_mask & :channelBits <> 0 and created_at >= :since " +
+            "order by created_at desc limit :limit", nativeQuery = true)
+    List<NotificationEntity> findFailedSince(@Param("channelBits") int channelBits,
+                                             @Param("since") LocalDateTime since,
+                                             @Param("limit") int limit);
+}
@@ -0,0 +1,44 @@
+package org.qbitspark.nexgatenotificationserver.repository;
+
+import org.qbitspark.nexgatenotificationserver.entity.ScheduledNotificationEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ScheduledNotificationRepository extends JpaRepository<ScheduledNotificationEntity, Long> {
+
+    // Oldest due rows first; SKIP LOCKED lets every node poll at once without claiming the
+    // same rows or waiting on each other
+    @Query(value = "select * from scheduled_notifications where status = 'PENDING' and send_at <= :now " +
+            "order by send_at limit :limit for update skip locked", nativeQuery = true)
+    List<ScheduledNotificationEntity> findDueForUpdate(@Param("now") Instant now, @Param("limit") int limit);
+
+    // Claims of a node that died before delivering go back to PENDING, or to FAILED once they
+    // have been claimed maxAttempts times
+    @Transactional
+    @Modifying
+    @Query(value = "update scheduled_notifications set claimed_at = null, " +
+            "status = case when attempts >= :maxAttempts then 'FAILED' else 'PENDING' end " +
+            "where status = 'CLAIMED' and claimed_at < :cutoff", nativeQuery = true)
+    int releaseStaleClaims(@Param("cutoff") Instant cutoff, @Param("maxAttempts") int maxAttempts);
+
+    // Rows of a batch that failed, the same way
+    @Transactional
+    @Modifying
+    @Query(value = "update scheduled_notifications set claimed_at = null, " +
+            "status = case when attempts >= :maxAttempts then 'FAILED' else 'PENDING' end " +
+            "where status = 'CLAIMED' and id in (:ids)", nativeQuery = true)
+    int releaseFailed(@Param("ids") List<Long> ids, @Param("maxAttempts") int maxAttempts);
+
+    // Rows claimed but never dispatched (the executor was full): back, without using an attempt
+    @Transactional
+    @Modifying
+    @Query(value = "update scheduled_notifications set status = 'PENDING', claimed_at = null, " +
+            "attempts = attempts - 1 where status = 'CLAIMED' and id in (:ids)", nativeQuery = true)
+    int unclaim(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,219 @@
+package org.qbitspark.nexgatenotificationserver.service.adaptive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelBulkheads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD tuning of each channel's bulkhead threads, and of batch size and batch concurrency
+ * (notificationExecutor core threads).
+ *
+ * Every interval-ms it looks at the provider calls completed since the last tick. A channel
+ * with at least min-samples calls over max-error-rate errors or over target-latency-ms mean
+ * latency is congested:
+ * - a congested channel's bulkhead threads are multiplied by decrease-factor (at least one), so
+ *   only its own sends back off; a channel with sends queued and no congestion gets one thread
+ *   back, up to its configured count
+ * - batch size and concurrency are multiplied by decrease-factor only when every channel with
+ *   enough samples is congested, i.e. the trouble is not one provider; with no channel
+ *   congested and batches waiting in the executor queue, batch size grows by batch-size-step
+ *   and concurrency by one thread; otherwise they hold
+ *
+ * Latency is provider time only (see recordSend). Batch knobs stay within their min/max
+ * bounds; max-concurrency can't exceed the executor's max pool size. Disabled, batchSize() is
+ * notification.batch.size and neither executor nor bulkheads are touched. Decisions are
+ * exposed as notification.adaptive.{batch-size,concurrency,queue-depth,adjustments,channel-threads}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AdaptiveBatchController {
+
+    public enum Decision { INCREASE, DECREASE, HOLD }
+
+    private final ThreadPoolTaskExecutor notificationExecutor;
+    private final ChannelBulkheads bulkheads;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.adaptive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${notification.batch.size:15}")
+    private int initialBatchSize;
+
+    @Value("${notification.adaptive.min-batch-size:5}")
+    private int minBatchSize;
+
+    @Value("${notification.adaptive.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${notification.adaptive.batch-size-step:5}")
+    private int batchSizeStep;
+
+    @Value("${notification.adaptive.min-concurrency:2}")
+    private int minConcurrency;
+
+    // 0 = the executor's max pool size
+    @Value("${notification.adaptive.max-concurrency:0}")
+    private int maxConcurrency;
+
+    @Value("${notification.adaptive.decrease-factor:0.5}")
+    private double decreaseFactor;
+
+    @Value("${notification.adaptive.target-latency-ms:2000}")
+    private long targetLatencyMs;
+
+    @Value("${notification.adaptive.max-error-rate:0.1}")
+    private double maxErrorRate;
+
+    @Value("${notification.adaptive.min-samples:20}")
+    private int minSamples;
+
+    private final AtomicInteger batchSize = new AtomicInteger();
+    private final AtomicInteger concurrency = new AtomicInteger();
+    private final Map<NotificationChannel, SendWindow> windows = new EnumMap<>(NotificationChannel.class);
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+
+    @PostConstruct
+    void init() {
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            windows.put(channel, new SendWindow());
+        }
+        maxConcurrency = maxConcurrency <= 0
+                ? notificationExecutor.getMaxPoolSize()
+                : Math.min(maxConcurrency, notificationExecutor.getMaxPoolSize());
+        batchSize.set(clamp(initialBatchSize, minBatchSize, maxBatchSize));
+        concurrency.set(clamp(notificationExecutor.getCorePoolSize(), minConcurrency, maxConcurrency));
+
+        Gauge.builder("notification.adaptive.batch-size", batchSize, AtomicInteger::get)
+                .description("Recipients per batch").register(meterRegistry);
+        Gauge.builder("notification.adaptive.concurrency", concurrency, AtomicInteger::get)
+                .description("Batch executor core threads").register(meterRegistry);
+        Gauge.builder("notification.adaptive.queue-depth", notificationExecutor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Batches waiting for an executor thread").register(meterRegistry);
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            Gauge.builder("notification.adaptive.channel-threads", bulkheads, b -> b.limit(channel))
+                    .tag("channel", channel.name()).description("Bulkhead threads the channel may use").register(meterRegistry);
+        }
+        for (Decision decision : Decision.values()) {
+            decisions.put(decision, Counter.builder("notification.adaptive.adjustments")
+                    .tag("decision", decision.name()).register(meterRegistry));
+        }
+
+        if (enabled) {
+            notificationExecutor.setCorePoolSize(concurrency.get());
+            log.info("🎛️ Adaptive batching on: batch size {} [{}..{}], concurrency {} [{}..{}]",
+                    batchSize.get(), minBatchSize, maxBatchSize, concurrency.get(), minConcurrency, maxConcurrency);
+        }
+    }
+
+    /** Recipients per batch to use right now. */
+    public int batchSize() {
+        return enabled ? batchSize.get() : initialBatchSize;
+    }
+
+    /**
+     * Outcome and duration of one provider call, measured by ChannelSender once it holds a
+     * provider slot: time queued for a bulkhead thread or a slot is not latency. A call
+     * interrupted at its deadline counts with the time it took.
+     */
+    public void recordSend(NotificationChannel channel, long elapsedNanos, boolean success) {
+        SendWindow window = windows.get(channel);
+        window.count.increment();
+        window.nanos.add(elapsedNanos);
+        if (!success) {
+            window.errors.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.adaptive.interval-ms:5000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+
+        int sampled = 0;
+        int congested = 0;
+        for (Map.Entry<NotificationChannel, SendWindow> entry : windows.entrySet()) {
+            NotificationChannel channel = entry.getKey();
+            SendWindow window = entry.getValue();
+            long count = window.count.sumThenReset();
+            long errors = window.errors.sumThenReset();
+            long nanos = window.nanos.sumThenReset();
+            if (count >= minSamples) {
+                sampled++;
+                double errorRate = (double) errors / count;
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(nanos / count);
+                if (errorRate > maxErrorRate || latencyMs > targetLatencyMs) {
+                    congested++;
+                    setChannelThreads(channel, (int) (bulkheads.limit(channel) * decreaseFactor),
+                            latencyMs + "ms / " + Math.round(errorRate * 100) + "% errors");
+                    continue;
+                }
+            }
+            if (bulkheads.queued(channel) > 0 && bulkheads.limit(channel) < bulkheads.capacity(channel)) {
+                setChannelThreads(channel, bulkheads.limit(channel) + 1, bulkheads.queued(channel) + " queued");
+            }
+        }
+
+        int queueDepth = notificationExecutor.getThreadPoolExecutor().getQueue().size();
+        int oldBatchSize = batchSize.get();
+        int oldConcurrency = concurrency.get();
+        Decision decision;
+        if (sampled > 0 && congested == sampled) {
+            decision = Decision.DECREASE;
+            batchSize.set(clamp((int) (oldBatchSize * decreaseFactor), minBatchSize, maxBatchSize));
+            concurrency.set(clamp((int) (oldConcurrency * decreaseFactor), minConcurrency, maxConcurrency));
+        } else if (congested == 0 && queueDepth > 0) {
+            decision = Decision.INCREASE;
+            batchSize.set(clamp(oldBatchSize + batchSizeStep, minBatchSize, maxBatchSize));
+            concurrency.set(clamp(oldConcurrency + 1, minConcurrency, maxConcurrency));
+        } else {
+            decision = Decision.HOLD;
+        }
+        decisions.get(decision).increment();
+
+        if (concurrency.get() != oldConcurrency) {
+            notificationExecutor.setCorePoolSize(concurrency.get());
+        }
+        if (batchSize.get() != oldBatchSize || concurrency.get() != oldConcurrency) {
+            log.info("🎛️ Adaptive {}: batch size {} → {}, concurrency {} → {} (queue {}, {}/{} channels congested)",
+                    decision, oldBatchSize, batchSize.get(), oldConcurrency, concurrency.get(), queueDepth,
+                    congested, sampled);
+        }
+    }
+
+    private void setChannelThreads(NotificationChannel channel, int threads, String reason) {
+        int old = bulkheads.limit(channel);
+        bulkheads.setLimit(channel, threads);
+        if (bulkheads.limit(channel) != old) {
+            log.info("🎛️ Adaptive {} threads {} → {} ({})", channel, old, bulkheads.limit(channel), reason);
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static class SendWindow {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+}
@@ -2,24 +2,30 @@ package org.qbitspark.nexgatenotificationserver.service.batch;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.qbitspark.nexgatenotificationserver.dto.EmailResult;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
 import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
 import org.qbitspark.nexgatenotificationserver.dto.Recipient;
 import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
-import org.qbitspark.nexgatenotificationserver.repository.NotificationRepository;
-import org.qbitspark.nexgatenotificationserver.service.channel.EmailService;
-import org.qbitspark.nexgatenotificationserver.service.channel.InAppService;
-import org.qbitspark.nexgatenotificationserver.service.channel.SmsService;
-import org.qbitspark.nexgatenotificationserver.service.channel.PushService;
-import org.springframework.scheduling.annotation.Async;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelBulkheads;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelSender;
+import org.qbitspark.nexgatenotificationserver.service.idempotency.DeliveryIdempotencyService;
+import org.qbitspark.nexgatenotificationserver.service.progress.CorrelationProgressService;
+import org.qbitspark.nexgatenotificationserver.service.retry.ChannelRetryService;
+import org.qbitspark.nexgatenotificationserver.service.status.StatusWriteBehind;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -27,14 +33,18 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class NotificationBatchProcessor {
 
-    private final NotificationRepository notificationRepository;
-    private final EmailService emailService;
-    private final SmsService smsService;
-    private final PushService pushService;
-    private final InAppService inAppService;
-
-    @Async("notificationExecutor")
-    public CompletableFuture<Void> processBatch(
+    private final NotificationBatchWriter batchWriter;
+    private final ChannelSender channelSender;
+    private final ChannelBulkheads bulkheads;
+    private final ChannelRetryService retryService;
+    private final DeliveryIdempotencyService idempotencyService;
+    private final CorrelationProgressService progressService;
+    private final StatusWriteBehind statusWriteBehind;
+
+    /**
+     * Runs on notificationExecutor; dispatched (with priority) by BatchDispatcher.
+     */
+    public void processBatch(
             String correlationId,
             int batchNumber,
             List<Recipient> recipients,
@@ -43,21 +53,77 @@ public class NotificationBatchProcessor {
         log.info("🔄 Processing batch #{} (correlationId: {}, recipients: {}, channels: {})",
                 batchNumber, correlationId, recipients.size(), event.getChannels());
 
+        List<DeliveryTask> tasks = recipients.stream()
+                .map(recipient -> DeliveryTask.builder()
+                        .correlationId(correlationId)
+                        .event(event)
+                        .recipient(recipient)
+                        .build())
+                .toList();
+
+        deliver(batchNumber, tasks);
+    }
+
+    /**
+     * Batch entry point for deliveries that may span many events (batch-consumed queues).
+     */
+    public void processTasks(int batchNumber, List<DeliveryTask> tasks) {
+        log.info("🔄 Processing batch #{} ({} deliveries)", batchNumber, tasks.size());
+
+        deliver(batchNumber, tasks);
+    }
+
+    private void deliver(int batchNumber, List<DeliveryTask> batch) {
         long startTime = System.currentTimeMillis();
 
-        for (Recipient recipient : recipients) {
-            processRecipient(correlationId, recipient, event);
+        // Redelivered messages and publisher retries: drop what already went out
+        List<DeliveryTask> tasks = idempotencyService.withoutDelivered(batch);
+        if (tasks.size() < batch.size()) {
+            Set<DeliveryTask> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            kept.addAll(tasks);
+            batch.stream().filter(task -> !kept.contains(task)).forEach(progressService::recordSkipped);
+        }
+        if (tasks.isEmpty()) {
+            log.info("♻️ Batch #{} was already delivered, nothing to send", batchNumber);
+            return;
+        }
+
+        // Persist the whole batch in PROCESSING state with a few multi-row inserts
+        List<NotificationEntity> notifications = tasks.stream().map(this::toEntity).toList();
+        batchWriter.insertProcessing(notifications);
+        log.info("💾 Saved {} notifications for batch #{}", notifications.size(), batchNumber);
+
+        // Claim every delivery in one round trip; one a concurrent copy of the event holds is
+        // not sent here
+        List<String> keys = new ArrayList<>();
+        for (DeliveryTask task : tasks) {
+            for (NotificationChannel channel : task.getEvent().getChannels()) {
+                keys.add(idempotencyService.key(task.getEvent(), task.getRecipient(), channel));
+            }
         }
+        Set<String> claimed = idempotencyService.reserve(keys);
+
+        List<Runnable> retries = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            DeliveryTask task = tasks.get(i);
+            NotificationEntity notification = notifications.get(i);
+            processRecipient(task, notification, claimed, retries);
+        }
+
+        // Final statuses go out with the status writer's next bulk update; retries only after
+        // that, so a quick retry can't be overwritten by this batch
+        statusWriteBehind.record(notifications, () -> retries.forEach(Runnable::run));
 
         long duration = System.currentTimeMillis() - startTime;
         log.info("✅ Batch #{} completed in {}ms", batchNumber, duration);
-
-        return CompletableFuture.completedFuture(null);
     }
 
-    private void processRecipient(String correlationId, Recipient recipient, NotificationEvent event) {
-        NotificationEntity notification = NotificationEntity.builder()
-                .correlationId(correlationId)
+    private NotificationEntity toEntity(DeliveryTask task) {
+        Recipient recipient = task.getRecipient();
+        NotificationEvent event = task.getEvent();
+        return NotificationEntity.builder()
+                .correlationId(task.getCorrelationId())
+                .eventId(event.getEventId())
                 .userId(recipient.getUserId())
                 .recipientEmail(recipient.getEmail())
                 .recipientPhone(recipient.getPhone())
@@ -67,120 +133,114 @@ public class NotificationBatchProcessor {
                 .status(NotificationStatus.PROCESSING)
                 .templateData((Map<String, Object>) event.getData())
                 .build();
+    }
 
-        notification = notificationRepository.save(notification);
-        log.info("💾 Saved notification {} for user {} (channels: {})",
-                notification.getId(), recipient.getUserId(), event.getChannels());
+    /**
+     * Adds the retries of failed channels, and of channels deferred for lack of quota, to
+     * {@code retries}.
+     */
+    private void processRecipient(DeliveryTask task, NotificationEntity notification, Set<String> claimed,
+                                  List<Runnable> retries) {
+        Recipient recipient = task.getRecipient();
+        NotificationEvent event = task.getEvent();
+
+        // Start every channel at once on its own bulkhead, so the recipient takes as long as
+        // its slowest channel; a send still running at its channel's deadline counts as failed
+        Map<NotificationChannel, CompletableFuture<Boolean>> sends = new EnumMap<>(NotificationChannel.class);
+        Map<NotificationChannel, String> keys = new EnumMap<>(NotificationChannel.class);
+        Set<NotificationChannel> deferred = EnumSet.noneOf(NotificationChannel.class);
+        for (NotificationChannel channel : event.getChannels()) {
+            String key = idempotencyService.key(event, recipient, channel);
+            if (key != null && !claimed.contains(key)) {
+                // Being sent by a copy of this event elsewhere; the retry finds out how that went
+                log.info("♻️ {} of event {} to {} is being sent elsewhere, checking again later",
+                        channel, event.getEventId(), recipient.getUserId());
+                sends.put(channel, CompletableFuture.completedFuture(false));
+                continue;
+            }
+            // The token comes first, so waiting for quota holds neither a bulkhead thread nor a
+            // provider slot; a send still without one is deferred, not failed
+            if (channelSender.hasAddress(channel, recipient) && !channelSender.acquire(channel)) {
+                if (key != null) {
+                    idempotencyService.release(key);
+                }
+                if (retryService.isRetryable(channel, recipient)) {
+                    deferred.add(channel);
+                } else {
+                    sends.put(channel, CompletableFuture.completedFuture(false));
+                }
+                continue;
+            }
+            if (key != null) {
+                keys.put(channel, key);
+            }
+            sends.put(channel, bulkheads.submit(channel, () -> send(channel, key, recipient, event)));
+        }
 
         // Track results per channel
         Map<NotificationChannel, Boolean> channelResults = new HashMap<>();
+        sends.forEach((channel, send) -> channelResults.put(channel, settle(keys.get(channel), send.join())));
 
-        // Send via all requested channels
-        for (NotificationChannel channel : event.getChannels()) {
-            boolean success = sendViaChannel(channel, recipient, event);
-            channelResults.put(channel, success);
-        }
-
-        // Determine final status
-        NotificationStatus finalStatus = determineFinalStatus(channelResults);
+        NotificationStatus finalStatus = determineFinalStatus(channelResults, deferred);
         notification.setStatus(finalStatus);
+        progressService.recordDelivery(task, finalStatus, channelResults);
+
+        // Retry failed channels individually; channels that succeeded are never re-sent
+        channelResults.forEach((channel, success) -> {
+            if (success) {
+                return;
+            }
+            notification.getFailedChannels().add(channel);
+            if (retryService.isRetryable(channel, recipient)) {
+                retries.add(() -> retryService.scheduleRetry(notification, task, channel));
+            }
+        });
+        // Outstanding like failed channels: their retry clears them once delivered, or settles
+        // the row if they run out of attempts
+        notification.getFailedChannels().addAll(deferred);
+        deferred.forEach(channel -> retries.add(() -> retryService.scheduleDeferred(notification, task, channel)));
 
         if (finalStatus == NotificationStatus.SENT || finalStatus == NotificationStatus.PARTIAL) {
             notification.setSentAt(LocalDateTime.now());
         }
 
-        notificationRepository.save(notification);
-
         // Log summary
         logChannelResults(recipient, channelResults, finalStatus);
-    }
-
-    private boolean sendViaChannel(NotificationChannel channel, Recipient recipient, NotificationEvent event) {
-        return switch (channel) {
-            case EMAIL -> sendEmail(recipient, event);
-            case SMS -> sendSms(recipient, event);
-            case PUSH -> sendPush(recipient, event);
-            case IN_APP -> sendInApp(recipient, event);
-            case WEBHOOK -> sendWebhook(recipient, event);
-            case CHAT_APP -> sendChatApp(recipient, event);
-        };
-    }
-
-    private boolean sendEmail(Recipient recipient, NotificationEvent event) {
-        if (recipient.getEmail() == null || recipient.getEmail().isBlank()) {
-            log.warn("📧 ⚠️ No email address for user {}, skipping EMAIL channel", recipient.getUserId());
-            return false;
+        if (!deferred.isEmpty()) {
+            log.info("🚦 Deferred {} for {} until their providers have quota", deferred, recipient.getUserId());
         }
-
-        EmailResult result = emailService.send(
-                event.getType(),
-                recipient.getEmail(),
-                (Map<String, Object>) event.getData()
-        );
-        return result.isSuccess();
     }
 
-    private boolean sendSms(Recipient recipient, NotificationEvent event) {
-        if (recipient.getPhone() == null || recipient.getPhone().isBlank()) {
-            log.warn("📱 ⚠️ No phone number for user {}, skipping SMS channel", recipient.getUserId());
-            return false;
+    // Marked the moment the send succeeds, on the send's own thread, so neither a crash later in
+    // the batch nor the retry of a send that went through after its deadline sends it again
+    private boolean send(NotificationChannel channel, String key, Recipient recipient, NotificationEvent event) {
+        boolean success = channelSender.send(channel, recipient, event);
+        if (success && key != null) {
+            idempotencyService.markDelivered(List.of(key));
         }
-
-        return smsService.send(
-                event.getType(),
-                recipient.getPhone(),
-                (Map<String, Object>) event.getData()
-        );
+        return success;
     }
 
-    private boolean sendPush(Recipient recipient, NotificationEvent event) {
-        if (recipient.getUserId() == null || recipient.getUserId().isBlank()) {
-            log.warn("🔔 ⚠️ No userId for recipient, skipping PUSH channel");
-            return false;
+    // Released when the send failed or missed its deadline, so the channel's retry can claim it;
+    // release leaves a key alone once a late send has marked it delivered
+    private boolean settle(String key, boolean success) {
+        if (!success && key != null) {
+            idempotencyService.release(key);
         }
-
-        return pushService.send(
-                event.getType(),
-                recipient.getUserId(),
-                (Map<String, Object>) event.getData()
-        );
-    }
-
-
-    private boolean sendInApp(Recipient recipient, NotificationEvent event) {
-        if (recipient.getUserId() == null || recipient.getUserId().isBlank()) {
-            log.warn("📬 ⚠️ No userId for recipient, skipping IN_APP channel");
-            return false;
-        }
-
-        return inAppService.send(
-                event.getType(),
-                recipient.getUserId(),
-                (Map<String, Object>) event.getData()
-        );
-    }
-
-
-    private boolean sendWebhook(Recipient recipient, NotificationEvent event) {
-        log.info("🪝 [MOCK] Webhook would be called for userId: {} (type: {})",
-                recipient.getUserId(), event.getType());
-        // TODO: Implement webhook service
-        return true;
-    }
-
-    private boolean sendChatApp(Recipient recipient, NotificationEvent event) {
-        log.info("💬 [MOCK] Chat app message would be sent to userId: {} (type: {})",
-                recipient.getUserId(), event.getType());
-        // TODO: Implement chat app service
-        return true;
+        return success;
     }
 
-    private NotificationStatus determineFinalStatus(Map<NotificationChannel, Boolean> channelResults) {
+    // Deferred channels haven't gone out yet, so they keep a recipient from counting as SENT; one
+    // whose every channel was deferred is still PENDING
+    private NotificationStatus determineFinalStatus(Map<NotificationChannel, Boolean> channelResults,
+                                                    Set<NotificationChannel> deferred) {
         long successCount = channelResults.values().stream().filter(success -> success).count();
-        long totalCount = channelResults.size();
+        long totalCount = channelResults.size() + deferred.size();
 
         if (successCount == 0) {
-            return NotificationStatus.FAILED;
+            return channelResults.isEmpty() && !deferred.isEmpty()
+                    ? NotificationStatus.PENDING
+                    : NotificationStatus.FAILED;
         } else if (successCount == totalCount) {
             return NotificationStatus.SENT;
         } else {
@@ -0,0 +1,114 @@
+package org.qbitspark.nexgatenotificationserver.service.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes a batch's notification rows with a few multi-row statements instead of one JPA
+ * insert and update per recipient (plus one per channel row).
+ *
+ * insertProcessing() assigns ids and creates the rows in PROCESSING state; updateFinal()
+ * applies every final status and failed-channel mask in one UPDATE ... FROM (VALUES ...).
+ * The entities are not attached to any persistence context: later changes (retries,
+ * recovery) reload their rows by id as before.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationBatchWriter {
+
+    // Postgres caps a statement at 65535 bind parameters; 14 per notification row
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private static final String INSERT_NOTIFICATIONS = "insert into notifications (id, correlation_id, event_id, " +
+            "user_id, recipient_email, recipient_phone, recipient_name, type, channel_mask, failed_channel_mask, " +
+            "status, template_data, created_at, sent_at) values ";
+    private static final String NOTIFICATION_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, cast(? as jsonb), ?, ?)";
+
+    private static final String UPDATE_FINAL = "update notifications as n set status = v.status, sent_at = v.sent_at, " +
+            "failed_channel_mask = v.failed_channel_mask " +
+            "from (values %s) as v(id, status, sent_at, failed_channel_mask) where n.id = v.id";
+    private static final String STATUS_ROW =
+            "(cast(? as uuid), cast(? as varchar), cast(? as timestamp), cast(? as integer))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public void insertProcessing(List<NotificationEntity> notifications) {
+        LocalDateTime now = LocalDateTime.now();
+        for (NotificationEntity notification : notifications) {
+            notification.setId(UUID.randomUUID());
+            notification.setCreatedAt(now);
+        }
+
+        writeRows(INSERT_NOTIFICATIONS, NOTIFICATION_ROW, notifications, (notification, args) -> {
+            args.add(notification.getId());
+            args.add(notification.getCorrelationId());
+            args.add(notification.getEventId());
+            args.add(notification.getUserId());
+            args.add(notification.getRecipientEmail());
+            args.add(notification.getRecipientPhone());
+            args.add(notification.getRecipientName());
+            args.add(notification.getType() == null ? null : notification.getType().name());
+            args.add(NotificationChannel.mask(notification.getChannels()));
+            args.add(NotificationChannel.mask(notification.getFailedChannels()));
+            args.add(notification.getStatus() == null ? null : notification.getStatus().name());
+            args.add(toJson(notification));
+            args.add(notification.getCreatedAt());
+            args.add(notification.getSentAt());
+        });
+    }
+
+    @Transactional
+    public void updateFinal(List<NotificationEntity> notifications) {
+        for (int from = 0; from < notifications.size(); from += ROWS_PER_STATEMENT) {
+            List<NotificationEntity> chunk = notifications.subList(from, Math.min(from + ROWS_PER_STATEMENT, notifications.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (NotificationEntity notification : chunk) {
+                args.add(notification.getId().toString());
+                args.add(notification.getStatus().name());
+                args.add(notification.getSentAt());
+                args.add(NotificationChannel.mask(notification.getFailedChannels()));
+            }
+            String values = String.join(", ", Collections.nCopies(chunk.size(), STATUS_ROW));
+            jdbcTemplate.update(UPDATE_FINAL.formatted(values), args.toArray());
+        }
+    }
+
+    private <T> void writeRows(String insert, String row, List<T> items, BiConsumer<T, List<Object>> binder) {
+        for (int from = 0; from < items.size(); from += ROWS_PER_STATEMENT) {
+            List<T> chunk = items.subList(from, Math.min(from + ROWS_PER_STATEMENT, items.size()));
+            List<Object> args = new ArrayList<>();
+            chunk.forEach(item -> binder.accept(item, args));
+            jdbcTemplate.update(insert + String.join(", ", Collections.nCopies(chunk.size(), row)), args.toArray());
+        }
+    }
+
+    private String toJson(NotificationEntity notification) {
+        if (notification.getTemplateData() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(notification.getTemplateData());
+        } catch (JsonProcessingException e) {
+            // Template data arrived as JSON, so this only happens for values we put in ourselves
+            log.warn("⚠️ Could not serialize template data of notification {}: {}", notification.getId(), e.getMessage());
+            return null;
+        }
+    }
+}
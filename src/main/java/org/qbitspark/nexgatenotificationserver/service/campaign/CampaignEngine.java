@@ -0,0 +1,279 @@
+package org.qbitspark.nexgatenotificationserver.service.campaign;
+
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.CampaignDefinition;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.entity.CampaignEntity;
+import org.qbitspark.nexgatenotificationserver.enums.CampaignStatus;
+import org.qbitspark.nexgatenotificationserver.repository.CampaignRepository;
+import org.qbitspark.nexgatenotificationserver.service.campaign.source.RecipientSource;
+import org.qbitspark.nexgatenotificationserver.service.campaign.source.RecipientSourceFactory;
+import org.qbitspark.nexgatenotificationserver.service.orchestrator.NotificationOrchestrator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a campaign's audience through the regular batch pipeline. Each campaign runs on
+ * its own campaignExecutor thread, reading one page at a time: BatchDispatcher's
+ * backpressure and the send rate decide how fast pages are pulled, so the audience is
+ * never held in memory.
+ *
+ * The source position is checkpointed every checkpoint-every pages, once all of those
+ * pages have been delivered; pausing, failing or restarting resumes from the checkpoint.
+ *
+ * One node runs a campaign at a time: it holds a lease on the campaigns row, renewed after
+ * every page. Pause and resume are status changes in the database, so they work from any
+ * node; the owner sees a pause at its next renewal, finishes the pages in flight,
+ * checkpoints and lets go. RUNNING campaigns without a live lease (owner stopped or
+ * crashed) are adopted by the next node that polls with a free campaign thread.
+ *
+ * Every page goes out under the eventId campaign:<campaignId>, so recipients sent after the
+ * last checkpoint (or before the first one, when the position is unknown) are skipped on
+ * resume by their delivery marks instead of being sent again.
+ */
+@Slf4j
+@Service
+public class CampaignEngine {
+
+    private static final List<CampaignStatus> RESUMABLE = List.of(CampaignStatus.PAUSED, CampaignStatus.FAILED);
+
+    private final CampaignRepository campaignRepository;
+    private final RecipientSourceFactory sourceFactory;
+    private final NotificationOrchestrator orchestrator;
+    private final ThreadPoolTaskExecutor campaignExecutor;
+
+    // Lease owner name of this node
+    private final String nodeId = UUID.randomUUID().toString();
+    // Campaigns queued or running on this node
+    private final Set<String> local = ConcurrentHashMap.newKeySet();
+
+    @Value("${notification.campaign.rate-per-second:200}")
+    private int defaultRatePerSecond;
+
+    @Value("${notification.campaign.page-size:500}")
+    private int pageSize;
+
+    @Value("${notification.campaign.checkpoint-every:10}")
+    private int checkpointEvery;
+
+    // Renewed after every page; a node that stops renewing loses the campaign after this long
+    @Value("${notification.campaign.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public CampaignEngine(
+            CampaignRepository campaignRepository,
+            RecipientSourceFactory sourceFactory,
+            NotificationOrchestrator orchestrator,
+            @Qualifier("campaignExecutor") ThreadPoolTaskExecutor campaignExecutor) {
+        this.campaignRepository = campaignRepository;
+        this.sourceFactory = sourceFactory;
+        this.orchestrator = orchestrator;
+        this.campaignExecutor = campaignExecutor;
+    }
+
+    public void start(CampaignDefinition definition) {
+        if (campaignRepository.existsById(definition.getCampaignId())) {
+            log.warn("⚠️ Campaign {} already exists, ignoring duplicate start", definition.getCampaignId());
+            return;
+        }
+
+        CampaignEntity campaign = campaignRepository.save(CampaignEntity.builder()
+                .campaignId(definition.getCampaignId())
+                .status(CampaignStatus.RUNNING)
+                .definition(definition)
+                .build());
+
+        log.info("📣 Starting campaign {} ({}) from {} {}", campaign.getCampaignId(), definition.getType(),
+                definition.getSourceType(), definition.getSourceLocation());
+        launch(campaign.getCampaignId());
+    }
+
+    /**
+     * Marks the campaign PAUSED; whichever node runs it stops after its current page and
+     * saves a fresh checkpoint.
+     */
+    public Optional<CampaignEntity> pause(String campaignId) {
+        if (campaignRepository.transition(campaignId, List.of(CampaignStatus.RUNNING),
+                CampaignStatus.PAUSED, LocalDateTime.now()) == 1) {
+            log.info("⏸️ Pause requested for campaign {}", campaignId);
+        }
+        return campaignRepository.findById(campaignId);
+    }
+
+    public Optional<CampaignEntity> resume(String campaignId) {
+        if (campaignRepository.transition(campaignId, RESUMABLE, CampaignStatus.RUNNING, LocalDateTime.now()) == 1) {
+            log.info("▶️ Resuming campaign {}", campaignId);
+            // Claimed here unless the node that paused it is still winding down; adopted then
+            launch(campaignId);
+        }
+        return campaignRepository.findById(campaignId);
+    }
+
+    public Optional<CampaignEntity> find(String campaignId) {
+        return campaignRepository.findById(campaignId);
+    }
+
+    // Campaigns still RUNNING without a live lease were interrupted by a shutdown or crash
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        adoptUnowned();
+    }
+
+    @Scheduled(fixedDelayString = "${notification.campaign.adopt-interval-ms:30000}")
+    public void adoptUnowned() {
+        for (String campaignId : campaignRepository.findUnowned(CampaignStatus.RUNNING, LocalDateTime.now())) {
+            if (local.size() >= campaignExecutor.getMaxPoolSize()) {
+                return;  // left for a node with a free campaign thread
+            }
+            launch(campaignId);
+        }
+    }
+
+    private void launch(String campaignId) {
+        if (!local.add(campaignId)) {
+            log.debug("Campaign {} is already running on this node", campaignId);
+            return;
+        }
+        try {
+            campaignExecutor.execute(() -> run(campaignId));
+        } catch (RuntimeException e) {
+            local.remove(campaignId);
+            throw e;
+        }
+    }
+
+    private void run(String campaignId) {
+        try {
+            CampaignEntity campaign = campaignRepository.findById(campaignId).orElse(null);
+            if (campaign == null || campaignRepository.claim(campaignId, nodeId, CampaignStatus.RUNNING,
+                    LocalDateTime.now(), leaseUntil()) == 0) {
+                return;  // paused meanwhile, or another node got it
+            }
+            if (campaign.getStartedAt() != null) {
+                log.info("🔁 Campaign {} resumes from checkpoint {}{}", campaignId, campaign.getCheckpoint(),
+                        campaign.getCheckpoint() == null ? " (position unknown, delivered recipients are skipped)" : "");
+            }
+            run(campaign);
+        } finally {
+            local.remove(campaignId);
+        }
+    }
+
+    private void run(CampaignEntity campaign) {
+        String campaignId = campaign.getCampaignId();
+        CampaignDefinition definition = campaign.getDefinition();
+        int ratePerSecond = definition.getRatePerSecond() != null ? definition.getRatePerSecond() : defaultRatePerSecond;
+
+        List<CompletableFuture<Void>> window = new ArrayList<>();
+        int windowRecipients = 0;
+        long sentThisRun = 0;
+        long startNanos = System.nanoTime();
+        boolean held;
+
+        try (RecipientSource source = sourceFactory.open(definition, campaign.getCheckpoint())) {
+            // Renewing is also how a pause from any node is noticed
+            while (held = renew(campaignId)) {
+                List<Recipient> page = source.nextPage(pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                window.add(orchestrator.dispatchBatches(campaignId, toEvent(campaignId, definition, page)));
+                windowRecipients += page.size();
+                sentThisRun += page.size();
+
+                if (window.size() >= checkpointEvery) {
+                    checkpoint(campaign, source, window, windowRecipients);
+                    windowRecipients = 0;
+                }
+                pace(sentThisRun, startNanos, ratePerSecond);
+            }
+
+            CampaignStatus status = held ? CampaignStatus.COMPLETED : currentStatus(campaignId);
+            if (status != CampaignStatus.COMPLETED && status != CampaignStatus.PAUSED) {
+                // The lease went to another node, which carries on from its last checkpoint
+                log.warn("⚠️ Campaign {} was taken over by another node", campaignId);
+                return;
+            }
+            checkpoint(campaign, source, window, windowRecipients);
+            if (status == CampaignStatus.COMPLETED) {
+                campaignRepository.finish(campaignId, nodeId, CampaignStatus.COMPLETED, null, LocalDateTime.now());
+            } else {
+                campaignRepository.release(campaignId, nodeId);
+            }
+            log.info("{} Campaign {} {}: {} recipients sent so far",
+                    status == CampaignStatus.PAUSED ? "⏸️" : "🎉", campaignId, status, campaign.getSentRecipients());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Still RUNNING: another node (or this one after a restart) adopts it
+            campaignRepository.release(campaignId, nodeId);
+            log.warn("⚠️ Campaign {} interrupted at checkpoint {}", campaignId, campaign.getCheckpoint());
+        } catch (Exception e) {
+            campaignRepository.finish(campaignId, nodeId, CampaignStatus.FAILED, e.getMessage(), LocalDateTime.now());
+            log.error("❌ Campaign {} failed at checkpoint {}: {}", campaignId, campaign.getCheckpoint(), e.getMessage(), e);
+        }
+    }
+
+    private boolean renew(String campaignId) {
+        return campaignRepository.renew(campaignId, nodeId, CampaignStatus.RUNNING, leaseUntil()) == 1;
+    }
+
+    private CampaignStatus currentStatus(String campaignId) {
+        return campaignRepository.findById(campaignId)
+                .filter(campaign -> nodeId.equals(campaign.getOwner()))
+                .map(CampaignEntity::getStatus)
+                .orElse(null);
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusSeconds(leaseSeconds);
+    }
+
+    // Waits for every page since the last checkpoint, then moves the checkpoint past them
+    private void checkpoint(CampaignEntity campaign, RecipientSource source,
+                            List<CompletableFuture<Void>> window, int windowRecipients) {
+        CompletableFuture.allOf(window.toArray(new CompletableFuture[0])).join();
+        window.clear();
+
+        campaign.setCheckpoint(source.checkpoint());
+        campaign.setSentRecipients(campaign.getSentRecipients() + windowRecipients);
+        campaignRepository.saveProgress(campaign.getCampaignId(), nodeId, campaign.getCheckpoint(),
+                campaign.getSentRecipients(), LocalDateTime.now());
+    }
+
+    private void pace(long sent, long startNanos, int ratePerSecond) throws InterruptedException {
+        long dueNanos = startNanos + TimeUnit.SECONDS.toNanos(sent) / ratePerSecond;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private NotificationEvent toEvent(String campaignId, CampaignDefinition definition, List<Recipient> page) {
+        return NotificationEvent.builder()
+                .eventId("campaign:" + campaignId)
+                .type(definition.getType())
+                .recipients(page)
+                .channels(definition.getChannels())
+                .priority(definition.getPriority())
+                .data(definition.getData())
+                .build();
+    }
+}
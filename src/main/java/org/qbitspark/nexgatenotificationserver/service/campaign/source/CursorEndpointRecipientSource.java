@@ -0,0 +1,69 @@
+package org.qbitspark.nexgatenotificationserver.service.campaign.source;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.api.client.ApiClientGate;
+import org.qbitspark.nexgatenotificationserver.api.payload.ApiResponse;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Pages through {@code GET <url>?cursor=<c>&limit=<n>}, which answers
+ * {@code { "recipients": [...], "nextCursor": "..." }}; a null nextCursor ends the audience.
+ * The checkpoint is the cursor of the next page.
+ */
+public class CursorEndpointRecipientSource implements RecipientSource {
+
+    private final ApiClientGate apiClientGate;
+    private final String url;
+    private String cursor;
+    private boolean exhausted;
+
+    public CursorEndpointRecipientSource(ApiClientGate apiClientGate, String url, String checkpoint) {
+        this.apiClientGate = apiClientGate;
+        this.url = url;
+        this.cursor = checkpoint;
+    }
+
+    @Override
+    public List<Recipient> nextPage(int max) throws IOException {
+        if (exhausted) {
+            return List.of();
+        }
+
+        UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(url).queryParam("limit", max);
+        if (cursor != null) {
+            uri.queryParam("cursor", cursor);
+        }
+
+        ApiResponse<CursorPage> response = apiClientGate.get(uri.toUriString(), null, CursorPage.class);
+        if (!response.isSuccess() || response.getData() == null) {
+            throw new IOException("Recipient cursor request failed: " + response.getErrorMessage());
+        }
+
+        CursorPage page = response.getData();
+        cursor = page.getNextCursor();
+        exhausted = cursor == null;
+        return page.getRecipients() != null ? page.getRecipients() : List.of();
+    }
+
+    @Override
+    public String checkpoint() {
+        return cursor;
+    }
+
+    @Override
+    public void close() {
+        // Nothing held between requests
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class CursorPage {
+        private List<Recipient> recipients;
+        private String nextCursor;
+    }
+}
@@ -0,0 +1,55 @@
+package org.qbitspark.nexgatenotificationserver.service.campaign.source;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One Recipient JSON object per line. The checkpoint is the number of lines consumed.
+ */
+public class NdjsonFileRecipientSource implements RecipientSource {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long linesRead;
+
+    public NdjsonFileRecipientSource(Path file, ObjectMapper objectMapper, String checkpoint) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+
+        long skip = checkpoint != null ? Long.parseLong(checkpoint) : 0;
+        while (linesRead < skip && reader.readLine() != null) {
+            linesRead++;
+        }
+    }
+
+    @Override
+    public List<Recipient> nextPage(int max) throws IOException {
+        List<Recipient> page = new ArrayList<>(max);
+        String line;
+        while (page.size() < max && (line = reader.readLine()) != null) {
+            linesRead++;
+            if (!line.isBlank()) {
+                page.add(objectMapper.readValue(line, Recipient.class));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public String checkpoint() {
+        return String.valueOf(linesRead);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,26 @@
+package org.qbitspark.nexgatenotificationserver.service.campaign.source;
+
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streams a campaign audience a page at a time, so only the pages in flight are on heap.
+ */
+public interface RecipientSource extends AutoCloseable {
+
+    /**
+     * @return up to {@code max} recipients, empty once the source is exhausted
+     */
+    List<Recipient> nextPage(int max) throws IOException;
+
+    /**
+     * Opaque position just after the last page returned; opening the source again with it
+     * continues from the next recipient.
+     */
+    String checkpoint();
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,27 @@
+package org.qbitspark.nexgatenotificationserver.service.campaign.source;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.qbitspark.nexgatenotificationserver.api.client.ApiClientGate;
+import org.qbitspark.nexgatenotificationserver.dto.CampaignDefinition;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Component
+@RequiredArgsConstructor
+public class RecipientSourceFactory {
+
+    private final ObjectMapper objectMapper;
+    private final ApiClientGate apiClientGate;
+
+    public RecipientSource open(CampaignDefinition definition, String checkpoint) throws IOException {
+        return switch (definition.getSourceType()) {
+            case NDJSON_FILE -> new NdjsonFileRecipientSource(
+                    Path.of(definition.getSourceLocation()), objectMapper, checkpoint);
+            case CURSOR_ENDPOINT -> new CursorEndpointRecipientSource(
+                    apiClientGate, definition.getSourceLocation(), checkpoint);
+        };
+    }
+}
@@ -0,0 +1,326 @@
+package org.qbitspark.nexgatenotificationserver.service.channel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.config.AsyncConfig;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One bounded executor per channel, so a slow provider only ties up its own threads and
+ * queue. When a channel's bulkhead is full its sends fail immediately (and go to the retry
+ * queues) instead of piling up on the batch threads. Callers submit all of a recipient's
+ * channels before waiting on any of them; submitting and joining one at a time would leave the
+ * batch thread waiting on each provider in turn.
+ *
+ * Sized by notification.bulkhead.<channel>.threads / .queue-capacity, falling back to
+ * notification.bulkhead.threads / .queue-capacity. Every send also has a deadline
+ * (notification.bulkhead.<channel>.deadline-ms, default notification.bulkhead.deadline-ms),
+ * counted from when it starts running: at it the send's future completes with false and the
+ * provider call is interrupted. A send waits at most one more deadline for a thread before it
+ * is given up, so a caller hears back within twice the deadline whatever the provider does.
+ * How soon an interrupted call actually returns is up to the provider client (e.g. its socket
+ * timeouts); a caller that must not lose a late success records it from inside the send.
+ * AdaptiveBatchController narrows a struggling channel's threads below
+ * the configured count (setLimit) and widens them again as it recovers. Exposed per channel as
+ * notification.bulkhead.{active,queued,saturation,rejected,deadline-exceeded}.
+ *
+ * With notification.executor.mode=virtual the batches run on virtual threads, and so do the
+ * sends: each gets its own virtual thread, and the channel's thread count becomes a semaphore
+ * of that many concurrent sends. A full channel then makes the submitting batch wait for a
+ * slot (backpressure, nothing rejected, queue-capacity unused) rather than failing its sends
+ * into the retry queues; "queued" counts the batches waiting. ProviderConcurrencyLimiter still
+ * caps the provider calls themselves in either mode.
+ */
+@Slf4j
+@Component
+public class ChannelBulkheads implements DisposableBean {
+
+    private final Map<NotificationChannel, ThreadPoolTaskExecutor> executors = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, ChannelPermits> permits = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, Counter> rejections = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, Counter> deadlineMisses = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, Long> deadlinesMs = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, Integer> capacities = new EnumMap<>(NotificationChannel.class);
+    private final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulkhead-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Starts a thread per send in virtual mode; null for the per-channel pools
+    private final TaskExecutor sendThreads;
+
+    @Autowired
+    public ChannelBulkheads(Environment environment, MeterRegistry meterRegistry) {
+        this(environment, meterRegistry,
+                AsyncConfig.useVirtualThreads(environment.getProperty("notification.executor.mode", "platform"))
+                        ? new VirtualThreadTaskExecutor("bulkhead-vt-")
+                        : null);
+    }
+
+    ChannelBulkheads(Environment environment, MeterRegistry meterRegistry, TaskExecutor sendThreads) {
+        this.sendThreads = sendThreads;
+        int defaultThreads = environment.getProperty("notification.bulkhead.threads", Integer.class, 10);
+        int defaultQueueCapacity = environment.getProperty("notification.bulkhead.queue-capacity", Integer.class, 200);
+        long defaultDeadlineMs = environment.getProperty("notification.bulkhead.deadline-ms", Long.class, 10_000L);
+
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            String prefix = "notification.bulkhead." + channel.name().toLowerCase();
+            int threads = environment.getProperty(prefix + ".threads", Integer.class, defaultThreads);
+            int queueCapacity = environment.getProperty(prefix + ".queue-capacity", Integer.class, defaultQueueCapacity);
+            long deadlineMs = environment.getProperty(prefix + ".deadline-ms", Long.class, defaultDeadlineMs);
+            deadlinesMs.put(channel, deadlineMs);
+            capacities.put(channel, threads);
+
+            Tags tags = Tags.of("channel", channel.name());
+            rejections.put(channel, Counter.builder("notification.bulkhead.rejected")
+                    .tags(tags).description("Sends failed fast because the bulkhead was full").register(meterRegistry));
+            deadlineMisses.put(channel, Counter.builder("notification.bulkhead.deadline-exceeded")
+                    .tags(tags).description("Sends failed at the channel deadline").register(meterRegistry));
+
+            if (sendThreads != null) {
+                ChannelPermits slots = new ChannelPermits(threads);
+                permits.put(channel, slots);
+                Gauge.builder("notification.bulkhead.active", slots, ChannelPermits::inUse)
+                        .tags(tags).description("Sends running").register(meterRegistry);
+                Gauge.builder("notification.bulkhead.queued", slots, Semaphore::getQueueLength)
+                        .tags(tags).description("Batches waiting for a send slot").register(meterRegistry);
+                Gauge.builder("notification.bulkhead.saturation", slots, p -> (double) p.inUse() / p.limit())
+                        .tags(tags).description("Share of the send slots in use, 1.0 = callers wait").register(meterRegistry);
+                log.info("🚧 {} bulkhead: {} concurrent sends on virtual threads, deadline {}ms",
+                        channel, threads, deadlineMs);
+                continue;
+            }
+
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(threads);
+            executor.setMaxPoolSize(threads);
+            executor.setQueueCapacity(queueCapacity);
+            executor.setThreadNamePrefix("bulkhead-" + channel.name().toLowerCase() + "-");
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(30);
+            executor.initialize();
+            executors.put(channel, executor);
+
+            Gauge.builder("notification.bulkhead.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                    .tags(tags).description("Sends running").register(meterRegistry);
+            Gauge.builder("notification.bulkhead.queued", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                    .tags(tags).description("Sends waiting for a thread").register(meterRegistry);
+            Gauge.builder("notification.bulkhead.saturation", executor,
+                            e -> (double) (e.getActiveCount() + e.getThreadPoolExecutor().getQueue().size())
+                                    / (e.getMaxPoolSize() + queueCapacity))
+                    .tags(tags).description("Share of the bulkhead in use, 1.0 = rejecting").register(meterRegistry);
+
+            log.info("🚧 {} bulkhead: {} threads, queue {}, deadline {}ms", channel, threads, queueCapacity, deadlineMs);
+        }
+    }
+
+    /**
+     * Runs {@code send} on the channel's bulkhead, failing it at the channel's deadline. In
+     * virtual mode this first waits for one of the channel's slots.
+     *
+     * @return completes with the send's result once it returns, or with false at the latest
+     *         at the deadline; false at once if the bulkhead was full or the wait for a slot was
+     *         interrupted
+     */
+    public CompletableFuture<Boolean> submit(NotificationChannel channel, BooleanSupplier send) {
+        long deadlineMs = deadlinesMs.get(channel);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (sendThreads != null) {
+            ChannelPermits slots = permits.get(channel);
+            try {
+                if (!slots.tryAcquire(deadlineMs, TimeUnit.MILLISECONDS)) {
+                    deadlineMisses.get(channel).increment();
+                    log.warn("⏱️ {} send waited {}ms for a slot, giving up on it", channel, deadlineMs);
+                    result.complete(false);
+                    return result;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("⚠️ Interrupted waiting for a {} bulkhead slot", channel);
+                result.complete(false);
+                return result;
+            }
+            sendThreads.execute(() -> {
+                try {
+                    run(channel, send, result);
+                } finally {
+                    slots.release();
+                }
+            });
+            return result;
+        }
+
+        // Whichever comes first: a thread picking the send up, or giving up on it
+        AtomicBoolean started = new AtomicBoolean();
+        ScheduledFuture<?> queueDeadline = deadlines.schedule(() -> {
+            if (started.compareAndSet(false, true)) {
+                deadlineMisses.get(channel).increment();
+                log.warn("⏱️ {} send waited {}ms for a thread, giving up on it", channel, deadlineMs);
+                result.complete(false);
+            }
+        }, deadlineMs, TimeUnit.MILLISECONDS);
+        try {
+            executors.get(channel).execute(() -> {
+                if (started.compareAndSet(false, true)) {
+                    queueDeadline.cancel(false);
+                    run(channel, send, result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queueDeadline.cancel(false);
+            rejections.get(channel).increment();
+            log.warn("🚧 {} bulkhead full, failing send fast", channel);
+            result.complete(false);
+        }
+        return result;
+    }
+
+    // Runs the send on the current thread; at the deadline completes result with false and
+    // interrupts the call
+    private void run(NotificationChannel channel, BooleanSupplier send, CompletableFuture<Boolean> result) {
+        long deadlineMs = deadlinesMs.get(channel);
+        RunningSend running = new RunningSend();
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> running.interrupt(() -> {
+            deadlineMisses.get(channel).increment();
+            log.warn("⏱️ {} send passed its {}ms deadline, failing it and interrupting the call", channel, deadlineMs);
+            result.complete(false);
+        }), deadlineMs, TimeUnit.MILLISECONDS);
+        boolean success = false;
+        try {
+            success = send.getAsBoolean();
+        } catch (RuntimeException e) {
+            log.error("❌ {} send threw: {}", channel, e.getMessage(), e);
+        } finally {
+            deadline.cancel(false);
+            if (running.finish()) {
+                // Don't leave the interrupt to the thread's next send
+                Thread.interrupted();
+                if (success) {
+                    log.warn("⏱️ {} send went through after its deadline had already failed it", channel);
+                }
+            } else {
+                result.complete(success);
+            }
+        }
+    }
+
+    /** Threads (in virtual mode, concurrent sends) the channel may use right now. */
+    public int limit(NotificationChannel channel) {
+        return sendThreads != null ? permits.get(channel).limit() : executors.get(channel).getMaxPoolSize();
+    }
+
+    /** Configured thread count, the most setLimit allows. */
+    public int capacity(NotificationChannel channel) {
+        return capacities.get(channel);
+    }
+
+    /** Sends waiting for one of the channel's threads (in virtual mode, batches waiting for a slot). */
+    public int queued(NotificationChannel channel) {
+        return sendThreads != null
+                ? permits.get(channel).getQueueLength()
+                : executors.get(channel).getThreadPoolExecutor().getQueue().size();
+    }
+
+    /**
+     * Sets the channel's thread count, within 1..capacity. Running sends finish; surplus threads
+     * stop as they go idle (in virtual mode, freed slots above the new limit aren't handed out).
+     */
+    public synchronized void setLimit(NotificationChannel channel, int limit) {
+        int threads = Math.max(1, Math.min(capacities.get(channel), limit));
+        if (sendThreads != null) {
+            permits.get(channel).setLimit(threads);
+            return;
+        }
+        ThreadPoolTaskExecutor executor = executors.get(channel);
+        // The pool rejects a core size above the max size, so move them in the right order
+        if (threads < executor.getMaxPoolSize()) {
+            executor.setCorePoolSize(threads);
+            executor.setMaxPoolSize(threads);
+        } else {
+            executor.setMaxPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executors.values().forEach(ThreadPoolTaskExecutor::shutdown);
+        deadlines.shutdownNow();
+    }
+
+    // A channel's send slots in virtual mode; resizable while slots are held
+    private static final class ChannelPermits extends Semaphore {
+
+        private volatile int limit;
+
+        ChannelPermits(int limit) {
+            super(limit, true);
+            this.limit = limit;
+        }
+
+        int limit() {
+            return limit;
+        }
+
+        int inUse() {
+            return limit - availablePermits();
+        }
+
+        // Callers hold the bulkheads' lock
+        void setLimit(int newLimit) {
+            if (newLimit > limit) {
+                release(newLimit - limit);
+            } else if (newLimit < limit) {
+                reducePermits(limit - newLimit);
+            }
+            limit = newLimit;
+        }
+    }
+
+    // The bulkhead thread of one send; interrupted only while that send is still running
+    private static final class RunningSend {
+
+        private final Thread thread = Thread.currentThread();
+        private boolean finished;
+        private boolean interrupted;
+
+        // Runs timedOut, then interrupts the thread, unless the send already finished
+        synchronized void interrupt(Runnable timedOut) {
+            if (finished) {
+                return;
+            }
+            interrupted = true;
+            timedOut.run();
+            thread.interrupt();
+        }
+
+        // @return whether the send was interrupted
+        synchronized boolean finish() {
+            finished = true;
+            return interrupted;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.qbitspark.nexgatenotificationserver.service.channel;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.EmailResult;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.provider.email.EmailProvider;
+import org.qbitspark.nexgatenotificationserver.provider.push.PushProvider;
+import org.qbitspark.nexgatenotificationserver.provider.sms.SmsProvider;
+import org.qbitspark.nexgatenotificationserver.service.adaptive.AdaptiveBatchController;
+import org.qbitspark.nexgatenotificationserver.service.ratelimit.ProviderRateLimiter;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sends one channel to one recipient. Shared by the batch processor and channel retries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChannelSender {
+
+    private final EmailService emailService;
+    private final SmsService smsService;
+    private final PushService pushService;
+    private final InAppService inAppService;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final AdaptiveBatchController adaptiveController;
+    private final ProviderRateLimiter rateLimiter;
+    private final EmailProvider emailProvider;
+    private final SmsProvider smsProvider;
+    private final PushProvider pushProvider;
+
+    /**
+     * Takes a rate-limit token from the channel's provider, waiting up to max-wait-ms. Call it
+     * before the send gets a bulkhead thread or provider slot, so waiting for quota holds neither.
+     *
+     * @return false if the quota stayed used up; the send should be deferred, not failed
+     */
+    public boolean acquire(NotificationChannel channel) {
+        return rateLimiter.acquire(provider(channel), 1);
+    }
+
+    private String provider(NotificationChannel channel) {
+        return switch (channel) {
+            case EMAIL -> emailProvider.getProviderName();
+            case SMS -> smsProvider.getProviderName();
+            case PUSH -> pushProvider.getProviderName();
+            case IN_APP -> InAppService.PROVIDER;
+            case WEBHOOK, CHAT_APP -> channel.name().toLowerCase(Locale.ROOT);
+        };
+    }
+
+    public boolean send(NotificationChannel channel, Recipient recipient, NotificationEvent event) {
+        return concurrencyLimiter.send(channel, () -> timed(channel, () -> switch (channel) {
+            case EMAIL -> sendEmail(recipient, event);
+            case SMS -> sendSms(recipient, event);
+            case PUSH -> sendPush(recipient, event);
+            case IN_APP -> sendInApp(recipient, event);
+            case WEBHOOK -> sendWebhook(recipient, event);
+            case CHAT_APP -> sendChatApp(recipient, event);
+        }));
+    }
+
+    // Provider time only: starts once the send has its bulkhead thread and provider slot
+    private boolean timed(NotificationChannel channel, BooleanSupplier send) {
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            success = send.getAsBoolean();
+            return success;
+        } finally {
+            adaptiveController.recordSend(channel, System.nanoTime() - startedAt, success);
+        }
+    }
+
+    private boolean sendEmail(Recipient recipient, NotificationEvent event) {
+        if (recipient.getEmail() == null || recipient.getEmail().isBlank()) {
+            log.warn("📧 ⚠️ No email address for user {}, skipping EMAIL channel", recipient.getUserId());
+            return false;
+        }
+
+        EmailResult result = emailService.send(
+                event.getType(),
+                recipient.getEmail(),
+                (Map<String, Object>) event.getData()
+        );
+        return result.isSuccess();
+    }
+
+    private boolean sendSms(Recipient recipient, NotificationEvent event) {
+        if (recipient.getPhone() == null || recipient.getPhone().isBlank()) {
+            log.warn("📱 ⚠️ No phone number for user {}, skipping SMS channel", recipient.getUserId());
+            return false;
+        }
+
+        return smsService.send(
+                event.getType(),
+                recipient.getPhone(),
+                (Map<String, Object>) event.getData()
+        );
+    }
+
+    private boolean sendPush(Recipient recipient, NotificationEvent event) {
+        if (recipient.getUserId() == null || recipient.getUserId().isBlank()) {
+            log.warn("🔔 ⚠️ No userId for recipient, skipping PUSH channel");
+            return false;
+        }
+
+        return pushService.send(
+                event.getType(),
+                recipient.getUserId(),
+                (Map<String, Object>) event.getData()
+        );
+    }
+
+
+    private boolean sendInApp(Recipient recipient, NotificationEvent event) {
+        if (recipient.getUserId() == null || recipient.getUserId().isBlank()) {
+            log.warn("📬 ⚠️ No userId for recipient, skipping IN_APP channel");
+            return false;
+        }
+
+        return inAppService.send(
+                event.getType(),
+                recipient.getUserId(),
+                (Map<String, Object>) event.getData()
+        );
+    }
+
+
+    private boolean sendWebhook(Recipient recipient, NotificationEvent event) {
+        log.info("🪝 [MOCK] Webhook would be called for userId: {} (type: {})",
+                recipient.getUserId(), event.getType());
+        // TODO: Implement webhook service
+        return true;
+    }
+
+    private boolean sendChatApp(Recipient recipient, NotificationEvent event) {
+        log.info("💬 [MOCK] Chat app message would be sent to userId: {} (type: {})",
+                recipient.getUserId(), event.getType());
+        // TODO: Implement chat app service
+        return true;
+    }
+
+    /**
+     * Whether the recipient has an address for the channel at all. A channel that failed
+     * for lack of an address will fail the same way on every retry.
+     */
+    public boolean hasAddress(NotificationChannel channel, Recipient recipient) {
+        return switch (channel) {
+            case EMAIL -> !isBlank(recipient.getEmail());
+            case SMS -> !isBlank(recipient.getPhone());
+            case PUSH, IN_APP -> !isBlank(recipient.getUserId());
+            case WEBHOOK, CHAT_APP -> true;
+        };
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -8,6 +8,7 @@ import org.qbitspark.nexgatenotificationserver.dto.EmailMessage;
 import org.qbitspark.nexgatenotificationserver.dto.EmailResult;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
 import org.qbitspark.nexgatenotificationserver.provider.email.EmailProvider;
+import org.qbitspark.nexgatenotificationserver.service.digest.DigestData;
 import org.qbitspark.nexgatenotificationserver.service.template.TemplateService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -50,7 +51,7 @@ public class EmailService {
     }
 
     // ── Send with PDF attachment ───────────────────────────────────────────────
-    public void sendWithAttachment(
+    public EmailResult sendWithAttachment(
             NotificationType type,
             String to,
             Map<String, Object> data,
@@ -84,12 +85,12 @@ public class EmailService {
             mailSender.send(mimeMessage);
 
             log.info("✅ Email+PDF sent to: {}", to);
-            EmailResult.builder()
+            return EmailResult.builder()
                     .success(true).provider("glueemail-smtp").build();
 
         } catch (Exception e) {
             log.error("❌ Email+PDF failed to {}: {}", to, e.getMessage(), e);
-            EmailResult.builder()
+            return EmailResult.builder()
                     .success(false).errorMessage(e.getMessage()).provider("glueemail-smtp").build();
         }
     }
@@ -152,11 +153,15 @@ public class EmailService {
             case CHECKOUT_EXPIRY       -> "Your Checkout Session Has Expired";
             case WALLET_BALANCE_UPDATE -> "Your Wallet Balance Has Been Updated";
             case INSTALLMENT_DUE       -> "Installment Payment Due Reminder";
-            case SHOP_NEW_ORDER        -> "New Order Received in Your Shop";
+            case SHOP_NEW_ORDER        -> DigestData.count(data) > 1
+                    ? DigestData.count(data) + " New Orders Received in Your Shop"
+                    : "New Order Received in Your Shop";
             case SHOP_LOW_INVENTORY    -> "Low Inventory Alert";
             case GROUP_PURCHASE_COMPLETE   -> "Group Purchase Completed Successfully";
             case GROUP_PURCHASE_CREATED    -> "New Group Purchase Started for Your Product";
-            case GROUP_MEMBER_JOINED       -> "New Member Joined Your Group Purchase";
+            case GROUP_MEMBER_JOINED       -> DigestData.count(data) > 1
+                    ? DigestData.count(data) + " New Members Joined Your Group Purchase"
+                    : "New Member Joined Your Group Purchase";
             case GROUP_SEATS_TRANSFERRED   -> "Seats Transferred Successfully";
             case WELCOME_EMAIL         -> "Welcome to Nexgate!";
             case PROMOTIONAL_OFFER     -> "Special Offer Just for You";
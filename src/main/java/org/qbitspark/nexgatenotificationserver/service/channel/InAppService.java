@@ -6,6 +6,7 @@ import org.qbitspark.nexgatenotificationserver.api.payload.ApiResponse;
 import org.qbitspark.nexgatenotificationserver.dto.InAppNotificationRequest;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
 import org.qbitspark.nexgatenotificationserver.security.ServiceAuthClient;
+import org.qbitspark.nexgatenotificationserver.service.digest.DigestData;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -16,6 +17,9 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class InAppService {
 
+    // Rate limit key for the parent server's in-app endpoint
+    static final String PROVIDER = "parent-server";
+
     private final ServiceAuthClient serviceAuthClient;
 
     public boolean send(NotificationType type, String userId, Map<String, Object> data) {
@@ -236,6 +240,10 @@ public class InAppService {
         return String.format("Installment payment of %s is due", amount);
     }
     private String formatShopNewOrder(Map<String, Object> data) {
+        int digestCount = DigestData.count(data);
+        if (digestCount > 1) {
+            return String.format("%d new orders received, latest %s", digestCount, str(data, "orderId"));
+        }
         return String.format("New order %s received", str(data, "orderId"));
     }
     private String formatLowInventory(Map<String, Object> data) {
@@ -254,6 +262,10 @@ public class InAppService {
     private String formatGroupMemberJoined(Map<String, Object> data) {
         Map<?, ?> newMember = castMap(data.get("newMember"));
         String name = newMember != null ? str(newMember, "name") : "Someone";
+        int digestCount = DigestData.count(data);
+        if (digestCount > 1) {
+            return String.format("%d people joined the group, latest %s", digestCount, name);
+        }
         return String.format("%s joined the group", name);
     }
     private String formatGroupSeatsTransferred(Map<String, Object> data) {
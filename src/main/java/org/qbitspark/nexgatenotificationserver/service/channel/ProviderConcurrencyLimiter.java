@@ -0,0 +1,54 @@
+package org.qbitspark.nexgatenotificationserver.service.channel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Caps concurrent sends per provider (one provider per channel), so that thousands of
+ * virtual-thread batches don't open thousands of SMTP sessions or SMS API calls at once.
+ * Limits: notification.provider.<channel>.max-concurrency, default notification.provider.max-concurrency.
+ */
+@Slf4j
+@Component
+public class ProviderConcurrencyLimiter {
+
+    private final Map<NotificationChannel, Semaphore> permits = new EnumMap<>(NotificationChannel.class);
+
+    public ProviderConcurrencyLimiter(Environment environment) {
+        int defaultLimit = environment.getProperty("notification.provider.max-concurrency", Integer.class, 200);
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            int limit = environment.getProperty(
+                    "notification.provider." + channel.name().toLowerCase() + ".max-concurrency",
+                    Integer.class, defaultLimit);
+            permits.put(channel, new Semaphore(limit, true));
+        }
+    }
+
+    /**
+     * Runs {@code send} once a slot for the channel's provider is free.
+     *
+     * @return the send's result; false if interrupted while waiting for a slot
+     */
+    public boolean send(NotificationChannel channel, BooleanSupplier send) {
+        Semaphore semaphore = permits.get(channel);
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("⚠️ Interrupted waiting for a {} provider slot", channel);
+            return false;
+        }
+        try {
+            return send.getAsBoolean();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
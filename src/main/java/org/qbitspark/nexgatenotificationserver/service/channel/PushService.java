@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.qbitspark.nexgatenotificationserver.dto.PushResult;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
 import org.qbitspark.nexgatenotificationserver.provider.push.PushProvider;
+import org.qbitspark.nexgatenotificationserver.service.digest.DigestData;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -166,6 +167,10 @@ public class PushService {
     private String formatShopNewOrder(Map<String, Object> data) {
         Object customerObj = data.get("customer");
         String customerName = customerObj instanceof Map ? String.valueOf(((Map<?, ?>) customerObj).get("name")) : "Customer";
+        int digestCount = DigestData.count(data);
+        if (digestCount > 1) {
+            return String.format("%d new orders received! Latest: %s from %s.", digestCount, data.get("orderId"), customerName);
+        }
         return String.format("New order %s received from %s!", data.get("orderId"), customerName);
     }
 
@@ -218,6 +223,11 @@ public class PushService {
         String seatsOccupied  = group     != null ? String.valueOf(group.get("seatsOccupied"))  : "0";
         String totalSeats     = group     != null ? String.valueOf(group.get("totalSeats"))     : "0";
         String seatsRemaining = group     != null ? String.valueOf(group.get("seatsRemaining")) : "0";
+        int digestCount = DigestData.count(data);
+        if (digestCount > 1) {
+            return String.format("%d people joined group %s! Progress: %s/%s seats. %s remaining!",
+                    digestCount, groupCode, seatsOccupied, totalSeats, seatsRemaining);
+        }
         return String.format("%s joined group %s! Progress: %s/%s seats. %s remaining!",
                 memberName, groupCode, seatsOccupied, totalSeats, seatsRemaining);
     }
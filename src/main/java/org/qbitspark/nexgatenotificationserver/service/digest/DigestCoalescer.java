@@ -0,0 +1,352 @@
+package org.qbitspark.nexgatenotificationserver.service.digest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchProcessor;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces bursty notification types (notification.digest.types) per (recipient, type).
+ *
+ * The first event for a pair opens a window of window-ms in Redis (digest-append.lua); every
+ * event in it joins the same digest, and the source messages are acked right away. When the
+ * window closes, one node takes the digest on a lease of lease-ms (digest-flush.lua) and sends
+ * a single notification built from the latest event plus a summary of all of them (see
+ * DigestData). A window with a single event is sent unchanged.
+ *
+ * The digest is deleted only once its batch is done. If the batch fails it is put back
+ * (digest-restore.lua) and sent again a window later; if there was no room on the executor,
+ * at the next flush; if the node dies, once its lease runs out. Flushes never block their
+ * scheduler thread.
+ *
+ * Only the latest max-items events are kept per digest; the count covers all of them. If Redis
+ * is unavailable, events are delivered immediately instead.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DigestCoalescer {
+
+    private static final String KEY_PREFIX = "notification:digest:";
+    private static final String DUE_KEY = KEY_PREFIX + "due";
+    private static final String LEASE_KEY = KEY_PREFIX + "leased";
+    private static final int HOLD_BATCH_SIZE = 100;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final NotificationBatchProcessor batchProcessor;
+    private final BatchDispatcher batchDispatcher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.digest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.digest.types:}")
+    private Set<NotificationType> types;
+
+    @Value("${notification.digest.window-ms:60000}")
+    private long windowMs;
+
+    @Value("${notification.digest.max-items:20}")
+    private int maxItems;
+
+    // Digests taken per flush; their deliveries are sent as one batch
+    @Value("${notification.digest.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    // How long a taken digest may take to send before another node puts it back
+    @Value("${notification.digest.lease-ms:300000}")
+    private long leaseMs;
+
+    private DefaultRedisScript<Long> appendScript;
+    private DefaultRedisScript<List> flushScript;
+    private DefaultRedisScript<Long> restoreScript;
+    private final AtomicInteger batchNumbers = new AtomicInteger();
+    private Counter held;
+    private Counter sent;
+
+    @PostConstruct
+    void init() {
+        types = types.isEmpty() ? EnumSet.noneOf(NotificationType.class) : EnumSet.copyOf(types);
+        appendScript = new DefaultRedisScript<>();
+        appendScript.setLocation(new ClassPathResource("scripts/digest-append.lua"));
+        appendScript.setResultType(Long.class);
+        flushScript = new DefaultRedisScript<>();
+        flushScript.setLocation(new ClassPathResource("scripts/digest-flush.lua"));
+        flushScript.setResultType(List.class);
+        restoreScript = new DefaultRedisScript<>();
+        restoreScript.setLocation(new ClassPathResource("scripts/digest-restore.lua"));
+        restoreScript.setResultType(Long.class);
+        held = Counter.builder("notification.digest.held")
+                .description("Deliveries held for a digest").register(meterRegistry);
+        sent = Counter.builder("notification.digest.sent")
+                .description("Digest notifications sent in their place").register(meterRegistry);
+    }
+
+    public boolean shouldCoalesce(NotificationEvent event) {
+        return enabled && event.getType() != null && types.contains(event.getType());
+    }
+
+    // ── Intake ──
+
+    /**
+     * Adds each recipient of the event to its open digest.
+     *
+     * @return recipients that were not held (no delivery key, or Redis unavailable); the
+     *         caller delivers them right away
+     */
+    public List<Recipient> hold(String correlationId, NotificationEvent event) {
+        NotificationEvent header = event.withRecipients(List.of());
+        List<Recipient> unheld = new ArrayList<>();
+        boolean[] redisDown = {false};
+        event.forEachRecipientBatch(HOLD_BATCH_SIZE, batch -> {
+            for (Recipient recipient : batch) {
+                // After one failure the rest go straight through rather than each timing out
+                if (redisDown[0] || recipient.deliveryKey().isEmpty()) {
+                    unheld.add(recipient);
+                } else if (!append(correlationId, header, recipient)) {
+                    redisDown[0] = true;
+                    unheld.add(recipient);
+                }
+            }
+        });
+        return unheld;
+    }
+
+    private boolean append(String correlationId, NotificationEvent header, Recipient recipient) {
+        String key = KEY_PREFIX + header.getType() + ":" + recipient.deliveryKey();
+        try {
+            String entry = objectMapper.writeValueAsString(DeliveryTask.builder()
+                    .correlationId(correlationId)
+                    .event(header)
+                    .recipient(recipient)
+                    .build());
+            Long count = redisTemplate.execute(appendScript, List.of(key, key + ":count", DUE_KEY),
+                    entry, String.valueOf(windowMs), String.valueOf(maxItems), String.valueOf(windowMs * 10));
+            held.increment();
+            log.debug("🧺 Held {} for {} digest of {} ({} so far)",
+                    header.getEventId(), header.getType(), recipient.deliveryKey(), count);
+            return true;
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("⚠️ Digest hold failed, delivering {} now: {}", header.getEventId(), e.getMessage());
+            return false;
+        }
+    }
+
+    // ── Flush ──
+
+    @Scheduled(fixedDelayString = "${notification.digest.flush-interval-ms:1000}")
+    public void flushDue() {
+        if (!enabled || types.isEmpty()) {
+            return;
+        }
+        List<?> taken;
+        try {
+            Long expired = redisTemplate.execute(restoreScript, List.of(DUE_KEY, LEASE_KEY), restoreArgs(0, List.of()));
+            if (expired != null && expired > 0) {
+                log.warn("🩹 Put back {} digests whose lease ran out", expired);
+            }
+            if (batchDispatcher.availableCapacity() == 0) {
+                return;
+            }
+            taken = redisTemplate.execute(flushScript, List.of(DUE_KEY, LEASE_KEY), String.valueOf(flushBatchSize),
+                    String.valueOf(leaseMs), UUID.randomUUID().toString(), String.valueOf(windowMs * 10));
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Digest flush failed: {}", e.getMessage());
+            return;
+        }
+        if (taken == null || taken.isEmpty()) {
+            return;
+        }
+
+        Map<NotificationPriority, List<DeliveryTask>> byPriority = new EnumMap<>(NotificationPriority.class);
+        Map<NotificationPriority, List<String>> leases = new EnumMap<>(NotificationPriority.class);
+        List<String> unreadable = new ArrayList<>();
+        for (int i = 0; i + 2 < taken.size(); i += 3) {
+            String lease = String.valueOf(taken.get(i));
+            DeliveryTask digest = toDigest(lease, Long.parseLong(String.valueOf(taken.get(i + 1))), (List<?>) taken.get(i + 2));
+            if (digest == null) {
+                unreadable.add(lease);
+                continue;
+            }
+            NotificationPriority priority = NotificationPriority.orDefault(digest.getEvent().getPriority());
+            byPriority.computeIfAbsent(priority, p -> new ArrayList<>()).add(digest);
+            leases.computeIfAbsent(priority, p -> new ArrayList<>()).add(lease);
+        }
+        release(unreadable);
+
+        // Most urgent first, in case the executor fills up part way
+        List<NotificationPriority> priorities = new ArrayList<>(byPriority.keySet());
+        Collections.reverse(priorities);
+        for (NotificationPriority priority : priorities) {
+            List<DeliveryTask> tasks = byPriority.get(priority);
+            List<String> taskLeases = leases.get(priority);
+            int batchNumber = batchNumbers.incrementAndGet();
+            CompletableFuture<Void> batch = batchDispatcher.tryDispatch(priority,
+                    () -> batchProcessor.processTasks(batchNumber, tasks));
+            if (batch == null) {
+                restore(taskLeases, 0);
+                continue;
+            }
+            log.info("🧺 Sending digest batch #{} ({} digests, {})", batchNumber, tasks.size(), priority);
+            batch.whenComplete((ignored, ex) -> {
+                if (ex == null) {
+                    sent.increment(tasks.size());
+                    release(taskLeases);
+                } else {
+                    log.error("❌ Digest batch #{} failed, sending it again in {}ms: {}",
+                            batchNumber, windowMs, ex.getMessage());
+                    restore(taskLeases, windowMs);
+                }
+            });
+        }
+    }
+
+    // Done with these digests: drop the lease first, so an expiry can't put them back
+    private void release(List<String> leases) {
+        if (leases.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(LEASE_KEY, leases.toArray());
+            List<String> keys = new ArrayList<>(leases.size() * 2);
+            leases.forEach(lease -> {
+                keys.add(lease);
+                keys.add(lease + ":count");
+            });
+            redisTemplate.delete(keys);
+        } catch (DataAccessException e) {
+            // The lease runs out and they are sent again; the idempotency check drops the repeat
+            log.warn("⚠️ Releasing {} sent digests failed: {}", leases.size(), e.getMessage());
+        }
+    }
+
+    private void restore(List<String> leases, long delayMs) {
+        try {
+            redisTemplate.execute(restoreScript, List.of(DUE_KEY, LEASE_KEY), restoreArgs(delayMs, leases));
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Putting back {} digests failed, they return when their lease runs out: {}",
+                    leases.size(), e.getMessage());
+        }
+    }
+
+    private Object[] restoreArgs(long delayMs, List<String> leases) {
+        List<String> args = new ArrayList<>(leases.size() + 3);
+        args.add(String.valueOf(delayMs));
+        args.add(String.valueOf(maxItems));
+        args.add(String.valueOf(windowMs * 10));
+        args.addAll(leases);
+        return args.toArray();
+    }
+
+    private DeliveryTask toDigest(String key, long count, List<?> rawEntries) {
+        List<DeliveryTask> entries = new ArrayList<>(rawEntries.size());
+        for (Object raw : rawEntries) {
+            try {
+                entries.add(objectMapper.readValue(String.valueOf(raw), DeliveryTask.class));
+            } catch (JsonProcessingException e) {
+                log.error("❌ Dropping unreadable entry of digest {}: {}", key, e.getMessage());
+            }
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+        return merge(entries, count);
+    }
+
+    /**
+     * One delivery standing for {@code count} events, of which {@code entries} are the latest,
+     * oldest first. Sent with the latest event's eventId, channels of all of them and the
+     * highest priority among them.
+     */
+    static DeliveryTask merge(List<DeliveryTask> entries, long count) {
+        DeliveryTask latest = entries.get(entries.size() - 1);
+        if (count <= 1 && entries.size() == 1) {
+            return latest;
+        }
+
+        Set<NotificationChannel> channels = new LinkedHashSet<>();
+        NotificationPriority priority = NotificationPriority.LOW;
+        List<Map<String, Object>> items = new ArrayList<>(entries.size());
+        for (DeliveryTask entry : entries) {
+            NotificationEvent event = entry.getEvent();
+            if (event.getChannels() != null) {
+                channels.addAll(event.getChannels());
+            }
+            NotificationPriority entryPriority = NotificationPriority.orDefault(event.getPriority());
+            if (entryPriority.compareTo(priority) > 0) {
+                priority = entryPriority;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            flatten("", event.getData(), item);
+            items.add(item);
+        }
+
+        long total = Math.max(count, entries.size());
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (latest.getEvent().getData() != null) {
+            data.putAll(latest.getEvent().getData());
+        }
+        data.put(DigestData.DIGEST, Map.of(DigestData.COUNT, total, DigestData.MORE, total - entries.size()));
+        data.put(DigestData.ITEMS, items);
+
+        NotificationEvent event = NotificationEvent.builder()
+                .eventId(latest.getEvent().getEventId())
+                .type(latest.getEvent().getType())
+                .recipients(List.of(latest.getRecipient()))
+                .channels(List.copyOf(channels))
+                .priority(priority)
+                .data(data)
+                .build();
+        return DeliveryTask.builder()
+                .correlationId(latest.getCorrelationId())
+                .event(event)
+                .recipient(latest.getRecipient())
+                .build();
+    }
+
+    private static void flatten(String prefix, Map<?, ?> source, Map<String, Object> target) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((key, value) -> {
+            String path = prefix + key;
+            if (value instanceof Map<?, ?> nested) {
+                flatten(path + ".", nested, target);
+            } else {
+                target.put(path, value);
+            }
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package org.qbitspark.nexgatenotificationserver.service.digest;
+
+import java.util.Map;
+
+/**
+ * Template data keys of a digest notification. A digest carries the data of the latest
+ * coalesced event as usual, plus:
+ * <ul>
+ *   <li>{@code digest.count} – events coalesced, {@code digest.more} – those not in digestItems</li>
+ *   <li>{@code digestItems} – data of the latest events (at most max-items), oldest first, with
+ *       nested values flattened to dotted keys so templates can use {{this.newMember.name}}</li>
+ * </ul>
+ * Templates named digest_&lt;template&gt; are preferred for digests where they exist.
+ */
+public final class DigestData {
+
+    public static final String DIGEST = "digest";
+    public static final String COUNT = "count";
+    public static final String MORE = "more";
+    public static final String ITEMS = "digestItems";
+
+    private DigestData() {
+    }
+
+    /**
+     * @return number of events coalesced into this notification; 1 for a regular one
+     */
+    public static int count(Map<String, Object> data) {
+        if (data != null && data.get(DIGEST) instanceof Map<?, ?> digest
+                && digest.get(COUNT) instanceof Number count) {
+            return count.intValue();
+        }
+        return 1;
+    }
+}
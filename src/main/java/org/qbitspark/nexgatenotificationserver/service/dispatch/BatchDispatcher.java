@@ -0,0 +1,147 @@
+package org.qbitspark.nexgatenotificationserver.service.dispatch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.OverflowBatch;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hands batch work to notificationExecutor with its priority attached, so an URGENT
+ * batch is picked ahead of LOW batches already waiting in the executor queue.
+ * Plain @Async can't do this because the queued Runnable doesn't know its priority.
+ *
+ * In-flight batches are capped at what the executor holds without rejecting: its queue
+ * capacity plus its threads. When that is used up, dispatch() blocks the calling listener
+ * thread instead of letting the executor reject, so the listener stops taking messages and
+ * the backlog stays in RabbitMQ. Pollers on the shared scheduler threads use tryDispatch(),
+ * which returns instead of blocking.
+ *
+ * Batches dispatched with a checkpoint can be taken back out while still queued
+ * (checkpointQueued), which is how shutdown saves work that never got a thread.
+ */
+@Slf4j
+@Component
+public class BatchDispatcher {
+
+    private final ThreadPoolTaskExecutor notificationExecutor;
+    private final int capacity;
+    private final Semaphore inFlight;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Queued> queued = new ConcurrentHashMap<>();
+
+    private record Queued(CompletableFuture<Void> future, Supplier<OverflowBatch> checkpoint) {}
+
+    public BatchDispatcher(ThreadPoolTaskExecutor notificationExecutor) {
+        this.notificationExecutor = notificationExecutor;
+        this.capacity = notificationExecutor.getQueueCapacity() + notificationExecutor.getMaxPoolSize();
+        this.inFlight = new Semaphore(capacity);
+    }
+
+    public CompletableFuture<Void> dispatch(NotificationPriority priority, Runnable batchWork) {
+        return dispatch(priority, batchWork, null);
+    }
+
+    /**
+     * @param checkpoint describes the batch durably if it has to be saved before it starts;
+     *                   null for work that can't be (or needn't be) checkpointed
+     */
+    public CompletableFuture<Void> dispatch(NotificationPriority priority, Runnable batchWork,
+                                            Supplier<OverflowBatch> checkpoint) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return submit(priority, batchWork, checkpoint, future);
+    }
+
+    /**
+     * Dispatches only if the executor has room right now.
+     *
+     * @return null, with nothing dispatched, when it is full
+     */
+    public CompletableFuture<Void> tryDispatch(NotificationPriority priority, Runnable batchWork) {
+        if (!inFlight.tryAcquire()) {
+            return null;
+        }
+        return submit(priority, batchWork, null, new CompletableFuture<>());
+    }
+
+    // Holds a permit, released when the batch finishes or can't be handed over
+    private CompletableFuture<Void> submit(NotificationPriority priority, Runnable batchWork,
+                                           Supplier<OverflowBatch> checkpoint, CompletableFuture<Void> future) {
+        long id = ids.incrementAndGet();
+        if (checkpoint != null) {
+            queued.put(id, new Queued(future, checkpoint));
+        }
+
+        try {
+            notificationExecutor.execute(new PrioritizedTask(priority, () -> {
+                // Claim the batch; if it's gone it was checkpointed (and its permit released)
+                if (checkpoint != null && queued.remove(id) == null) {
+                    return;
+                }
+                try {
+                    batchWork.run();
+                    future.complete(null);
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            queued.remove(id);
+            inFlight.release();
+            log.error("❌ Executor rejected {} batch: {}", priority, e.getMessage());
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /** Batches that can still be dispatched without blocking. */
+    public int availableCapacity() {
+        return inFlight.availablePermits();
+    }
+
+    /** Batches dispatched and not yet finished, queued or running. */
+    public int inFlightCount() {
+        return capacity - inFlight.availablePermits();
+    }
+
+    /**
+     * Takes every checkpointable batch that hasn't started out of the queue, in dispatch order.
+     * Their futures are left incomplete, so their source messages stay unacked and are
+     * requeued when the listener channels close; a copy the caller saved as well is
+     * deduplicated on delivery.
+     */
+    public List<OverflowBatch> checkpointQueued() {
+        List<OverflowBatch> batches = new ArrayList<>();
+        for (Long id : new TreeSet<>(queued.keySet())) {
+            Queued batch = queued.remove(id);
+            if (batch == null) {
+                continue;  // started in the meantime
+            }
+            batches.add(batch.checkpoint().get());
+            inFlight.release();
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,47 @@
+package org.qbitspark.nexgatenotificationserver.service.dispatch;
+
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runnable that carries a NotificationPriority into the executor queue.
+ * Higher priority runs first; equal priorities keep submission (FIFO) order.
+ */
+public class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final NotificationPriority priority;
+    private final long sequence;
+    private final Runnable delegate;
+
+    public PrioritizedTask(NotificationPriority priority, Runnable delegate) {
+        this.priority = NotificationPriority.orDefault(priority);
+        this.sequence = SEQUENCE.getAndIncrement();
+        this.delegate = delegate;
+    }
+
+    /**
+     * Used as the executor's TaskDecorator so work submitted through plain @Async
+     * (e.g. the event handler) still fits the priority queue, at NORMAL priority.
+     */
+    public static Runnable wrap(Runnable runnable) {
+        return runnable instanceof PrioritizedTask ? runnable : new PrioritizedTask(NotificationPriority.NORMAL, runnable);
+    }
+
+    public NotificationPriority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public void run() {
+        delegate.run();
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask other) {
+        int byPriority = Integer.compare(other.priority.ordinal(), priority.ordinal());
+        return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,31 @@
+package org.qbitspark.nexgatenotificationserver.service.dispatch;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * PriorityBlockingQueue with a capacity limit. ThreadPoolExecutor only grows past its
+ * core size and applies its rejection policy when offer() fails, so an unbounded
+ * priority queue would silently turn the pool into an unbounded heap buffer.
+ */
+public class PriorityTaskQueue extends PriorityBlockingQueue<Runnable> {
+
+    private final int capacity;
+
+    public PriorityTaskQueue(int capacity) {
+        super(Math.max(1, Math.min(capacity, 1024)));
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized boolean offer(Runnable runnable) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+}
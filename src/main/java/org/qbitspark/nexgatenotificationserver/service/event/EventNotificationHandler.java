@@ -2,32 +2,45 @@ package org.qbitspark.nexgatenotificationserver.service.event;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.EmailResult;
 import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
 import org.qbitspark.nexgatenotificationserver.dto.Recipient;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
 import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelSender;
 import org.qbitspark.nexgatenotificationserver.service.channel.EmailService;
 import org.qbitspark.nexgatenotificationserver.service.channel.InAppService;
 import org.qbitspark.nexgatenotificationserver.service.channel.SmsService;
+import org.qbitspark.nexgatenotificationserver.service.idempotency.DeliveryIdempotencyService;
 import org.qbitspark.nexgatenotificationserver.service.pdf.TicketPdfGenerator;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.util.ByteArrayDataSource;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Handles event-domain notifications.
  *
  * BUYER  (EVENT_BOOKING_CONFIRMED)         — one email, one PDF attachment PER TICKET
  * ATTENDEE (EVENT_ATTENDEE_TICKET_ISSUED)  — one email per attendee, one PDF for their ticket
+ *
+ * Runs on notificationExecutor through BatchDispatcher, like the batch path. Channels are
+ * claimed in DeliveryIdempotencyService before sending and marked the moment they go out, so
+ * the redelivery after a failed send (which throws, requeueing the message) skips them. A
+ * channel another copy of the event holds requeues the message too, as does one whose
+ * provider has no rate-limit token left (taken before the PDFs are rendered, never sent).
+ * Attendees without a ticket to send are rejected (dead-lettered) rather than requeued.
  */
 @Slf4j
 @Service
@@ -39,6 +52,8 @@ public class EventNotificationHandler {
     private final InAppService inAppService;
     private final TicketPdfGenerator pdfGenerator;
     private final JavaMailSender mailSender;
+    private final DeliveryIdempotencyService idempotencyService;
+    private final ChannelSender channelSender;
 
     @Value("${spring.mail.username}")
     private String fromEmail;
@@ -50,7 +65,6 @@ public class EventNotificationHandler {
     //  BUYER FLOW  — all tickets as separate PDF attachments in one email
     // ──────────────────────────────────────────────────────────────────────────
 
-    @Async("notificationExecutor")
     public void handleBuyerNotification(NotificationEvent event) {
         Map<String, Object> data = event.getData();
         List<Recipient> recipients = event.getRecipients();
@@ -61,76 +75,97 @@ public class EventNotificationHandler {
         }
 
         Recipient buyer = recipients.get(0);
+        List<NotificationChannel> pending = pendingChannels(event, buyer);
+        if (pending.isEmpty()) {
+            log.info("♻️ Buyer notification already sent to: {}", buyer.getEmail());
+            return;
+        }
         log.info("🛒 Processing buyer notification for: {}", buyer.getEmail());
 
+        List<NotificationChannel> failed = new ArrayList<>();
         try {
-            List<Map<String, Object>> tickets = extractTickets(data);
-            Map<String, String> qrCodes = extractQrCodes(data);
+            sendToBuyer(event, data, buyer, pending, failed);
+        } finally {
+            release(event, buyer, pending);
+        }
+
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Buyer notification to " + buyer.getEmail() + " failed on " + failed);
+        }
+        log.info("✅ Buyer notification complete for: {}", buyer.getEmail());
+    }
 
+    private void sendToBuyer(NotificationEvent event, Map<String, Object> data, Recipient buyer,
+                             List<NotificationChannel> pending, List<NotificationChannel> failed) {
+        // ── Email ─────────────────────────────────────────────────────────────
+        if (pending.contains(NotificationChannel.EMAIL) && hasQuota(NotificationChannel.EMAIL, failed)) {
+            List<Map<String, Object>> tickets = extractTickets(data);
+            boolean sent;
             if (tickets.isEmpty()) {
                 log.warn("⚠️ No tickets found in booking data — sending email without attachment");
-                if (shouldSendChannel(event, NotificationChannel.EMAIL)) {
-                    emailService.send(NotificationType.EVENT_BOOKING_CONFIRMED, buyer.getEmail(), data);
-                }
+                sent = emailService.send(NotificationType.EVENT_BOOKING_CONFIRMED, buyer.getEmail(), data).isSuccess();
             } else {
-                // ── Generate one PDF per ticket ───────────────────────────────
-                List<PdfAttachment> attachments = new ArrayList<>();
-                for (Map<String, Object> ticket : tickets) {
-                    String ticketId = str(ticket, "ticketId");
-                    String jwt = qrCodes.get(ticketId);
-                    if (jwt == null || jwt.isBlank()) {
-                        if (!qrCodes.isEmpty()) {
-                            jwt = qrCodes.values().iterator().next();
-                            log.warn("⚠️ JWT not found for ticketId={}, using fallback", ticketId);
-                        } else {
-                            log.error("❌ No JWT token available for ticketId={} — skipping PDF", ticketId);
-                            continue;
-                        }
-                    }
-                    try {
-                        byte[] pdfBytes = pdfGenerator.generateSingleTicketPdf(data, ticket, jwt);
-                        String series = str(ticket, "series");
-                        String fileName = "ticket-" + (series.isBlank() ? ticketId : series) + ".pdf";
-                        attachments.add(new PdfAttachment(fileName, pdfBytes));
-                        log.info("📄 Generated PDF: {}", fileName);
-                    } catch (Exception e) {
-                        log.error("❌ Failed to generate PDF for ticketId={}: {}", ticketId, e.getMessage(), e);
-                    }
-                }
-
-                // ── Email with all ticket PDFs attached ───────────────────────
-                if (shouldSendChannel(event, NotificationChannel.EMAIL)) {
-                    sendEmailWithMultipleAttachments(
-                            NotificationType.EVENT_BOOKING_CONFIRMED,
-                            buyer.getEmail(),
-                            data,
-                            attachments
-                    );
-                }
+                sent = sendEmailWithMultipleAttachments(
+                        NotificationType.EVENT_BOOKING_CONFIRMED,
+                        buyer.getEmail(),
+                        data,
+                        generateTicketPdfs(data, tickets, extractQrCodes(data))
+                );
             }
+            record(event, buyer, NotificationChannel.EMAIL, sent, pending, failed);
+        }
 
-            // ── SMS ───────────────────────────────────────────────────────────
-            if (shouldSendChannel(event, NotificationChannel.SMS) && buyer.getPhone() != null) {
-                smsService.send(NotificationType.EVENT_BOOKING_CONFIRMED, buyer.getPhone(), data);
-            }
+        // ── SMS ───────────────────────────────────────────────────────────────
+        if (pending.contains(NotificationChannel.SMS) && buyer.getPhone() != null
+                && hasQuota(NotificationChannel.SMS, failed)) {
+            record(event, buyer, NotificationChannel.SMS,
+                    smsService.send(NotificationType.EVENT_BOOKING_CONFIRMED, buyer.getPhone(), data), pending, failed);
+        }
 
-            // ── In-App ────────────────────────────────────────────────────────
-            if (shouldSendChannel(event, NotificationChannel.IN_APP) && buyer.getUserId() != null) {
-                inAppService.send(NotificationType.EVENT_BOOKING_CONFIRMED, buyer.getUserId(), data);
-            }
+        // ── In-App ────────────────────────────────────────────────────────────
+        if (pending.contains(NotificationChannel.IN_APP) && buyer.getUserId() != null
+                && hasQuota(NotificationChannel.IN_APP, failed)) {
+            record(event, buyer, NotificationChannel.IN_APP,
+                    inAppService.send(NotificationType.EVENT_BOOKING_CONFIRMED, buyer.getUserId(), data), pending, failed);
+        }
+    }
 
-            log.info("✅ Buyer notification complete for: {}", buyer.getEmail());
+    // One PDF per ticket; a ticket without a usable JWT is left out
+    private List<PdfAttachment> generateTicketPdfs(
+            Map<String, Object> data,
+            List<Map<String, Object>> tickets,
+            Map<String, String> qrCodes) {
 
-        } catch (Exception e) {
-            log.error("❌ Failed to send buyer notification to {}: {}", buyer.getEmail(), e.getMessage(), e);
+        List<PdfAttachment> attachments = new ArrayList<>();
+        for (Map<String, Object> ticket : tickets) {
+            String ticketId = str(ticket, "ticketId");
+            String jwt = qrCodes.get(ticketId);
+            if (jwt == null || jwt.isBlank()) {
+                if (!qrCodes.isEmpty()) {
+                    jwt = qrCodes.values().iterator().next();
+                    log.warn("⚠️ JWT not found for ticketId={}, using fallback", ticketId);
+                } else {
+                    log.error("❌ No JWT token available for ticketId={} — skipping PDF", ticketId);
+                    continue;
+                }
+            }
+            try {
+                byte[] pdfBytes = pdfGenerator.generateSingleTicketPdf(data, ticket, jwt);
+                String series = str(ticket, "series");
+                String fileName = "ticket-" + (series.isBlank() ? ticketId : series) + ".pdf";
+                attachments.add(new PdfAttachment(fileName, pdfBytes));
+                log.info("📄 Generated PDF: {}", fileName);
+            } catch (Exception e) {
+                log.error("❌ Failed to generate PDF for ticketId={}: {}", ticketId, e.getMessage(), e);
+            }
         }
+        return attachments;
     }
 
     // ──────────────────────────────────────────────────────────────────────────
     //  ATTENDEE FLOW  — one email, one PDF for their specific ticket
     // ──────────────────────────────────────────────────────────────────────────
 
-    @Async("notificationExecutor")
     public void handleAttendeeNotification(NotificationEvent event) {
         Map<String, Object> data = event.getData();
         List<Recipient> recipients = event.getRecipients();
@@ -143,14 +178,28 @@ public class EventNotificationHandler {
         Map<String, String> qrCodes = extractQrCodes(data);
         List<Map<String, Object>> tickets = extractTickets(data);
 
+        List<String> failed = new ArrayList<>();
+        List<String> unsendable = new ArrayList<>();
         for (Recipient attendee : recipients) {
             try {
                 processAttendee(event, data, attendee, tickets, qrCodes);
+            } catch (IllegalArgumentException e) {
+                log.error("❌ Cannot send attendee notification to {}: {}", attendee.getEmail(), e.getMessage());
+                unsendable.add(attendee.getEmail());
             } catch (Exception e) {
                 log.error("❌ Failed to send attendee notification to {}: {}",
                         attendee.getEmail(), e.getMessage(), e);
+                failed.add(attendee.getEmail());
             }
         }
+
+        // Redelivery sends only what is still missing: delivered channels are marked
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Attendee notifications failed for " + failed);
+        }
+        if (!unsendable.isEmpty()) {
+            throw new AmqpRejectAndDontRequeueException("No ticket to send to attendees " + unsendable);
+        }
     }
 
     private void processAttendee(
@@ -160,6 +209,26 @@ public class EventNotificationHandler {
             List<Map<String, Object>> tickets,
             Map<String, String> qrCodes) throws Exception {
 
+        List<NotificationChannel> pending = pendingChannels(event, attendee);
+        if (pending.isEmpty()) {
+            log.info("♻️ Attendee notification already sent to: {}", attendee.getEmail());
+            return;
+        }
+        try {
+            sendToAttendee(event, data, attendee, tickets, qrCodes, pending);
+        } finally {
+            release(event, attendee, pending);
+        }
+    }
+
+    private void sendToAttendee(
+            NotificationEvent event,
+            Map<String, Object> data,
+            Recipient attendee,
+            List<Map<String, Object>> tickets,
+            Map<String, String> qrCodes,
+            List<NotificationChannel> pending) throws Exception {
+
         boolean isRegistered = Boolean.TRUE.toString()
                 .equalsIgnoreCase(String.valueOf(data.getOrDefault("attendeeIsRegistered", "true")));
 
@@ -183,36 +252,46 @@ public class EventNotificationHandler {
             throw new IllegalArgumentException("No JWT token for ticketId=" + ticketId);
         }
 
-        // Generate single ticket PDF
-        byte[] ticketPdf = pdfGenerator.generateSingleTicketPdf(data, myTicket, jwtToken);
-        String series    = str(myTicket, "series");
-        String fileName  = "ticket-" + (series.isBlank() ? ticketId : series) + ".pdf";
-
         Map<String, Object> attendeeData = buildAttendeeData(data, myTicket, isRegistered);
+        List<NotificationChannel> failed = new ArrayList<>();
 
         // ── Email with single PDF ─────────────────────────────────────────────
-        if (shouldSendChannel(event, NotificationChannel.EMAIL)) {
-            emailService.sendWithAttachment(
+        if (pending.contains(NotificationChannel.EMAIL) && hasQuota(NotificationChannel.EMAIL, failed)) {
+            byte[] ticketPdf = pdfGenerator.generateSingleTicketPdf(data, myTicket, jwtToken);
+            String series    = str(myTicket, "series");
+            String fileName  = "ticket-" + (series.isBlank() ? ticketId : series) + ".pdf";
+
+            EmailResult result = emailService.sendWithAttachment(
                     NotificationType.EVENT_ATTENDEE_TICKET_ISSUED,
                     attendee.getEmail(),
                     attendeeData,
                     ticketPdf,
                     fileName
             );
+            record(event, attendee, NotificationChannel.EMAIL, result.isSuccess(), pending, failed);
         }
 
         // ── SMS ───────────────────────────────────────────────────────────────
-        if (shouldSendChannel(event, NotificationChannel.SMS) && attendee.getPhone() != null) {
-            smsService.send(NotificationType.EVENT_ATTENDEE_TICKET_ISSUED, attendee.getPhone(), attendeeData);
+        if (pending.contains(NotificationChannel.SMS) && attendee.getPhone() != null
+                && hasQuota(NotificationChannel.SMS, failed)) {
+            record(event, attendee, NotificationChannel.SMS,
+                    smsService.send(NotificationType.EVENT_ATTENDEE_TICKET_ISSUED, attendee.getPhone(), attendeeData),
+                    pending, failed);
         }
 
         // ── In-App — registered users only ───────────────────────────────────
         if (isRegistered
-                && shouldSendChannel(event, NotificationChannel.IN_APP)
-                && attendee.getUserId() != null) {
-            inAppService.send(NotificationType.EVENT_ATTENDEE_TICKET_ISSUED, attendee.getUserId(), attendeeData);
+                && pending.contains(NotificationChannel.IN_APP)
+                && attendee.getUserId() != null
+                && hasQuota(NotificationChannel.IN_APP, failed)) {
+            record(event, attendee, NotificationChannel.IN_APP,
+                    inAppService.send(NotificationType.EVENT_ATTENDEE_TICKET_ISSUED, attendee.getUserId(), attendeeData),
+                    pending, failed);
         }
 
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Failed on " + failed);
+        }
         log.info("✅ Attendee notification complete for: {}", attendee.getEmail());
     }
 
@@ -221,7 +300,7 @@ public class EventNotificationHandler {
     //  Sends one email with multiple PDF attachments (buyer flow)
     // ──────────────────────────────────────────────────────────────────────────
 
-    private void sendEmailWithMultipleAttachments(
+    private boolean sendEmailWithMultipleAttachments(
             NotificationType type,
             String to,
             Map<String, Object> data,
@@ -248,9 +327,11 @@ public class EventNotificationHandler {
 
             mailSender.send(mimeMessage);
             log.info("✅ Email+{} PDFs sent to: {}", attachments.size(), to);
+            return true;
 
         } catch (Exception e) {
             log.error("❌ Multi-attachment email failed to {}: {}", to, e.getMessage(), e);
+            return false;
         }
     }
 
@@ -321,8 +402,64 @@ public class EventNotificationHandler {
         };
     }
 
-    private boolean shouldSendChannel(NotificationEvent event, NotificationChannel channel) {
-        return event.getChannels() != null && event.getChannels().contains(channel);
+    // The event's channels minus those already delivered to this recipient (e.g. before the
+    // message was requeued), claimed for this send. The list shrinks as record settles them.
+    private List<NotificationChannel> pendingChannels(NotificationEvent event, Recipient recipient) {
+        if (event.getChannels() == null || event.getChannels().isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<DeliveryTask> remaining = idempotencyService.withoutDelivered(List.of(
+                DeliveryTask.builder().event(event).recipient(recipient).build()));
+        List<NotificationChannel> pending = new ArrayList<>(
+                remaining.isEmpty() ? List.of() : remaining.get(0).getEvent().getChannels());
+
+        Map<NotificationChannel, String> keys = new EnumMap<>(NotificationChannel.class);
+        for (NotificationChannel channel : pending) {
+            String key = idempotencyService.key(event, recipient, channel);
+            if (key != null) {
+                keys.put(channel, key);
+            }
+        }
+        Set<String> claimed = idempotencyService.reserve(keys.values());
+        if (claimed.size() < keys.size()) {
+            // Another copy of this event is sending some of them; requeue until it is done
+            claimed.forEach(idempotencyService::release);
+            throw new IllegalStateException("Notification to " + recipient.getEmail() +
+                    " is being sent elsewhere on " + keys.keySet());
+        }
+        return pending;
+    }
+
+    private void record(NotificationEvent event, Recipient recipient, NotificationChannel channel,
+                        boolean sent, List<NotificationChannel> pending, List<NotificationChannel> failed) {
+        pending.remove(channel);
+        String key = idempotencyService.key(event, recipient, channel);
+        if (!sent) {
+            idempotencyService.release(key);
+            failed.add(channel);
+            return;
+        }
+        if (key != null) {
+            idempotencyService.markDelivered(List.of(key));
+        }
+    }
+
+    // Without a token the channel stays pending (its claim is released) and the message is
+    // requeued along with any failures
+    private boolean hasQuota(NotificationChannel channel, List<NotificationChannel> failed) {
+        if (channelSender.acquire(channel)) {
+            return true;
+        }
+        failed.add(channel);
+        return false;
+    }
+
+    // Claims of channels that were never sent, e.g. skipped for lack of an address or cut off
+    // by an exception
+    private void release(NotificationEvent event, Recipient recipient, List<NotificationChannel> pending) {
+        for (NotificationChannel channel : pending) {
+            idempotencyService.release(idempotencyService.key(event, recipient, channel));
+        }
     }
 
     private String str(Map<String, Object> map, String key) {
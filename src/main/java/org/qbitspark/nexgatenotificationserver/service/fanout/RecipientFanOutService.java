@@ -0,0 +1,99 @@
+package org.qbitspark.nexgatenotificationserver.service.fanout;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.FanOutChunk;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.service.progress.CorrelationProgressService;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits events with large recipient lists into chunks on the internal work queue.
+ * Every node consumes that queue (prefetch 1), so a 50k blast is shared by the whole
+ * cluster instead of the executor of whichever node consumed the original message.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipientFanOutService {
+
+    public static final String WORK_QUEUE = "notification.work.queue";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final CorrelationProgressService progressService;
+
+    @Value("${notification.fanout.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.fanout.threshold:1000}")
+    private int threshold;
+
+    @Value("${notification.fanout.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${notification.fanout.max-attempts:5}")
+    private int maxAttempts;
+
+    public boolean shouldFanOut(NotificationEvent event) {
+        return enabled && event.recipientCount() > threshold;
+    }
+
+    /**
+     * @param correlationId used only when the event has no eventId; otherwise the correlationId
+     *                      is derived from it, so a redelivered event (e.g. after publishing
+     *                      failed halfway) resumes its first fan-out instead of starting another
+     */
+    public void fanOut(String correlationId, NotificationEvent event) {
+        if (event.getEventId() != null && !event.getEventId().isBlank()) {
+            correlationId = UUID.nameUUIDFromBytes(("fanout:" + event.getEventId()).getBytes(StandardCharsets.UTF_8))
+                    .toString();
+        }
+        int totalRecipients = event.recipientCount();
+        int totalChunks = (totalRecipients + chunkSize - 1) / chunkSize;
+
+        progressService.start(correlationId, event, totalRecipients, totalChunks);
+
+        log.info("🌐 Fanning out {} recipients as {} chunks of {} (correlationId: {})",
+                totalRecipients, totalChunks, chunkSize, correlationId);
+
+        // Chunks published before a failure are published again; progress counts each chunk once
+        String chunkCorrelationId = correlationId;
+        AtomicInteger chunkNumber = new AtomicInteger();
+        event.forEachRecipientBatch(chunkSize, slice -> publish(FanOutChunk.builder()
+                .correlationId(chunkCorrelationId)
+                .chunkNumber(chunkNumber.incrementAndGet())
+                .totalChunks(totalChunks)
+                .event(event.withRecipients(new ArrayList<>(slice)))
+                .build()));
+    }
+
+    /**
+     * Puts a chunk whose delivery failed back on the work queue with its attempt counted.
+     *
+     * @return false once the chunk has used up max-attempts; the caller dead-letters it
+     */
+    public boolean retry(FanOutChunk chunk) {
+        if (chunk.getAttempt() + 1 >= maxAttempts) {
+            return false;
+        }
+        chunk.setAttempt(chunk.getAttempt() + 1);
+        publish(chunk);
+        return true;
+    }
+
+    private void publish(FanOutChunk chunk) {
+        int messagePriority = NotificationPriority.orDefault(chunk.getEvent().getPriority()).getMessagePriority();
+        rabbitTemplate.convertAndSend("", WORK_QUEUE, chunk, message -> {
+            message.getMessageProperties().setPriority(messagePriority);
+            return message;
+        });
+    }
+}
@@ -0,0 +1,231 @@
+package org.qbitspark.nexgatenotificationserver.service.history;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationHistoryItem;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationHistoryPage;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationHistoryQuery;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.qbitspark.nexgatenotificationserver.service.partition.NotificationPartitionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * History lookups ("what did we send user X") for support, newest first, with keyset
+ * pagination on (created_at, id). Each page is one index range scan, however deep it is.
+ *
+ * Lookups go by userId or by correlationId, each on an index on (key, created_at, id); a
+ * userId lookup filtered by status uses (user_id, status, created_at, id) instead. Other
+ * filters (type, a correlationId next to a userId) are checked on the rows the scan reads.
+ * The indexes are built online on maintenanceExecutor after startup, once the partition
+ * manager's conversion is over, on every partition when the table is partitioned.
+ *
+ * If notification.history.replica.url is set, lookups run on that read-only replica through
+ * their own small pool (replication lag applies); otherwise on the primary. Either way they
+ * run under query-timeout-seconds.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationHistoryService {
+
+    private static final String COLUMNS = "id, correlation_id, event_id, user_id, recipient_email, recipient_phone, " +
+            "recipient_name, type, status, channel_mask, failed_channel_mask, created_at, sent_at";
+
+    private static final String IS_PARTITIONED = "select coalesce((select relkind = 'p' from pg_class " +
+            "where oid = to_regclass('notifications')), false)";
+    // Partitions with no index attached to the given parent index yet
+    private static final String UNINDEXED_PARTITIONS = "select c.relname from pg_inherits i " +
+            "join pg_class c on c.oid = i.inhrelid where i.inhparent = 'notifications'::regclass " +
+            "and not exists (select 1 from pg_inherits ii join pg_index x on x.indexrelid = ii.inhrelid " +
+            "where ii.inhparent = to_regclass(?) and x.indrelid = c.oid)";
+
+    private record Index(String name, String suffix, String definition) {}
+
+    private static final List<Index> INDEXES = List.of(
+            new Index("idx_notifications_user_created", "user_created", "(user_id, created_at, id)"),
+            new Index("idx_notifications_user_status", "user_status", "(user_id, status, created_at, id)"),
+            new Index("idx_notifications_correlation", "correlation", "(correlation_id, created_at, id)"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationPartitionManager partitionManager;
+
+    @Value("${notification.history.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${notification.history.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${notification.history.query-timeout-seconds:5}")
+    private int queryTimeoutSeconds;
+
+    @Value("${notification.history.replica.url:}")
+    private String replicaUrl;
+
+    @Value("${notification.history.replica.username:}")
+    private String replicaUsername;
+
+    @Value("${notification.history.replica.password:}")
+    private String replicaPassword;
+
+    @Value("${notification.history.replica.pool-size:4}")
+    private int replicaPoolSize;
+
+    private HikariDataSource replica;
+    private JdbcTemplate reads;
+
+    @PostConstruct
+    void init() {
+        if (replicaUrl.isBlank()) {
+            reads = new JdbcTemplate(jdbcTemplate.getDataSource());
+        } else {
+            replica = new HikariDataSource();
+            replica.setPoolName("history-replica");
+            replica.setJdbcUrl(replicaUrl);
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            reads = new JdbcTemplate(replica);
+            log.info("📖 Notification history reads go to replica {}", replicaUrl);
+        }
+        reads.setQueryTimeout(queryTimeoutSeconds);
+    }
+
+    @PreDestroy
+    void close() {
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    // ── Lookup ──
+
+    /**
+     * @throws IllegalArgumentException without userId or correlationId, or with a bad cursor
+     */
+    public NotificationHistoryPage find(NotificationHistoryQuery query) {
+        StringBuilder sql = new StringBuilder("select ").append(COLUMNS).append(" from notifications where ");
+        List<Object> args = new ArrayList<>();
+        if (query.getUserId() != null && !query.getUserId().isBlank()) {
+            sql.append("user_id = ?");
+            args.add(query.getUserId());
+            if (query.getCorrelationId() != null && !query.getCorrelationId().isBlank()) {
+                sql.append(" and correlation_id = ?");
+                args.add(query.getCorrelationId());
+            }
+        } else if (query.getCorrelationId() != null && !query.getCorrelationId().isBlank()) {
+            sql.append("correlation_id = ?");
+            args.add(query.getCorrelationId());
+        } else {
+            throw new IllegalArgumentException("userId or correlationId is required");
+        }
+
+        if (query.getType() != null) {
+            sql.append(" and type = ?");
+            args.add(query.getType().name());
+        }
+        if (query.getStatus() != null) {
+            sql.append(" and status = ?");
+            args.add(query.getStatus().name());
+        }
+        // Time bounds also prune partitions
+        if (query.getFrom() != null) {
+            sql.append(" and created_at >= ?");
+            args.add(Timestamp.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            sql.append(" and created_at < ?");
+            args.add(Timestamp.valueOf(query.getTo()));
+        }
+        if (query.getCursor() != null && !query.getCursor().isBlank()) {
+            HistoryCursor cursor = HistoryCursor.decode(query.getCursor());
+            sql.append(" and (created_at, id) < (?, ?)");
+            args.add(Timestamp.valueOf(cursor.createdAt()));
+            args.add(cursor.id());
+        }
+
+        int limit = Math.min(query.getLimit() == null ? defaultLimit : Math.max(1, query.getLimit()), maxLimit);
+        // One extra row tells whether there is a next page
+        sql.append(" order by created_at desc, id desc limit ?");
+        args.add(limit + 1);
+
+        List<NotificationHistoryItem> items = reads.query(sql.toString(), ITEM, args.toArray());
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            NotificationHistoryItem last = items.get(limit - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return NotificationHistoryPage.builder().items(items).nextCursor(nextCursor).build();
+    }
+
+    private static final RowMapper<NotificationHistoryItem> ITEM = (row, i) -> {
+        Timestamp sentAt = row.getTimestamp("sent_at");
+        String type = row.getString("type");
+        String status = row.getString("status");
+        return NotificationHistoryItem.builder()
+                .id(row.getObject("id", UUID.class))
+                .correlationId(row.getString("correlation_id"))
+                .eventId(row.getString("event_id"))
+                .userId(row.getString("user_id"))
+                .recipientEmail(row.getString("recipient_email"))
+                .recipientPhone(row.getString("recipient_phone"))
+                .recipientName(row.getString("recipient_name"))
+                .type(type == null ? null : NotificationType.valueOf(type))
+                .status(status == null ? null : NotificationStatus.valueOf(status))
+                .channels(NotificationChannel.fromMask(row.getInt("channel_mask")))
+                .failedChannels(NotificationChannel.fromMask(row.getInt("failed_channel_mask")))
+                .createdAt(row.getTimestamp("created_at").toLocalDateTime())
+                .sentAt(sentAt == null ? null : sentAt.toLocalDateTime())
+                .build();
+    };
+
+    // ── Indexes ──
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        partitionManager.afterConversion(() -> {
+            try {
+                boolean partitioned = Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class));
+                for (Index index : INDEXES) {
+                    if (partitioned) {
+                        ensurePartitioned(index);
+                    } else {
+                        jdbcTemplate.execute("create index concurrently if not exists " + index.name() +
+                                " on notifications " + index.definition());
+                    }
+                }
+            } catch (DataAccessException e) {
+                log.error("❌ Creating notification history indexes failed, retried on next start: {}", e.getMessage());
+            }
+        });
+    }
+
+    // CONCURRENTLY doesn't work on a partitioned table: declare the index on the parent only,
+    // build it on each partition online and attach it; partitions created later inherit it
+    private void ensurePartitioned(Index index) {
+        jdbcTemplate.execute("create index if not exists " + index.name() + " on only notifications " + index.definition());
+        for (String partition : jdbcTemplate.queryForList(UNINDEXED_PARTITIONS, String.class, index.name())) {
+            String child = partition + "_" + index.suffix();
+            jdbcTemplate.execute("create index concurrently if not exists " + child + " on " + partition + " " +
+                    index.definition());
+            jdbcTemplate.execute("alter index " + index.name() + " attach partition " + child);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package org.qbitspark.nexgatenotificationserver.service.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Remembers which (eventId, recipient, channel) deliveries already went out, so a redelivered
+ * AMQP message or a publisher retry does not send them again or write new rows for them.
+ *
+ * Redis holds the marks (with a TTL) for the whole cluster. In front of it every node keeps a
+ * Bloom filter of all live marks: its own, those announced by other nodes on MARKED_TOPIC,
+ * and, at startup, those already in Redis. A key the filter has never seen was never
+ * delivered, so the common first-delivery check costs no round trip; only possible
+ * duplicates go to Redis. Until the startup scan finishes, every check goes to Redis.
+ *
+ * Before sending, a delivery is claimed with SET NX (reserve), so two copies of an event
+ * processed at the same time cannot both send it. The claim becomes the delivery mark as soon
+ * as that channel's send succeeds, is released when it fails, and otherwise lapses after
+ * reservation-ttl.
+ *
+ * Two filter generations rotate every TTL, so marks older than the TTL age out of memory. Each
+ * generation is sized for marks-per-second x TTL marks unless expected-insertions is set.
+ * Redis errors fail open: a possible duplicate is better than a lost notification.
+ */
+@Slf4j
+@Service
+public class DeliveryIdempotencyService {
+
+    public static final String KEY_PREFIX = "notification:dedupe:";
+    public static final String MARKED_TOPIC = "notification:dedupe:marked";
+
+    private static final String DELIVERED = "1";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ThreadPoolTaskExecutor maintenanceExecutor;
+    private final String claimValue = "reserved:" + UUID.randomUUID();
+
+    @Value("${notification.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${notification.idempotency.reservation-ttl:2m}")
+    private Duration reservationTtl;
+
+    // 0: derived from marks-per-second and the TTL
+    @Value("${notification.idempotency.bloom.expected-insertions:0}")
+    private long expectedInsertions;
+
+    // Peak rate of delivered (recipient, channel) pairs across the cluster
+    @Value("${notification.idempotency.bloom.marks-per-second:100}")
+    private double marksPerSecond;
+
+    @Value("${notification.idempotency.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private DefaultRedisScript<Long> releaseScript;
+    private long generationSize;
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long rotateAtMillis;
+    private volatile boolean warm;
+
+    public DeliveryIdempotencyService(
+            StringRedisTemplate redisTemplate,
+            @Qualifier("maintenanceExecutor") ThreadPoolTaskExecutor maintenanceExecutor) {
+        this.redisTemplate = redisTemplate;
+        this.maintenanceExecutor = maintenanceExecutor;
+    }
+
+    @PostConstruct
+    void init() {
+        releaseScript = new DefaultRedisScript<>();
+        releaseScript.setLocation(new ClassPathResource("scripts/dedupe-release.lua"));
+        releaseScript.setResultType(Long.class);
+        // A generation takes new marks for one TTL
+        generationSize = expectedInsertions > 0
+                ? expectedInsertions
+                : Math.max(1000, (long) Math.ceil(marksPerSecond * ttl.toSeconds()));
+        if (enabled) {
+            log.info("🧠 Dedupe near cache sized for {} marks per generation", generationSize);
+        }
+    }
+
+    /**
+     * @return the tasks still to deliver: fully delivered ones dropped, partly delivered ones
+     *         narrowed to their remaining channels
+     */
+    public List<DeliveryTask> withoutDelivered(List<DeliveryTask> tasks) {
+        if (!enabled) {
+            return tasks;
+        }
+
+        List<String> candidates = new ArrayList<>();
+        for (DeliveryTask task : tasks) {
+            for (NotificationChannel channel : task.getEvent().getChannels()) {
+                String key = key(task.getEvent(), task.getRecipient(), channel);
+                if (key != null && (!warm || mightContain(key))) {
+                    candidates.add(key);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return tasks;
+        }
+
+        Set<String> delivered = lookup(candidates);
+        if (delivered.isEmpty()) {
+            return tasks;
+        }
+
+        List<DeliveryTask> remaining = new ArrayList<>(tasks.size());
+        for (DeliveryTask task : tasks) {
+            NotificationEvent event = task.getEvent();
+            List<NotificationChannel> channels = event.getChannels().stream()
+                    .filter(channel -> !delivered.contains(key(event, task.getRecipient(), channel)))
+                    .toList();
+
+            if (channels.isEmpty()) {
+                log.info("♻️ Skipping duplicate delivery of event {} to {}", event.getEventId(), task.getRecipient().getUserId());
+            } else if (channels.size() == event.getChannels().size()) {
+                remaining.add(task);
+            } else {
+                log.info("♻️ Event {} already delivered to {} on some channels, sending only {}",
+                        event.getEventId(), task.getRecipient().getUserId(), channels);
+                remaining.add(DeliveryTask.builder()
+                        .correlationId(task.getCorrelationId())
+                        .event(event.withChannels(channels))
+                        .recipient(task.getRecipient())
+                        .build());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Claims deliveries for this node right before they are sent. Each claimed key must end in
+     * markDelivered or release; an abandoned claim lapses after reservation-ttl.
+     *
+     * @return the keys claimed; those already delivered or claimed elsewhere are left out, and
+     *         all of them are returned when Redis can't be reached
+     */
+    public Set<String> reserve(Collection<String> keys) {
+        List<String> wanted = keys.stream().filter(Objects::nonNull).distinct().toList();
+        if (!enabled || wanted.isEmpty()) {
+            return new HashSet<>(wanted);
+        }
+
+        byte[] value = claimValue.getBytes(StandardCharsets.UTF_8);
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : wanted) {
+                    connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), value,
+                            Expiration.from(reservationTtl), SetOption.ifAbsent());
+                }
+                return null;
+            });
+            Set<String> claimed = new HashSet<>();
+            for (int i = 0; i < wanted.size(); i++) {
+                if (Boolean.TRUE.equals(results.get(i))) {
+                    claimed.add(wanted.get(i));
+                }
+            }
+            return claimed;
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Claiming {} deliveries failed, sending without a claim: {}", wanted.size(), e.getMessage());
+            return new HashSet<>(wanted);
+        }
+    }
+
+    /**
+     * Gives up this node's claim after a failed send, so a retry can claim it again. A key
+     * already marked delivered, or claimed by another node meanwhile, is left alone; a null
+     * key (a delivery without an eventId) is ignored.
+     */
+    public void release(String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(releaseScript, List.of(key), claimValue);
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Releasing claim {} failed, it lapses in {}: {}", key, reservationTtl, e.getMessage());
+        }
+    }
+
+    /**
+     * For a key reserve didn't return: whether it was delivered, or is still being sent.
+     */
+    public boolean isDelivered(String key) {
+        return lookup(List.of(key)).contains(key);
+    }
+
+    public void markDelivered(List<String> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        keys.forEach(this::remember);
+
+        byte[] value = DELIVERED.getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), value,
+                            Expiration.from(ttl), SetOption.upsert());
+                }
+                return null;
+            });
+            redisTemplate.convertAndSend(MARKED_TOPIC, String.join("\n", keys));
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Failed to record {} delivery marks in Redis: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return null when the event has no eventId, i.e. cannot be deduplicated
+     */
+    public String key(NotificationEvent event, Recipient recipient, NotificationChannel channel) {
+        if (event.getEventId() == null || event.getEventId().isBlank()) {
+            return null;
+        }
+        return KEY_PREFIX + event.getEventId() + ":" + recipient.deliveryKey() + ":" + channel;
+    }
+
+    // Marks announced by other nodes (and echoes of our own)
+    public void onMarked(String keys) {
+        for (String key : keys.split("\n")) {
+            remember(key);
+        }
+    }
+
+    // Subscribed to MARKED_TOPIC before this runs, so no mark can slip between scan and topic
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        maintenanceExecutor.execute(() -> {
+            try {
+                long loaded = redisTemplate.execute((RedisCallback<Long>) connection -> {
+                    long count = 0;
+                    ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+                    try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                        while (cursor.hasNext()) {
+                            remember(new String(cursor.next(), StandardCharsets.UTF_8));
+                            count++;
+                        }
+                    }
+                    return count;
+                });
+                warm = true;
+                log.info("🧠 Dedupe near cache warmed with {} delivery marks", loaded);
+            } catch (DataAccessException e) {
+                log.warn("⚠️ Dedupe near cache warm-up failed, checking Redis for every delivery: {}", e.getMessage());
+            }
+        });
+    }
+
+    private Set<String> lookup(List<String> keys) {
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            Set<String> delivered = new HashSet<>();
+            for (int i = 0; i < keys.size(); i++) {
+                // A claim means a send in progress, not a delivery
+                if (values != null && DELIVERED.equals(values.get(i))) {
+                    delivered.add(keys.get(i));
+                }
+            }
+            return delivered;
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Dedupe lookup failed, delivering without it: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private boolean mightContain(String key) {
+        rotateIfDue();
+        return current.mightContain(key) || previous.mightContain(key);
+    }
+
+    private void remember(String key) {
+        rotateIfDue();
+        current.put(key);
+    }
+
+    // A mark stays in a generation for at least one TTL before that generation is dropped
+    private void rotateIfDue() {
+        if (System.currentTimeMillis() < rotateAtMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (System.currentTimeMillis() < rotateAtMillis) {
+                return;
+            }
+            previous = current != null ? current : new BloomFilter(generationSize, falsePositiveRate);
+            current = new BloomFilter(generationSize, falsePositiveRate);
+            rotateAtMillis = System.currentTimeMillis() + ttl.toMillis();
+        }
+    }
+}
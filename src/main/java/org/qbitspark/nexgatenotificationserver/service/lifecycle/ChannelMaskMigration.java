@@ -0,0 +1,156 @@
+package org.qbitspark.nexgatenotificationserver.service.lifecycle;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.service.partition.NotificationPartitionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Moves notifications from the old channel join tables (notification_entity_channels, and
+ * notification_failed_channels where it exists) to the channel_mask / failed_channel_mask
+ * columns. Databases from before failed-channel tracking only have the first; their rows get
+ * a failed mask of 0.
+ *
+ * Hibernate adds the columns; rows written before that have them null. After startup, once
+ * the partition manager's conversion is over, this fills them in page-size rows per statement
+ * on maintenanceExecutor, and creates the partial index that serves failed-channel queries.
+ * Once no row is left it drops the old tables if drop-legacy-tables is set, otherwise it only
+ * logs that they can go. Safe to run on every node and every start: each step does nothing
+ * once done.
+ *
+ * Code that rewrites a row's masks before the pass has reached it calls backfill(id) first,
+ * so the row isn't saved with the empty masks a null column reads as.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChannelMaskMigration {
+
+    private static final String LEGACY_CHANNELS = "notification_entity_channels";
+    private static final String LEGACY_FAILED = "notification_failed_channels";
+
+    private static final String FAILED_INDEX = "create index concurrently if not exists idx_notifications_failed " +
+            "on notifications (created_at) where failed_channel_mask <> 0";
+
+    private static final String IS_PARTITIONED = "select coalesce((select relkind = 'p' from pg_class " +
+            "where oid = to_regclass('notifications')), false)";
+
+    private static final String SET_CHANNELS = "update notifications as n " +
+            "set channel_mask = coalesce((select bit_or(%s) from " + LEGACY_CHANNELS + " c " +
+            "where c.notification_entity_id = n.id), 0), ";
+    private static final String SET_FAILED = "failed_channel_mask = coalesce((select bit_or(%s) from " +
+            LEGACY_FAILED + " f where f.notification_entity_id = n.id), 0) ";
+    // Databases from before failed-channel tracking have no failed table: nothing failed there
+    private static final String SET_NO_FAILED = "failed_channel_mask = 0 ";
+    private static final String PAGE = "where n.id in (select id from notifications where channel_mask is null " +
+            "limit ? for update skip locked)";
+    private static final String ONE = "where n.id = ? and n.channel_mask is null";
+    private static final String TABLE_EXISTS = "select exists (select 1 from information_schema.tables " +
+            "where table_schema = current_schema() and table_name = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationPartitionManager partitionManager;
+
+    @Value("${notification.migration.channel-mask.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.migration.channel-mask.page-size:5000}")
+    private int pageSize;
+
+    @Value("${notification.migration.channel-mask.drop-legacy-tables:false}")
+    private boolean dropLegacyTables;
+
+    // Set once no row can have null masks any more
+    private volatile boolean complete;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        partitionManager.afterConversion(() -> {
+            try {
+                // A partitioned table got it from NotificationPartitionManager (no CONCURRENTLY there)
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class))) {
+                    jdbcTemplate.execute(FAILED_INDEX);
+                }
+                if (exists(LEGACY_CHANNELS)) {
+                    backfill();
+                }
+            } catch (DataAccessException e) {
+                log.error("❌ Channel mask migration failed, retried on next start: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fills in the masks of one notification the background pass hasn't reached yet; does
+     * nothing for a migrated row. Call it in the transaction that then locks and reads the row.
+     */
+    public void backfill(UUID id) {
+        if (complete) {
+            return;
+        }
+        if (!exists(LEGACY_CHANNELS)) {
+            complete = true;
+            return;
+        }
+        jdbcTemplate.update(setMasks() + ONE, id);
+    }
+
+    // Every row still without masks, page by page; then the legacy tables can go
+    void backfill() {
+        String sql = setMasks() + PAGE;
+        long migrated = 0;
+        int updated;
+        do {
+            updated = jdbcTemplate.update(sql, pageSize);
+            migrated += updated;
+        } while (updated > 0);
+        if (migrated > 0) {
+            log.info("🧮 Moved channels of {} notifications to bitmask columns", migrated);
+        }
+
+        Long pending = jdbcTemplate.queryForObject(
+                "select count(*) from notifications where channel_mask is null", Long.class);
+        if (pending != null && pending > 0) {
+            // Rows another node holds right now; picked up by that node or the next start
+            return;
+        }
+        complete = true;
+        if (dropLegacyTables) {
+            jdbcTemplate.execute("drop table if exists " + LEGACY_CHANNELS);
+            jdbcTemplate.execute("drop table if exists " + LEGACY_FAILED);
+            log.info("🧮 Dropped legacy tables {} and {}", LEGACY_CHANNELS, LEGACY_FAILED);
+        } else {
+            log.info("🧮 All notifications use channel bitmasks; {} and {} are no longer read and can be dropped " +
+                    "(notification.migration.channel-mask.drop-legacy-tables=true)", LEGACY_CHANNELS, LEGACY_FAILED);
+        }
+    }
+
+    private String setMasks() {
+        return SET_CHANNELS.formatted(bitCase("c.channels")) +
+                (exists(LEGACY_FAILED) ? SET_FAILED.formatted(bitCase("f.failed_channels")) : SET_NO_FAILED);
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TABLE_EXISTS, Boolean.class, table));
+    }
+
+    // case <column> when 'EMAIL' then 1 when 'SMS' then 2 ... else 0 end
+    private static String bitCase(String column) {
+        return Arrays.stream(NotificationChannel.values())
+                .map(channel -> "when '" + channel.name() + "' then " + channel.bit())
+                .collect(Collectors.joining(" ", "case " + column + " ", " else 0 end"));
+    }
+}
@@ -0,0 +1,148 @@
+package org.qbitspark.nexgatenotificationserver.service.lifecycle;
+
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.OverflowBatch;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
+import org.qbitspark.nexgatenotificationserver.service.overflow.OverflowJournal;
+import org.qbitspark.nexgatenotificationserver.service.status.StatusWriteBehind;
+import org.springframework.amqp.rabbit.listener.AsyncConsumerStartedEvent;
+import org.springframework.amqp.rabbit.listener.AsyncConsumerStoppedEvent;
+import org.springframework.amqp.rabbit.listener.BlockingQueueConsumer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shutdown sequence for rolling deploys, run before anything else stops:
+ * 1. cancel every listener consumer, so no new messages come in; their channels stay open,
+ *    so the batches still in flight can ack
+ * 2. stop the overflow journal replay, so the drain isn't refilled
+ * 3. wait up to drain-timeout-ms for dispatched batches to finish
+ * 4. checkpoint batches that never got a thread into the overflow journal
+ * 5. write out the final statuses still waiting in StatusWriteBehind, while Rabbit is up for
+ *    their retries
+ * 6. stop the listener containers; closing their channels requeues whatever is still unacked,
+ *    checkpointed batches included (their redelivery is deduplicated)
+ *
+ * Batches still running after that keep their rows in PROCESSING; StaleProcessingRecovery
+ * picks those up on the next start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GracefulShutdownCoordinator implements SmartLifecycle {
+
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final BatchDispatcher batchDispatcher;
+    private final OverflowJournal overflowJournal;
+    private final StatusWriteBehind statusWriteBehind;
+
+    @Value("${notification.shutdown.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    private volatile boolean running;
+    private volatile boolean cancelled;
+    private final Set<BlockingQueueConsumer> consumers = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        log.info("🛑 Shutting down: stopping listeners and draining {} in-flight batches",
+                batchDispatcher.inFlightCount());
+
+        cancelled = true;
+        consumers.forEach(this::cancel);
+        overflowJournal.stopReplay();
+
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        while (batchDispatcher.inFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (batchDispatcher.inFlightCount() == 0) {
+            log.info("✅ All batches drained");
+        } else {
+            checkpointQueued();
+        }
+        statusWriteBehind.stop();
+        listenerRegistry.stop();
+    }
+
+    @EventListener
+    public void onConsumerStarted(AsyncConsumerStartedEvent event) {
+        if (event.getConsumer() instanceof BlockingQueueConsumer consumer) {
+            consumers.add(consumer);
+            if (cancelled) {
+                // Started (e.g. scaled up) while draining
+                cancel(consumer);
+            }
+        }
+    }
+
+    @EventListener
+    public void onConsumerStopped(AsyncConsumerStoppedEvent event) {
+        if (event.getConsumer() instanceof BlockingQueueConsumer consumer) {
+            consumers.remove(consumer);
+        }
+    }
+
+    // basic.cancel only: the broker stops delivering, and the channel stays open for acks
+    private void cancel(BlockingQueueConsumer consumer) {
+        Channel channel = consumer.getChannel();
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        for (String consumerTag : List.copyOf(consumer.getConsumerTags())) {
+            try {
+                channel.basicCancel(consumerTag);
+            } catch (IOException | RuntimeException e) {
+                log.warn("⚠️ Failed to cancel consumer {}: {}", consumerTag, e.getMessage());
+            }
+        }
+    }
+
+    private void checkpointQueued() {
+        List<OverflowBatch> unstarted = batchDispatcher.checkpointQueued();
+        int saved = 0;
+        for (OverflowBatch batch : unstarted) {
+            if (overflowJournal.append(batch.getPriority(), batch.getBatchNumber(), batch.getTasks()) != null) {
+                saved++;
+            } else {
+                log.error("❌ Could not checkpoint batch #{} ({} deliveries); its source message will be redelivered",
+                        batch.getBatchNumber(), batch.getTasks().size());
+            }
+        }
+        log.warn("⏱️ Drain deadline reached: checkpointed {}/{} queued batches, {} still running " +
+                        "(recovered from PROCESSING on next start)",
+                saved, unstarted.size(), batchDispatcher.inFlightCount());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop first, ahead of the listener containers and executors
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,104 @@
+package org.qbitspark.nexgatenotificationserver.service.lifecycle;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.NotificationRepository;
+import org.qbitspark.nexgatenotificationserver.service.idempotency.DeliveryIdempotencyService;
+import org.qbitspark.nexgatenotificationserver.service.retry.ChannelRetryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Finishes notifications a node left in PROCESSING (killed mid-batch, or still running when
+ * the shutdown drain deadline passed). Runs shortly after startup and then periodically, so
+ * rows of a node that never comes back are picked up by the others.
+ *
+ * Channels the idempotency store knows were delivered count as sent; every other channel is
+ * recorded as failed and handed to the channel retry queues, which settle the row's status
+ * as they succeed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StaleProcessingRecovery {
+
+    private final NotificationRepository notificationRepository;
+    private final DeliveryIdempotencyService idempotencyService;
+    private final ChannelRetryService retryService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Comfortably longer than any batch takes, so rows of live batches are never touched
+    @Value("${notification.recovery.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    @Value("${notification.recovery.page-size:200}")
+    private int pageSize;
+
+    private record PendingRetry(NotificationEntity notification, DeliveryTask task, NotificationChannel channel) {}
+
+    @Scheduled(initialDelayString = "${notification.recovery.initial-delay-ms:30000}",
+            fixedDelayString = "${notification.recovery.interval-ms:600000}")
+    public void recover() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+        int recovered = 0;
+        while (true) {
+            List<PendingRetry> retries = new ArrayList<>();
+            Integer claimed = transactionTemplate.execute(status -> {
+                List<NotificationEntity> stale = notificationRepository.findStaleProcessingForUpdate(cutoff, pageSize);
+                stale.forEach(notification -> settle(notification, retries));
+                notificationRepository.saveAll(stale);
+                return stale.size();
+            });
+            // After commit, so a fast retry can't race the row update
+            retries.forEach(retry -> retryService.scheduleRetry(retry.notification(), retry.task(), retry.channel()));
+
+            if (claimed == null || claimed == 0) {
+                break;
+            }
+            recovered += claimed;
+        }
+
+        if (recovered > 0) {
+            log.warn("🩹 Recovered {} notifications left in PROCESSING before {}", recovered, cutoff);
+        }
+    }
+
+    private void settle(NotificationEntity notification, List<PendingRetry> retries) {
+        DeliveryTask task = retryService.taskOf(notification);
+        List<DeliveryTask> remaining = idempotencyService.withoutDelivered(List.of(task));
+        List<NotificationChannel> unsent = remaining.isEmpty()
+                ? List.of()
+                : remaining.get(0).getEvent().getChannels();
+
+        notification.setFailedChannels(new HashSet<>(unsent));
+        if (unsent.isEmpty()) {
+            notification.setStatus(NotificationStatus.SENT);
+        } else if (unsent.size() < notification.getChannels().size()) {
+            notification.setStatus(NotificationStatus.PARTIAL);
+        } else {
+            notification.setStatus(NotificationStatus.FAILED);
+        }
+        if (unsent.size() < notification.getChannels().size() && notification.getSentAt() == null) {
+            notification.setSentAt(LocalDateTime.now());
+        }
+
+        for (NotificationChannel channel : unsent) {
+            if (retryService.isRetryable(channel, task.getRecipient())) {
+                retries.add(new PendingRetry(notification, task, channel));
+            }
+        }
+        log.info("🩹 Notification {} ({}) was stuck in PROCESSING: resending {}",
+                notification.getId(), notification.getType(), unsent);
+    }
+}
@@ -2,16 +2,39 @@ package org.qbitspark.nexgatenotificationserver.service.orchestrator;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.converter.StreamedNotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.FanOutChunk;
 import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.OverflowBatch;
 import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.service.adaptive.AdaptiveBatchController;
 import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchProcessor;
-import org.springframework.beans.factory.annotation.Value;
+import org.qbitspark.nexgatenotificationserver.service.digest.DigestCoalescer;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
+import org.qbitspark.nexgatenotificationserver.service.fanout.RecipientFanOutService;
+import org.qbitspark.nexgatenotificationserver.service.overflow.OverflowJournal;
+import org.qbitspark.nexgatenotificationserver.service.progress.CorrelationProgressService;
+import org.qbitspark.nexgatenotificationserver.service.scheduling.ScheduledDeliveryService;
+import org.qbitspark.nexgatenotificationserver.service.sharding.UserShardRouter;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -19,50 +42,269 @@ import java.util.concurrent.CompletableFuture;
 public class NotificationOrchestrator {
 
     private final NotificationBatchProcessor batchProcessor;
+    private final BatchDispatcher batchDispatcher;
+    private final RecipientFanOutService fanOutService;
+    private final CorrelationProgressService progressService;
+    private final UserShardRouter shardRouter;
+    private final AdaptiveBatchController adaptiveController;
+    private final OverflowJournal overflowJournal;
+    private final ScheduledDeliveryService scheduledDelivery;
+    private final DigestCoalescer digestCoalescer;
 
-    @Value("${notification.batch.size:15}")
-    private int batchSize;
-
-    public void process(NotificationEvent event) {
+    /**
+     * @return completes once every batch of the event has been delivered (or has failed)
+     */
+    public CompletableFuture<Void> process(NotificationEvent event) {
         String correlationId = UUID.randomUUID().toString();
-        List<Recipient> allRecipients = event.getRecipients();
 
         log.info("🚀 Starting notification processing:");
         log.info("   Type: {}", event.getType());
-        log.info("   Total Recipients: {}", allRecipients.size());
+        log.info("   Total Recipients: {}", event.recipientCount());
         log.info("   Channels: {}", event.getChannels());
         log.info("   Priority: {}", event.getPriority());
         log.info("   CorrelationId: {}", correlationId);
 
-        // Split into batches
-        List<List<Recipient>> batches = splitIntoBatches(allRecipients, batchSize);
-        log.info("📦 Split into {} batches (size: {})", batches.size(), batchSize);
+        if (scheduledDelivery.shouldSchedule(event)) {
+            return scheduledDelivery.schedule(correlationId, event);
+        }
+        if (digestCoalescer.shouldCoalesce(event)) {
+            List<Recipient> unheld = digestCoalescer.hold(correlationId, event);
+            if (unheld.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            event = event.withRecipients(unheld);
+        }
+        if (fanOutService.shouldFanOut(event)) {
+            return fanOut(correlationId, event);
+        }
+
+        progressService.begin(correlationId, event);
+        CompletableFuture<Void> completion = dispatchBatches(correlationId, event);
+        completion.whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                log.info("🎉 All batches completed for correlationId: {}", correlationId);
+            } else {
+                log.error("❌ Error processing batches: {}", ex.getMessage(), ex);
+            }
+        });
+        return completion;
+    }
+
+    /**
+     * Batch entry point for batch-consumed queues. Every event keeps its own correlationId,
+     * but recipients from all events are packed into shared batches so a burst of
+     * single-recipient events is persisted and sent as a handful of batches rather than
+     * one executor task per event.
+     *
+     * With sharding enabled, deliveries are routed to the per-user ordered lanes instead.
+     * Either way, events with a future sendAt are stored for later and coalesced types are
+     * held for their digest first.
+     *
+     * @return one future per event (same order), completing once every batch carrying
+     *         one of that event's recipients is done
+     */
+    public List<CompletableFuture<Void>> processAll(List<NotificationEvent> events) {
+        // Null where the event (or what is left of it) goes through processNow
+        List<CompletableFuture<Void>> completions = new ArrayList<>(events.size());
+        List<NotificationEvent> now = new ArrayList<>(events.size());
+        for (NotificationEvent event : events) {
+            try {
+                if (scheduledDelivery.shouldSchedule(event)) {
+                    completions.add(scheduledDelivery.schedule(UUID.randomUUID().toString(), event));
+                    continue;
+                }
+                if (digestCoalescer.shouldCoalesce(event)) {
+                    List<Recipient> unheld = digestCoalescer.hold(UUID.randomUUID().toString(), event);
+                    if (unheld.isEmpty()) {
+                        completions.add(CompletableFuture.completedFuture(null));
+                        continue;
+                    }
+                    event = event.withRecipients(unheld);
+                }
+            } catch (RuntimeException e) {
+                completions.add(failed(event, e));
+                continue;
+            }
+            completions.add(null);
+            now.add(event);
+        }
+        if (now.size() == events.size()) {
+            return processNow(now);
+        }
+
+        Iterator<CompletableFuture<Void>> nowCompletions = processNow(now).iterator();
+        completions.replaceAll(completion -> completion != null ? completion : nowCompletions.next());
+        return completions;
+    }
+
+    private List<CompletableFuture<Void>> processNow(List<NotificationEvent> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        if (shardRouter.isEnabled()) {
+            return shardRouter.route(events);
+        }
+
+        // Batch futures each event depends on, keyed by identity (events are not value objects here)
+        Map<NotificationEvent, List<CompletableFuture<Void>>> futuresByEvent = new IdentityHashMap<>();
+        events.forEach(event -> futuresByEvent.put(event, new ArrayList<>()));
+
+        List<DeliveryTask> tasks = new ArrayList<>();
+        for (NotificationEvent event : events) {
+            String correlationId = UUID.randomUUID().toString();
+            try {
+                if (fanOutService.shouldFanOut(event)) {
+                    futuresByEvent.get(event).add(fanOut(correlationId, event));
+                    continue;
+                }
+                progressService.begin(correlationId, event);
+                if (event instanceof StreamedNotificationEvent) {
+                    // Batched on its own as it is parsed, rather than materialized into the shared batches
+                    futuresByEvent.get(event).add(dispatchBatches(correlationId, event));
+                    continue;
+                }
+                tasks.addAll(toTasks(correlationId, event.getRecipients(), event));
+            } catch (RuntimeException e) {
+                // Only this event fails; the others still go out in the shared batches
+                futuresByEvent.get(event).add(failed(event, e));
+            }
+        }
+
+        log.info("🚀 Starting batched notification processing: {} events, {} deliveries",
+                events.size(), tasks.size());
+
+        // Batch per priority so an URGENT delivery never waits inside a LOW batch
+        Map<NotificationPriority, List<DeliveryTask>> byPriority = new EnumMap<>(NotificationPriority.class);
+        for (DeliveryTask task : tasks) {
+            byPriority.computeIfAbsent(NotificationPriority.orDefault(task.getEvent().getPriority()),
+                    p -> new ArrayList<>()).add(task);
+        }
+
+        // Highest priority first
+        List<NotificationPriority> priorities = new ArrayList<>(byPriority.keySet());
+        Collections.reverse(priorities);
 
-        // Process batches in parallel
+        int batchSize = adaptiveController.batchSize();
+        int batchNumber = 0;
+        for (NotificationPriority priority : priorities) {
+            List<List<DeliveryTask>> batches = splitIntoBatches(byPriority.get(priority), batchSize);
+            log.info("📦 {} priority: split into {} batches (size: {})", priority, batches.size(), batchSize);
+
+            for (List<DeliveryTask> batch : batches) {
+                int number = ++batchNumber;
+                CompletableFuture<Void> future = dispatch(priority, number, () -> batch,
+                        () -> batchProcessor.processTasks(number, batch));
+                Set<NotificationEvent> batchEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+                batch.forEach(task -> batchEvents.add(task.getEvent()));
+                batchEvents.forEach(event -> futuresByEvent.get(event).add(future));
+            }
+        }
+
+        List<CompletableFuture<Void>> completions = events.stream()
+                .map(event -> CompletableFuture.allOf(futuresByEvent.get(event).toArray(new CompletableFuture[0])))
+                .toList();
+
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, ex) -> {
+                    if (ex == null) {
+                        log.info("🎉 All batches completed for {} events", events.size());
+                    } else {
+                        log.error("❌ Error processing batches: {}", ex.getMessage(), ex);
+                    }
+                });
+        return completions;
+    }
+
+    /**
+     * Work-queue entry point: delivers one chunk of a fanned-out event on this node.
+     *
+     * @return completes once the chunk's batches are done and its progress is recorded
+     */
+    public CompletableFuture<Void> processChunk(FanOutChunk chunk) {
+        int recipients = chunk.getEvent().recipientCount();
+        return dispatchBatches(chunk.getCorrelationId(), chunk.getEvent())
+                .thenRun(() -> progressService.recordChunk(chunk.getCorrelationId(), chunk.getChunkNumber(), recipients));
+    }
+
+    // Publishing is the whole local job for a fanned-out event; a broker failure fails the
+    // future so the source message is requeued rather than dropped
+    private CompletableFuture<Void> fanOut(String correlationId, NotificationEvent event) {
+        try {
+            fanOutService.fanOut(correlationId, event);
+            return CompletableFuture.completedFuture(null);
+        } catch (AmqpException e) {
+            log.error("❌ Failed to fan out correlationId {}: {}", correlationId, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Dispatches the event's recipients in batches under an existing correlationId.
+     *
+     * @return completes once every batch is done
+     */
+    public CompletableFuture<Void> dispatchBatches(String correlationId, NotificationEvent event) {
+        // Each batch is dispatched as soon as it is decoded; dispatch blocks while the
+        // executor is full, which also paces decoding of streamed events
+        int batchSize = adaptiveController.batchSize();
         List<CompletableFuture<Void>> futures = new ArrayList<>();
-        for (int i = 0; i < batches.size(); i++) {
-            int batchNumber = i + 1;
-            List<Recipient> batch = batches.get(i);
+        event.forEachRecipientBatch(batchSize, batch -> {
+            int batchNumber = futures.size() + 1;
 
             log.info("⚡ Dispatching batch #{} with {} recipients", batchNumber, batch.size());
-            CompletableFuture<Void> future = batchProcessor.processBatch(
-                    correlationId,
+            futures.add(dispatch(
+                    NotificationPriority.orDefault(event.getPriority()),
                     batchNumber,
-                    batch,
-                    event
-            );
-            futures.add(future);
+                    () -> toTasks(correlationId, batch, event),
+                    () -> batchProcessor.processBatch(correlationId, batchNumber, batch, event)
+            ));
+        });
+        log.info("📦 Dispatched {} batches (size: {})", futures.size(), batchSize);
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    // Past executor capacity, batches below the journal's bypass priority go to the overflow
+    // journal instead of blocking the listener; a journaled batch's future completes when its
+    // replay does. Dispatched batches can be checkpointed to the same journal at shutdown.
+    private CompletableFuture<Void> dispatch(NotificationPriority priority, int batchNumber,
+                                             Supplier<List<DeliveryTask>> tasks, Runnable work) {
+        if (overflowJournal.shouldJournal(priority)) {
+            CompletableFuture<Void> journaled = overflowJournal.append(priority, batchNumber, tasks.get());
+            if (journaled != null) {
+                return journaled;
+            }
+        }
+        return batchDispatcher.dispatch(priority, work, () -> OverflowBatch.builder()
+                .priority(priority)
+                .batchNumber(batchNumber)
+                .tasks(tasks.get())
+                .build());
+    }
+
+    // An event that can't even be turned into deliveries is rejected (dead-lettered) rather than
+    // requeued, unless what failed was capacity or infrastructure
+    private CompletableFuture<Void> failed(NotificationEvent event, RuntimeException e) {
+        if (e instanceof AmqpRejectAndDontRequeueException) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (e instanceof RejectedExecutionException || e instanceof DataAccessException || e instanceof AmqpException) {
+            log.warn("⚠️ Event {} could not be accepted now: {}", event.getEventId(), e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
+        log.error("❌ Event {} is unprocessable: {}", event.getEventId(), e.getMessage(), e);
+        return CompletableFuture.failedFuture(
+                new AmqpRejectAndDontRequeueException("Unprocessable event " + event.getEventId(), e));
+    }
 
-        // Wait for all batches to complete
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .thenRun(() -> {
-                    log.info("🎉 All batches completed for correlationId: {}", correlationId);
-                })
-                .exceptionally(ex -> {
-                    log.error("❌ Error processing batches: {}", ex.getMessage(), ex);
-                    return null;
-                });
+    private List<DeliveryTask> toTasks(String correlationId, List<Recipient> recipients, NotificationEvent event) {
+        return recipients.stream()
+                .map(recipient -> DeliveryTask.builder()
+                        .correlationId(correlationId)
+                        .event(event)
+                        .recipient(recipient)
+                        .build())
+                .toList();
     }
 
     private <T> List<List<T>> splitIntoBatches(List<T> list, int batchSize) {
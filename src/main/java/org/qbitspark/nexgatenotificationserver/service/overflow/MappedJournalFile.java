@@ -0,0 +1,164 @@
+package org.qbitspark.nexgatenotificationserver.service.overflow;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size, memory-mapped, append-only record log with a single reader.
+ *
+ * Layout: an 8-byte header holding the committed read offset, then records of
+ * [int length][int crc32][payload]. Every append also zeroes the length slot after its
+ * record, so recovery stops at the last good record even over bytes left from before a wrap.
+ *
+ * Records are read in append order; commit(offset) marks everything before offset as done.
+ * Once the reader commits everything written, the log wraps back to the start, so space is
+ * only exhausted when the backlog itself outgrows the file.
+ *
+ * Used by OverflowJournal for spilled batches and by StatusWriteBehind as its write-ahead log.
+ */
+public class MappedJournalFile implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    public record Entry(byte[] payload, long endOffset) {}
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean forceOnAppend;
+
+    private long committed;
+    private long readCursor;
+    private long writeOffset;
+    private int unread;
+
+    public MappedJournalFile(Path path, int sizeBytes, boolean forceOnAppend) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        this.forceOnAppend = forceOnAppend;
+        recover();
+    }
+
+    private void recover() {
+        committed = buffer.getLong(0);
+        if (committed < HEADER_BYTES || committed > buffer.capacity()) {
+            committed = HEADER_BYTES;
+        }
+        readCursor = committed;
+
+        long position = committed;
+        while (true) {
+            byte[] payload = readAt(position);
+            if (payload == null) {
+                break;
+            }
+            position += RECORD_HEADER_BYTES + payload.length;
+            unread++;
+        }
+        writeOffset = position;
+    }
+
+    /**
+     * @return false if the record doesn't fit in the remaining space
+     */
+    public synchronized boolean append(byte[] payload) {
+        long end = writeOffset + RECORD_HEADER_BYTES + payload.length;
+        if (end > buffer.capacity()) {
+            return false;
+        }
+        int position = (int) writeOffset;
+        if (end + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt((int) end, 0);
+        }
+        buffer.put(position + RECORD_HEADER_BYTES, payload);
+        buffer.putInt(position + Integer.BYTES, crc(payload));
+        // Length last: a record is only visible to recovery once it is complete
+        buffer.putInt(position, payload.length);
+        if (forceOnAppend) {
+            buffer.force();
+        }
+        writeOffset = end;
+        unread++;
+        return true;
+    }
+
+    /**
+     * @return the next record not yet handed out, or null when the reader has caught up
+     */
+    public synchronized Entry next() {
+        if (readCursor >= writeOffset) {
+            return null;
+        }
+        byte[] payload = readAt(readCursor);
+        if (payload == null) {
+            // Only reachable if the mapping was changed underneath us; stop rather than loop
+            readCursor = writeOffset;
+            return null;
+        }
+        readCursor += RECORD_HEADER_BYTES + payload.length;
+        unread--;
+        return new Entry(payload, readCursor);
+    }
+
+    public synchronized void commit(long offset) {
+        committed = offset;
+        if (committed >= writeOffset && readCursor >= writeOffset) {
+            committed = readCursor = writeOffset = HEADER_BYTES;
+            buffer.putInt(HEADER_BYTES, 0);
+        }
+        buffer.putLong(0, committed);
+        if (forceOnAppend) {
+            buffer.force();
+        }
+    }
+
+    public synchronized boolean hasUnread() {
+        return readCursor < writeOffset;
+    }
+
+    public synchronized int unreadCount() {
+        return unread;
+    }
+
+    /** Bytes appended but not yet committed. */
+    public synchronized long backlogBytes() {
+        return writeOffset - committed;
+    }
+
+    private byte[] readAt(long position) {
+        if (position + RECORD_HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt((int) position);
+        if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get((int) position + RECORD_HEADER_BYTES, payload);
+        if (crc(payload) != buffer.getInt((int) position + Integer.BYTES)) {
+            return null;
+        }
+        return payload;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,275 @@
+package org.qbitspark.nexgatenotificationserver.service.overflow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.OverflowBatch;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchProcessor;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Disk spill-over for batches that arrive while notificationExecutor is full.
+ *
+ * Instead of blocking the listener (and eventually holding the whole burst on heap), the
+ * orchestrator appends such batches to a memory-mapped journal (see MappedJournalFile). A
+ * single replay thread feeds them back through BatchDispatcher in append order as capacity
+ * frees up. While anything is still waiting in the journal, new batches are journaled too, so
+ * they can't overtake it. Batches at bypass-priority or above are never journaled: they take
+ * free capacity ahead of the journal, or wait for it as without one.
+ *
+ * A journaled batch's future completes when its replay finishes, so its message is acked only
+ * then. A record is committed only once its batch has finished, so a restart replays whatever
+ * was journaled or still running, and the broker redelivers the unacked messages of those same
+ * batches: delivery is at least once, and deliveries that already went out are skipped by the
+ * idempotency check. When the journal file is full, dispatch falls back to blocking.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OverflowJournal {
+
+    private final BatchDispatcher batchDispatcher;
+    private final NotificationBatchProcessor batchProcessor;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.overflow.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.overflow.path:./data/overflow.journal}")
+    private String path;
+
+    @Value("${notification.overflow.size-bytes:67108864}")
+    private int sizeBytes;
+
+    // fsync every append and commit; off trades crash safety for throughput (page cache only)
+    @Value("${notification.overflow.force:true}")
+    private boolean force;
+
+    @Value("${notification.overflow.bypass-priority:HIGH}")
+    private NotificationPriority bypassPriority;
+
+    private MappedJournalFile journal;
+    private Thread replayThread;
+    private volatile boolean running;
+
+    // Replayed batches in journal order; committed as a prefix so offsets never skip a batch
+    private final Deque<InFlight> inFlight = new ArrayDeque<>();
+    private final Object signal = new Object();
+
+    // Futures of this run's appends, in journal order; records left by a previous run come
+    // first and have none
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int inherited;
+
+    private record InFlight(long endOffset, CompletableFuture<Void> future) {}
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = new MappedJournalFile(Path.of(path), sizeBytes, force);
+        Gauge.builder("notification.overflow.pending", journal, MappedJournalFile::unreadCount)
+                .description("Journaled batches not yet handed to the executor").register(meterRegistry);
+        Gauge.builder("notification.overflow.bytes", journal, MappedJournalFile::backlogBytes)
+                .description("Journal bytes not yet committed").register(meterRegistry);
+
+        inherited = journal.unreadCount();
+        if (journal.hasUnread()) {
+            log.warn("💾 Overflow journal {} has {} batches from a previous run; replaying once ready",
+                    path, journal.unreadCount());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReplay() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        replayThread = new Thread(this::replayLoop, "overflow-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    /**
+     * Stops handing journaled batches to the executor; they stay in the journal for the next
+     * start. Called at the beginning of shutdown so the drain isn't refilled from here.
+     */
+    public void stopReplay() {
+        running = false;
+        if (replayThread != null) {
+            replayThread.interrupt();
+        }
+    }
+
+    /**
+     * True when a new batch should be journaled rather than dispatched: it is below
+     * bypass-priority, and the executor has no free capacity or earlier batches are still
+     * waiting in the journal.
+     */
+    public boolean shouldJournal(NotificationPriority priority) {
+        return enabled && priority.compareTo(bypassPriority) < 0
+                && (batchDispatcher.availableCapacity() == 0 || journal.hasUnread());
+    }
+
+    /**
+     * @return completes when the batch has been replayed and finished; null if the journal is
+     *         full (or disabled), and the caller dispatches normally then
+     */
+    public CompletableFuture<Void> append(NotificationPriority priority, int batchNumber, List<DeliveryTask> tasks) {
+        if (!enabled) {
+            return null;
+        }
+
+        // The recipient list is dropped from each event: it can be huge (and lazily streamed),
+        // and the task already names the one recipient it is for
+        List<DeliveryTask> compact = tasks.stream()
+                .map(task -> DeliveryTask.builder()
+                        .correlationId(task.getCorrelationId())
+                        .event(task.getEvent().withRecipients(List.of()))
+                        .recipient(task.getRecipient())
+                        .build())
+                .toList();
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(OverflowBatch.builder()
+                    .priority(priority)
+                    .batchNumber(batchNumber)
+                    .tasks(compact)
+                    .build());
+        } catch (IOException e) {
+            log.error("❌ Failed to serialize batch #{} for the overflow journal: {}", batchNumber, e.getMessage());
+            return null;
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (waiting) {
+            if (!journal.append(payload)) {
+                log.warn("⚠️ Overflow journal full ({} bytes pending), blocking for executor capacity instead",
+                        journal.backlogBytes());
+                return null;
+            }
+            waiting.addLast(future);
+        }
+        log.info("💾 Executor saturated, journaled {} batch #{} ({} deliveries)", priority, batchNumber, tasks.size());
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        return future;
+    }
+
+    private void replayLoop() {
+        while (running) {
+            MappedJournalFile.Entry entry;
+            CompletableFuture<Void> appended;
+            synchronized (waiting) {
+                entry = journal.next();
+                if (entry != null && inherited > 0) {
+                    inherited--;
+                    appended = null;
+                } else {
+                    appended = entry == null ? null : waiting.pollFirst();
+                }
+            }
+            if (entry == null) {
+                awaitAppend();
+                continue;
+            }
+
+            OverflowBatch batch;
+            try {
+                batch = objectMapper.readValue(entry.payload(), OverflowBatch.class);
+            } catch (IOException e) {
+                log.error("❌ Dropping unreadable overflow journal record: {}", e.getMessage());
+                track(entry.endOffset(), CompletableFuture.completedFuture(null));
+                if (appended != null) {
+                    // Requeued, so the broker's copy of the message is processed instead
+                    appended.completeExceptionally(new IllegalStateException("Unreadable overflow journal record", e));
+                }
+                continue;
+            }
+
+            if (!running) {
+                // Stopped before it was dispatched: left uncommitted, so the next start replays it
+                break;
+            }
+            log.info("♻️ Replaying journaled {} batch #{} ({} deliveries)",
+                    batch.getPriority(), batch.getBatchNumber(), batch.getTasks().size());
+            // Blocks until the executor has room, which is what paces the replay. Once dispatched
+            // the batch runs, so it is tracked even if replay was stopped in the meantime
+            CompletableFuture<Void> future = batchDispatcher.dispatch(batch.getPriority(),
+                    () -> batchProcessor.processTasks(batch.getBatchNumber(), batch.getTasks()));
+            track(entry.endOffset(), future);
+            if (appended != null) {
+                future.whenComplete((ignored, ex) -> {
+                    if (ex == null) {
+                        appended.complete(null);
+                    } else {
+                        appended.completeExceptionally(ex);
+                    }
+                });
+            }
+        }
+    }
+
+    private void track(long endOffset, CompletableFuture<Void> future) {
+        InFlight replay = new InFlight(endOffset, future);
+        synchronized (inFlight) {
+            inFlight.addLast(replay);
+        }
+        // Failed batches are committed too: the processor has already recorded and retried them
+        future.whenComplete((ignored, ex) -> commitCompleted());
+    }
+
+    private void commitCompleted() {
+        synchronized (inFlight) {
+            long offset = -1;
+            while (!inFlight.isEmpty() && inFlight.peekFirst().future().isDone()) {
+                offset = inFlight.removeFirst().endOffset();
+            }
+            if (offset >= 0) {
+                journal.commit(offset);
+            }
+        }
+    }
+
+    private void awaitAppend() {
+        synchronized (signal) {
+            try {
+                if (!journal.hasUnread()) {
+                    signal.wait(1000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        stopReplay();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package org.qbitspark.nexgatenotificationserver.service.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the notifications table range-partitioned on created_at, one partition per period
+ * (notification.partitioning.period, MONTH or WEEK).
+ *
+ * Once the application is ready, a plain table (fresh install, or one from before
+ * partitioning) is converted in place on maintenanceExecutor, so the index builds and range
+ * check validation never hold up startup or a rolling deploy: it is renamed to
+ * notifications_legacy and attached as the partition for everything before the next period.
+ * Its range check and the indexes the attach needs are built on the live table first, so the
+ * locked step is metadata only. Startup jobs that depend on the table's shape run after it
+ * through afterConversion. Foreign keys into the table (from the
+ * old channel join tables) are dropped: they would pin notifications_legacy, and a partitioned
+ * table can't be referenced by id alone.
+ *
+ * Daily, and right after the conversion, the manager premakes partitions for the next premake
+ * periods. It then detaches every partition that ended more than retention-periods ago,
+ * optionally archives it to a gzipped CSV in archive-dir, and drops it. Old rows go in whole
+ * partitions, with no DELETE and no vacuum debt. A Postgres advisory lock keeps nodes from
+ * doing this at the same time. All of it runs on maintenanceExecutor, never on a scheduler
+ * thread.
+ *
+ * Each detach is its own short transaction under lock-timeout-ms, so traffic never queues
+ * for long behind its table lock; one that times out is retried a few times, then on the
+ * next run.
+ */
+@Slf4j
+@Component
+public class NotificationPartitionManager {
+
+    private static final String TABLE = "notifications";
+    private static final String PARTITION_PREFIX = "notifications_p";
+    private static final String LEGACY_PARTITION = "notifications_legacy";
+    private static final long LOCK_KEY = 0x6e6f7469660001L;
+
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String IS_PARTITIONED = "select coalesce((select relkind = 'p' from pg_class " +
+            "where oid = to_regclass('" + TABLE + "')), false)";
+    private static final String PARTITIONS = "select c.relname, pg_get_expr(c.relpartbound, c.oid) " +
+            "from pg_inherits i join pg_class c on c.oid = i.inhrelid where i.inhparent = '" + TABLE + "'::regclass";
+    // Detached by retention but not yet archived and dropped (e.g. the node stopped in between)
+    private static final String DETACHED = "select c.relname from pg_class c " +
+            "where c.relkind = 'r' and not c.relispartition and c.relnamespace = current_schema()::regnamespace " +
+            "and (c.relname like '" + PARTITION_PREFIX.replace("_", "\\_") + "%' " +
+            "or c.relname = '" + LEGACY_PARTITION + "')";
+    private static final String FOREIGN_KEYS = "select conrelid::regclass::text, conname from pg_constraint " +
+            "where contype = 'f' and confrelid = to_regclass('%s')";
+    private static final int DETACH_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor maintenanceExecutor;
+    // Completes once the startup conversion is over, whether it converted, failed or had nothing to do
+    private final CompletableFuture<Void> converted = new CompletableFuture<>();
+
+    @Value("${notification.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.partitioning.period:MONTH}")
+    private PartitionPeriod period;
+
+    // Periods created ahead of time, so inserts never meet a missing partition
+    @Value("${notification.partitioning.premake:3}")
+    private int premake;
+
+    // Whole periods kept before the current one; 0 keeps everything
+    @Value("${notification.partitioning.retention-periods:12}")
+    private int retentionPeriods;
+
+    // Where dropped partitions are archived first; empty drops them without a copy
+    @Value("${notification.partitioning.archive-dir:}")
+    private String archiveDir;
+
+    @Value("${notification.partitioning.lock-timeout-ms:2000}")
+    private long lockTimeoutMs;
+
+    public NotificationPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("maintenanceExecutor") ThreadPoolTaskExecutor maintenanceExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maintenanceExecutor = maintenanceExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            converted.complete(null);
+            return;
+        }
+        maintenanceExecutor.execute(() -> {
+            try {
+                convertIfNeeded();
+            } catch (DataAccessException e) {
+                log.error("❌ Partitioning {} failed, running on the table as is (retried on next start): {}",
+                        TABLE, e.getMessage());
+                return;
+            } finally {
+                converted.complete(null);
+            }
+            runMaintenance();
+        });
+    }
+
+    /**
+     * Runs {@code job} on maintenanceExecutor once the startup conversion is over, for upkeep
+     * that depends on whether the table is partitioned. Doesn't hold a thread while waiting.
+     */
+    public void afterConversion(Runnable job) {
+        converted.thenRunAsync(job, maintenanceExecutor);
+    }
+
+    // ── Conversion ──
+
+    private void convertIfNeeded() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement sql = connection.createStatement()) {
+                // Session lock on this connection: other nodes starting now wait, then see it done
+                sql.execute("select pg_advisory_lock(" + LOCK_KEY + ")");
+                try {
+                    if (isPartitioned(sql)) {
+                        // Converted before foreign keys were dropped here
+                        dropForeignKeysTo(sql, LEGACY_PARTITION);
+                        return null;
+                    }
+                    // A day of slack: other nodes keep inserting into the plain table meanwhile
+                    String boundary = period.next(LocalDate.now().plusDays(1)).atStartOfDay().format(BOUND);
+                    log.info("🗂️ Partitioning {} by created_at; existing rows become {} (up to {})",
+                            TABLE, LEGACY_PARTITION, boundary);
+
+                    // Online, on the live table: a validated range check lets ATTACH skip its scan
+                    // and SET NOT NULL skip its own; the indexes are picked up by ATTACH
+                    sql.execute("alter table " + TABLE + " drop constraint if exists notifications_legacy_range");
+                    sql.execute("alter table " + TABLE + " add constraint notifications_legacy_range " +
+                            "check (created_at is not null and created_at < '" + boundary + "') not valid");
+                    sql.execute("alter table " + TABLE + " validate constraint notifications_legacy_range");
+                    sql.execute("alter table " + TABLE + " alter column created_at set not null");
+                    sql.execute("create unique index concurrently if not exists notifications_legacy_id_created_at " +
+                            "on " + TABLE + " (id, created_at)");
+                    sql.execute("create index concurrently if not exists idx_notifications_failed " +
+                            "on " + TABLE + " (created_at) where failed_channel_mask <> 0");
+
+                    connection.setAutoCommit(false);
+                    try {
+                        sql.execute("set local lock_timeout = " + lockTimeoutMs);
+                        dropForeignKeysTo(sql, TABLE);
+                        sql.execute("alter table " + TABLE + " rename to " + LEGACY_PARTITION);
+                        sql.execute("alter index idx_notifications_failed rename to notifications_legacy_failed");
+                        sql.execute("create table " + TABLE + " (like " + LEGACY_PARTITION + " including defaults) " +
+                                "partition by range (created_at)");
+                        sql.execute("alter table " + TABLE + " add primary key (id, created_at)");
+                        sql.execute("create index idx_notifications_failed on " + TABLE +
+                                " (created_at) where failed_channel_mask <> 0");
+                        sql.execute("alter table " + TABLE + " attach partition " + LEGACY_PARTITION +
+                                " for values from (minvalue) to ('" + boundary + "')");
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(true);
+                    }
+                    log.info("✅ {} is now partitioned by {}", TABLE, period);
+                } finally {
+                    sql.execute("select pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+            return null;
+        });
+    }
+
+    private static boolean isPartitioned(Statement sql) throws SQLException {
+        try (ResultSet result = sql.executeQuery(IS_PARTITIONED)) {
+            return result.next() && result.getBoolean(1);
+        }
+    }
+
+    // The old channel join tables reference notifications(id); nothing reads through the keys
+    private static void dropForeignKeysTo(Statement sql, String table) throws SQLException {
+        List<String[]> keys = new ArrayList<>();
+        try (ResultSet result = sql.executeQuery(FOREIGN_KEYS.formatted(table))) {
+            while (result.next()) {
+                keys.add(new String[] {result.getString(1), result.getString(2)});
+            }
+        }
+        for (String[] key : keys) {
+            sql.execute("alter table " + key[0] + " drop constraint " + key[1]);
+            log.info("🗂️ Dropped foreign key {} of {} into {}", key[1], key[0], table);
+        }
+    }
+
+    // ── Maintenance ──
+
+    @Scheduled(cron = "${notification.partitioning.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (enabled) {
+            maintenanceExecutor.execute(this::runMaintenance);
+        }
+    }
+
+    private void runMaintenance() {
+        try {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class))) {
+                return;
+            }
+            Boolean locked = transactionTemplate.execute(status -> {
+                if (!tryLock()) {
+                    return false;
+                }
+                createAhead();
+                return true;
+            });
+            if (Boolean.TRUE.equals(locked)) {
+                detachExpired();
+            }
+            jdbcTemplate.queryForList(DETACHED, String.class).forEach(this::retire);
+        } catch (DataAccessException | UncheckedIOException e) {
+            log.error("❌ Partition maintenance of {} failed: {}", TABLE, e.getMessage());
+        }
+    }
+
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query(PARTITIONS, (row, i) -> new Partition(row.getString(1), upperBound(row.getString(2))));
+    }
+
+    private record Partition(String name, LocalDateTime upperBound) {}
+
+    private void createAhead() {
+        LocalDate today = LocalDate.now();
+        LocalDate until = period.plus(period.start(today), premake + 1);
+        // Continue from the newest partition, so a node that was down for a while fills the gap
+        LocalDate from = partitions().stream()
+                .map(Partition::upperBound)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .map(LocalDateTime::toLocalDate)
+                .orElse(period.start(today));
+
+        while (from.isBefore(until)) {
+            LocalDate to = period.next(from);
+            String name = PARTITION_PREFIX + from.format(DateTimeFormatter.BASIC_ISO_DATE);
+            jdbcTemplate.execute("create table if not exists %s partition of %s for values from ('%s') to ('%s')"
+                    .formatted(name, TABLE, from.atStartOfDay().format(BOUND), to.atStartOfDay().format(BOUND)));
+            log.info("🗂️ Created partition {} [{}, {})", name, from, to);
+            from = to;
+        }
+    }
+
+    private void detachExpired() {
+        if (retentionPeriods <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = period.plus(period.start(LocalDate.now()), -retentionPeriods).atStartOfDay();
+        for (Partition partition : partitions()) {
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff) && detach(partition.name())) {
+                log.info("🗂️ Detached partition {} (ended {}, retention cutoff {})",
+                        partition.name(), partition.upperBound(), cutoff);
+            }
+        }
+    }
+
+    // DETACH takes ACCESS EXCLUSIVE on the parent, and every query on it waits while the detach
+    // does: give up after lock-timeout-ms and try again once the long queries in the way are done
+    private boolean detach(String partition) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    jdbcTemplate.execute("set local lock_timeout = " + lockTimeoutMs);
+                    if (!tryLock()) {
+                        return false;
+                    }
+                    jdbcTemplate.execute("alter table " + TABLE + " detach partition " + partition);
+                    return true;
+                }));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= DETACH_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("⏳ Detaching {} timed out waiting for its lock (attempt {}/{}), retrying",
+                        partition, attempt, DETACH_ATTEMPTS);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(attempt * 5L));
+            }
+        }
+    }
+
+    // Archive (if configured) and drop in one transaction: a failed archive keeps the table
+    private void retire(String table) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!tryLock()) {
+                return;
+            }
+            if (!archiveDir.isBlank()) {
+                archive(table);
+            }
+            jdbcTemplate.execute("drop table if exists " + table);
+            log.info("🗑️ Dropped expired partition {}", table);
+        });
+    }
+
+    // ── Archive ──
+
+    private void archive(String table) {
+        Path file = Path.of(archiveDir).resolve(table + ".csv.gz");
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        // Own template for the fetch size: inside the transaction pgjdbc streams with a cursor
+        JdbcTemplate streaming = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        streaming.setFetchSize(5000);
+        try {
+            Files.createDirectories(file.getParent());
+            long rows;
+            try (Writer out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(partial)),
+                    StandardCharsets.UTF_8)) {
+                rows = streaming.query("select * from " + table, (ResultSetExtractor<Long>) result -> writeCsv(result, out));
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("📦 Archived {} rows of {} to {}", rows, table, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archiving " + table + " failed", e);
+        }
+    }
+
+    private static long writeCsv(ResultSet result, Writer out) throws SQLException {
+        try {
+            ResultSetMetaData columns = result.getMetaData();
+            int count = columns.getColumnCount();
+            for (int i = 1; i <= count; i++) {
+                out.write((i > 1 ? "," : "") + columns.getColumnName(i));
+            }
+            out.write('\n');
+            long rows = 0;
+            while (result.next()) {
+                for (int i = 1; i <= count; i++) {
+                    if (i > 1) {
+                        out.write(',');
+                    }
+                    String value = result.getString(i);
+                    if (value != null) {
+                        out.write('"' + value.replace("\"", "\"\"") + '"');
+                    }
+                }
+                out.write('\n');
+                rows++;
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Upper bound of a range partition from pg_get_expr(relpartbound), e.g.
+     * {@code FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')}; null for
+     * MAXVALUE or a default partition.
+     */
+    static LocalDateTime upperBound(String partitionBound) {
+        if (partitionBound == null) {
+            return null;
+        }
+        Matcher matcher = UPPER_BOUND.matcher(partitionBound);
+        return matcher.find() ? LocalDateTime.parse(matcher.group(1), BOUND) : null;
+    }
+}
@@ -0,0 +1,46 @@
+package org.qbitspark.nexgatenotificationserver.service.partition;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Span of one notifications partition. Partitions start at the beginning of a period
+ * (Monday for WEEK, the 1st for MONTH) and end where the next one starts.
+ */
+public enum PartitionPeriod {
+
+    WEEK {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.with(DayOfWeek.MONDAY);
+        }
+
+        @Override
+        public LocalDate plus(LocalDate start, int periods) {
+            return start.plusWeeks(periods);
+        }
+    },
+
+    MONTH {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate plus(LocalDate start, int periods) {
+            return start.plusMonths(periods);
+        }
+    };
+
+    /** Start of the period containing {@code date}. */
+    public abstract LocalDate start(LocalDate date);
+
+    /** {@code start} moved by {@code periods} (negative goes back). */
+    public abstract LocalDate plus(LocalDate start, int periods);
+
+    /** Start of the period after the one containing {@code date}. */
+    public LocalDate next(LocalDate date) {
+        return plus(start(date), 1);
+    }
+}
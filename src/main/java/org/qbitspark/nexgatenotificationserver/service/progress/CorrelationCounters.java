@@ -0,0 +1,149 @@
+package org.qbitspark.nexgatenotificationserver.service.progress;
+
+import org.qbitspark.nexgatenotificationserver.dto.CorrelationProgress;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-correlation counters, updated from every batch thread. LongAdders (and channel maps
+ * that are filled once and never resized) keep concurrent batches from contending.
+ */
+class CorrelationCounters {
+
+    final String eventId;
+    final NotificationType type;
+    final long expected;   // -1 = unknown, never completes locally
+    final LocalDateTime startedAt = LocalDateTime.now();
+    final AtomicBoolean completed = new AtomicBoolean();
+    volatile LocalDateTime completedAt;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder partial = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final Map<NotificationChannel, LongAdder> sentByChannel = adders();
+    private final Map<NotificationChannel, LongAdder> failedByChannel = adders();
+
+    // Counts already added to the shared progress (fanned-out correlations)
+    private long flushedSent;
+    private long flushedPartial;
+    private long flushedFailed;
+    private long flushedSkipped;
+    private long flushedDeferred;
+    private final Map<NotificationChannel, Long> flushedSentByChannel = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, Long> flushedFailedByChannel = new EnumMap<>(NotificationChannel.class);
+
+    /** Counts recorded since the previous drain; channel maps hold only non-zero deltas. */
+    record Deltas(long sent, long partial, long failed, long skipped, long deferred,
+                  Map<NotificationChannel, Long> sentByChannel, Map<NotificationChannel, Long> failedByChannel) {
+
+        static final Deltas NONE = new Deltas(0, 0, 0, 0, 0, Map.of(), Map.of());
+    }
+
+    CorrelationCounters(String eventId, NotificationType type, long expected) {
+        this.eventId = eventId;
+        this.type = type;
+        this.expected = expected;
+    }
+
+    void record(NotificationStatus status, Map<NotificationChannel, Boolean> channelResults) {
+        // Channels first: the status count is what completes the correlation, and the
+        // completion snapshot must already include this recipient's channels
+        channelResults.forEach((channel, success) ->
+                (success ? sentByChannel : failedByChannel).get(channel).increment());
+        switch (status) {
+            case SENT -> sent.increment();
+            case PARTIAL -> partial.increment();
+            case PENDING -> deferred.increment();
+            default -> failed.increment();
+        }
+    }
+
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    long processed() {
+        return sent.sum() + partial.sum() + failed.sum() + skipped.sum() + deferred.sum();
+    }
+
+    boolean isDone() {
+        return expected >= 0 && processed() >= expected;
+    }
+
+    synchronized Deltas drainDeltas() {
+        long s = sent.sum(), p = partial.sum(), f = failed.sum(), k = skipped.sum(), d = deferred.sum();
+        Deltas deltas = new Deltas(s - flushedSent, p - flushedPartial, f - flushedFailed, k - flushedSkipped,
+                d - flushedDeferred,
+                drain(sentByChannel, flushedSentByChannel), drain(failedByChannel, flushedFailedByChannel));
+        flushedSent = s;
+        flushedPartial = p;
+        flushedFailed = f;
+        flushedSkipped = k;
+        flushedDeferred = d;
+        return deltas;
+    }
+
+    private static Map<NotificationChannel, Long> drain(Map<NotificationChannel, LongAdder> adders,
+                                                        Map<NotificationChannel, Long> flushed) {
+        Map<NotificationChannel, Long> deltas = new EnumMap<>(NotificationChannel.class);
+        adders.forEach((channel, adder) -> {
+            long sum = adder.sum();
+            long delta = sum - flushed.getOrDefault(channel, 0L);
+            if (delta > 0) {
+                deltas.put(channel, delta);
+                flushed.put(channel, sum);
+            }
+        });
+        return deltas;
+    }
+
+    CorrelationProgress snapshot(String correlationId) {
+        long s = sent.sum(), p = partial.sum(), f = failed.sum(), k = skipped.sum(), d = deferred.sum();
+        return CorrelationProgress.builder()
+                .correlationId(correlationId)
+                .eventId(eventId)
+                .type(type)
+                .totalRecipients(expected >= 0 ? expected : null)
+                .processed(s + p + f + k + d)
+                .sent(s)
+                .partial(p)
+                .failed(f)
+                .skipped(k)
+                .deferred(d)
+                .sentByChannel(sums(sentByChannel))
+                .failedByChannel(sums(failedByChannel))
+                .completed(completed.get())
+                .startedAt(startedAt)
+                .completedAt(completedAt)
+                .build();
+    }
+
+    private static Map<NotificationChannel, LongAdder> adders() {
+        Map<NotificationChannel, LongAdder> adders = new EnumMap<>(NotificationChannel.class);
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            adders.put(channel, new LongAdder());
+        }
+        return Collections.unmodifiableMap(adders);
+    }
+
+    private static Map<NotificationChannel, Long> sums(Map<NotificationChannel, LongAdder> adders) {
+        Map<NotificationChannel, Long> sums = new EnumMap<>(NotificationChannel.class);
+        adders.forEach((channel, adder) -> {
+            long sum = adder.sum();
+            if (sum > 0) {
+                sums.put(channel, sum);
+            }
+        });
+        return sums;
+    }
+}
@@ -0,0 +1,352 @@
+package org.qbitspark.nexgatenotificationserver.service.progress;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.CorrelationProgress;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.entity.CorrelationProgressEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.CorrelationChunkRepository;
+import org.qbitspark.nexgatenotificationserver.repository.CorrelationProgressRepository;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks delivery progress per correlationId.
+ *
+ * Locally processed events are counted in memory (CorrelationCounters) and complete when
+ * every recipient has an outcome. Fanned-out events span nodes, so each node adds its counts
+ * to the shared correlation_progress row as it finishes a chunk (once per chunk, however
+ * often it is redelivered), and whoever finishes the last chunk completes it. Either way the
+ * completion is published once to notification.exchange as notification.correlation.completed.
+ *
+ * At most max-tracked correlations are held in memory; past that the finished ones go first,
+ * oldest first, then the oldest unfinished ones. A finished or evicted correlation's snapshot
+ * is kept in Redis for retention-minutes, so it stays queryable from every node. Per-channel
+ * counts of fanned-out correlations are added to a Redis hash once the chunk's row update
+ * commits; if Redis is down that chunk's channel counts are lost, the status counts are not.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CorrelationProgressService {
+
+    public static final String NOTIFICATION_EXCHANGE = "notification.exchange";
+    public static final String COMPLETED_ROUTING_KEY = "notification.correlation.completed";
+
+    private static final String KEY_PREFIX = "notification:progress:";
+    private static final String EVENT_KEY_PREFIX = "notification:progress:event:";
+    private static final String CHANNELS_SUFFIX = ":channels";
+
+    private final CorrelationProgressRepository progressRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final CorrelationChunkRepository chunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    // How long finished (and abandoned) correlations stay queryable
+    @Value("${notification.progress.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${notification.progress.max-tracked:100000}")
+    private int maxTracked;
+
+    private final Map<String, CorrelationCounters> correlations = new ConcurrentHashMap<>();
+    private final Map<String, String> correlationByEventId = new ConcurrentHashMap<>();
+
+    // ── Local correlations ──
+
+    public void begin(String correlationId, NotificationEvent event) {
+        CorrelationCounters counters = new CorrelationCounters(event.getEventId(), event.getType(), event.recipientCount());
+        correlations.put(correlationId, counters);
+        trimIfFull();
+        if (event.getEventId() != null) {
+            correlationByEventId.put(event.getEventId(), correlationId);
+        }
+        completeIfDone(correlationId, counters);
+    }
+
+    public void recordDelivery(DeliveryTask task, NotificationStatus status,
+                               Map<NotificationChannel, Boolean> channelResults) {
+        CorrelationCounters counters = countersFor(task);
+        counters.record(status, channelResults);
+        completeIfDone(task.getCorrelationId(), counters);
+    }
+
+    public void recordSkipped(DeliveryTask task) {
+        CorrelationCounters counters = countersFor(task);
+        counters.recordSkipped();
+        completeIfDone(task.getCorrelationId(), counters);
+    }
+
+    // Chunks of fanned-out events, campaign pages and shard lanes have no local total:
+    // they are counted here but never complete on their own
+    private CorrelationCounters countersFor(DeliveryTask task) {
+        CorrelationCounters counters = correlations.get(task.getCorrelationId());
+        if (counters == null) {
+            counters = correlations.computeIfAbsent(task.getCorrelationId(), id ->
+                    new CorrelationCounters(task.getEvent().getEventId(), task.getEvent().getType(), -1));
+            trimIfFull();
+        }
+        return counters;
+    }
+
+    private void completeIfDone(String correlationId, CorrelationCounters counters) {
+        if (!counters.isDone() || !counters.completed.compareAndSet(false, true)) {
+            return;
+        }
+        counters.completedAt = LocalDateTime.now();
+        CorrelationProgress progress = counters.snapshot(correlationId);
+        log.info("🏁 CorrelationId {} completed: {} sent, {} partial, {} failed, {} skipped",
+                correlationId, progress.getSent(), progress.getPartial(), progress.getFailed(), progress.getSkipped());
+        store(progress);
+        publishCompleted(progress);
+    }
+
+    // ── Fanned-out correlations ──
+
+    // Starting again under the same correlationId (a redelivered fan-out) keeps the existing row
+    public void start(String correlationId, NotificationEvent event, int totalRecipients, int totalChunks) {
+        if (progressRepository.insertIfAbsent(correlationId, event.getEventId(),
+                event.getType() == null ? null : event.getType().name(),
+                totalRecipients, totalChunks, LocalDateTime.now()) == 0) {
+            log.info("♻️ Resuming fan-out progress of correlationId {}", correlationId);
+        }
+        if (event.getEventId() != null) {
+            correlationByEventId.put(event.getEventId(), correlationId);
+        }
+    }
+
+    /**
+     * Adds a finished chunk's counts to the shared row, once per (correlationId, chunkNumber):
+     * the counts of a redelivered chunk are dropped.
+     */
+    public void recordChunk(String correlationId, int chunkNumber, int recipients) {
+        // Counts of every chunk of this correlation finished here since the last flush
+        CorrelationCounters counters = correlations.get(correlationId);
+        CorrelationCounters.Deltas deltas = counters == null ? CorrelationCounters.Deltas.NONE : counters.drainDeltas();
+
+        ChunkOutcome outcome = transactionTemplate.execute(status -> {
+            if (chunkRepository.claim(correlationId, chunkNumber, LocalDateTime.now()) == 0) {
+                log.info("♻️ Chunk {} of correlationId {} was already counted", chunkNumber, correlationId);
+                return ChunkOutcome.DUPLICATE;
+            }
+            progressRepository.recordChunk(correlationId, recipients,
+                    deltas.sent(), deltas.partial(), deltas.failed(), deltas.skipped(), deltas.deferred());
+            if (progressRepository.markCompleted(correlationId, LocalDateTime.now()) != 1) {
+                return ChunkOutcome.COUNTED;
+            }
+            // Late redeliveries can't add counts to a completed row, so the claims can go
+            chunkRepository.deleteByCorrelation(correlationId);
+            return ChunkOutcome.COMPLETED;
+        });
+
+        if (outcome != null && outcome != ChunkOutcome.DUPLICATE) {
+            addChannelCounts(correlationId, deltas);
+        }
+        if (outcome == ChunkOutcome.COMPLETED) {
+            log.info("🏁 All chunks completed cluster-wide for correlationId: {}", correlationId);
+            progressRepository.findById(correlationId).map(this::toProgress).ifPresent(this::publishCompleted);
+        }
+    }
+
+    private enum ChunkOutcome { DUPLICATE, COUNTED, COMPLETED }
+
+    // Once per counted chunk, after its row update committed
+    private void addChannelCounts(String correlationId, CorrelationCounters.Deltas deltas) {
+        if (deltas.sentByChannel().isEmpty() && deltas.failedByChannel().isEmpty()) {
+            return;
+        }
+        byte[] key = (KEY_PREFIX + correlationId + CHANNELS_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                deltas.sentByChannel().forEach((channel, count) -> connection.hashCommands()
+                        .hIncrBy(key, ("sent:" + channel).getBytes(StandardCharsets.UTF_8), count));
+                deltas.failedByChannel().forEach((channel, count) -> connection.hashCommands()
+                        .hIncrBy(key, ("failed:" + channel).getBytes(StandardCharsets.UTF_8), count));
+                // Unfinished correlations get ten retention periods, as in memory
+                connection.keyCommands().expire(key, Duration.ofMinutes(retentionMinutes * 10).toSeconds());
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Failed to add channel counts of correlationId {}: {}", correlationId, e.getMessage());
+        }
+    }
+
+    // ── Queries ──
+
+    public Optional<CorrelationProgress> find(String correlationId) {
+        CorrelationCounters counters = correlations.get(correlationId);
+        if (counters != null && counters.expected >= 0) {
+            return Optional.of(counters.snapshot(correlationId));
+        }
+        // Fanned out: the shared row is the cluster-wide view, local counters only this node's share
+        Optional<CorrelationProgress> shared = progressRepository.findById(correlationId).map(this::toProgress);
+        if (shared.isPresent()) {
+            return shared;
+        }
+        if (counters != null) {
+            return Optional.of(counters.snapshot(correlationId));
+        }
+        return stored(correlationId);
+    }
+
+    public Optional<CorrelationProgress> findByEventId(String eventId) {
+        String correlationId = correlationByEventId.get(eventId);
+        if (correlationId == null) {
+            try {
+                correlationId = redisTemplate.opsForValue().get(EVENT_KEY_PREFIX + eventId);
+            } catch (DataAccessException e) {
+                log.warn("⚠️ Progress lookup of event {} failed: {}", eventId, e.getMessage());
+            }
+        }
+        return Optional.ofNullable(correlationId).flatMap(this::find);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        correlations.entrySet().removeIf(entry -> {
+            CorrelationCounters counters = entry.getValue();
+            LocalDateTime last = counters.completedAt != null ? counters.completedAt : counters.startedAt;
+            // Unfinished ones get ten retention periods before they're given up on
+            boolean expired = counters.completedAt != null
+                    ? last.isBefore(cutoff)
+                    : last.isBefore(LocalDateTime.now().minusMinutes(retentionMinutes * 10));
+            if (expired) {
+                forget(entry.getKey(), counters);
+            }
+            return expired;
+        });
+    }
+
+    // Finished ones first (oldest first), then the oldest unfinished, down to 90% of max-tracked
+    private void trimIfFull() {
+        if (correlations.size() <= maxTracked) {
+            return;
+        }
+        synchronized (this) {
+            int excess = correlations.size() - maxTracked * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<String, CorrelationCounters>> evicted = correlations.entrySet().stream()
+                    .sorted(Comparator.<Map.Entry<String, CorrelationCounters>, Boolean>comparing(
+                                    entry -> entry.getValue().completedAt == null)
+                            .thenComparing(entry -> entry.getValue().completedAt != null
+                                    ? entry.getValue().completedAt : entry.getValue().startedAt))
+                    .limit(excess)
+                    .toList();
+            for (Map.Entry<String, CorrelationCounters> entry : evicted) {
+                CorrelationCounters counters = entry.getValue();
+                if (counters.completedAt == null) {
+                    // Completed ones are already in Redis
+                    store(counters.snapshot(entry.getKey()));
+                }
+                correlations.remove(entry.getKey(), counters);
+                forget(entry.getKey(), counters);
+            }
+            log.info("🧹 Progress of {} correlations moved out of memory (max-tracked {})", evicted.size(), maxTracked);
+        }
+    }
+
+    private void forget(String correlationId, CorrelationCounters counters) {
+        if (counters.eventId != null) {
+            correlationByEventId.remove(counters.eventId, correlationId);
+        }
+    }
+
+    private void store(CorrelationProgress progress) {
+        Duration retention = Duration.ofMinutes(retentionMinutes);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + progress.getCorrelationId(),
+                    objectMapper.writeValueAsString(progress), retention);
+            if (progress.getEventId() != null) {
+                redisTemplate.opsForValue().set(EVENT_KEY_PREFIX + progress.getEventId(),
+                        progress.getCorrelationId(), retention);
+            }
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.warn("⚠️ Failed to keep progress of correlationId {}: {}", progress.getCorrelationId(), e.getMessage());
+        }
+    }
+
+    private Optional<CorrelationProgress> stored(String correlationId) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + correlationId);
+            return json == null ? Optional.empty() : Optional.of(objectMapper.readValue(json, CorrelationProgress.class));
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.warn("⚠️ Progress lookup of correlationId {} failed: {}", correlationId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Map<NotificationChannel, Long>[] channelCounts(String correlationId) {
+        Map<NotificationChannel, Long> sent = new EnumMap<>(NotificationChannel.class);
+        Map<NotificationChannel, Long> failed = new EnumMap<>(NotificationChannel.class);
+        try {
+            redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + correlationId + CHANNELS_SUFFIX)
+                    .forEach((field, count) -> {
+                        String[] parts = field.split(":", 2);
+                        NotificationChannel channel = NotificationChannel.valueOf(parts[1]);
+                        ("sent".equals(parts[0]) ? sent : failed).put(channel, Long.parseLong(count));
+                    });
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Channel counts of correlationId {} unavailable: {}", correlationId, e.getMessage());
+        }
+        @SuppressWarnings("unchecked")
+        Map<NotificationChannel, Long>[] counts = new Map[]{sent, failed};
+        return counts;
+    }
+
+    private CorrelationProgress toProgress(CorrelationProgressEntity entity) {
+        Map<NotificationChannel, Long>[] channels = channelCounts(entity.getCorrelationId());
+        return CorrelationProgress.builder()
+                .correlationId(entity.getCorrelationId())
+                .eventId(entity.getEventId())
+                .type(entity.getType())
+                .totalRecipients((long) entity.getTotalRecipients())
+                .processed(entity.getProcessedRecipients())
+                .sent(entity.getSent())
+                .partial(entity.getPartial())
+                .failed(entity.getFailed())
+                .skipped(entity.getSkipped())
+                .deferred(entity.getDeferred())
+                .sentByChannel(channels[0])
+                .failedByChannel(channels[1])
+                .completed(entity.getCompletedAt() != null)
+                .startedAt(entity.getCreatedAt())
+                .completedAt(entity.getCompletedAt())
+                .build();
+    }
+
+    private void publishCompleted(CorrelationProgress progress) {
+        try {
+            rabbitTemplate.convertAndSend(NOTIFICATION_EXCHANGE, COMPLETED_ROUTING_KEY, progress);
+        } catch (AmqpException e) {
+            log.error("❌ Failed to publish completion of correlationId {}: {}",
+                    progress.getCorrelationId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.qbitspark.nexgatenotificationserver.service.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vendor quotas as token buckets shared by every node through Redis (token-bucket.lua).
+ *
+ * Each node takes tokens from Redis a few at a time (prefetch) and hands them out locally,
+ * so most sends never touch the network. Prefetched tokens are dropped after a second,
+ * which keeps an idle node from sitting on quota the others could use.
+ *
+ * Tokens are taken through ChannelSender.acquire before a send gets its bulkhead thread or
+ * provider slot. A send without a token waits for one, up to max-wait-ms; after that
+ * acquire() returns false and the send is deferred to the retry queues without using up an
+ * attempt or counting as failed. Providers without a configured rate are not limited. If
+ * Redis is unavailable, sends are let through (fail open).
+ *
+ * notification.ratelimit.<provider>.rate-per-second / .burst (default: one second's worth)
+ */
+@Slf4j
+@Component
+public class ProviderRateLimiter {
+
+    private static final String KEY_PREFIX = "notification:ratelimit:";
+    private static final long PREFETCH_TTL_MS = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final DefaultRedisScript<List> script;
+    private final boolean enabled;
+    private final int prefetch;
+    private final long maxWaitMs;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public ProviderRateLimiter(StringRedisTemplate redisTemplate, Environment environment, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.script = new DefaultRedisScript<>();
+        this.script.setLocation(new ClassPathResource("scripts/token-bucket.lua"));
+        this.script.setResultType(List.class);
+        this.enabled = environment.getProperty("notification.ratelimit.enabled", Boolean.class, true);
+        this.prefetch = environment.getProperty("notification.ratelimit.prefetch", Integer.class, 10);
+        this.maxWaitMs = environment.getProperty("notification.ratelimit.max-wait-ms", Long.class, 5000L);
+    }
+
+    /**
+     * Takes {@code permits} tokens for {@code provider}, waiting up to max-wait-ms for them.
+     *
+     * @return false if they couldn't be had in time; the caller should reschedule the send
+     */
+    public boolean acquire(String provider, int permits) {
+        if (!enabled) {
+            return true;
+        }
+        Bucket bucket = buckets.computeIfAbsent(provider, this::bucket);
+        if (bucket.ratePerSecond <= 0) {
+            return true;
+        }
+
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        boolean waited = false;
+        int taken = 0;
+        while (true) {
+            long waitMs;
+            synchronized (bucket) {
+                taken += bucket.takeLocal(permits - taken);
+                if (taken == permits) {
+                    if (waited) {
+                        meterRegistry.counter("notification.ratelimit.waited", "provider", provider).increment();
+                    }
+                    return true;
+                }
+                waitMs = bucket.fetch(Math.max(permits - taken, Math.min(prefetch, bucket.capacity)));
+                if (waitMs < 0) {
+                    return true;  // Redis unavailable: fail open
+                }
+                taken += bucket.takeLocal(permits - taken);
+                if (taken == permits) {
+                    return true;
+                }
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (waitMs > remaining) {
+                synchronized (bucket) {
+                    bucket.putBack(taken);
+                }
+                meterRegistry.counter("notification.ratelimit.rescheduled", "provider", provider).increment();
+                log.warn("🚦 {} rate limit: no token within {}ms, rescheduling send", provider, maxWaitMs);
+                return false;
+            }
+            waited = true;
+            try {
+                Thread.sleep(Math.max(1, waitMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (bucket) {
+                    bucket.putBack(taken);
+                }
+                return false;
+            }
+        }
+    }
+
+    private Bucket bucket(String provider) {
+        String prefix = "notification.ratelimit." + provider;
+        double rate = environment.getProperty(prefix + ".rate-per-second", Double.class, 0.0);
+        int capacity = environment.getProperty(prefix + ".burst", Integer.class, (int) Math.max(1, Math.ceil(rate)));
+        if (rate > 0) {
+            log.info("🚦 {} rate limit: {}/s, burst {}, shared via Redis", provider, rate, capacity);
+        }
+        return new Bucket(KEY_PREFIX + provider, rate, capacity);
+    }
+
+    // Guarded by its own monitor
+    private class Bucket {
+        final String key;
+        final double ratePerSecond;
+        final int capacity;
+        int local;
+        long fetchedAt;
+        long lastFailureLog;
+
+        Bucket(String key, double ratePerSecond, int capacity) {
+            this.key = key;
+            this.ratePerSecond = ratePerSecond;
+            this.capacity = capacity;
+        }
+
+        int takeLocal(int wanted) {
+            if (System.currentTimeMillis() - fetchedAt > PREFETCH_TTL_MS) {
+                local = 0;
+            }
+            int take = Math.min(wanted, local);
+            local -= take;
+            return take;
+        }
+
+        void putBack(int tokens) {
+            local += tokens;
+        }
+
+        /**
+         * @return ms until Redis expects another token (0 if granted everything), or -1 if
+         *         Redis couldn't be reached
+         */
+        long fetch(int wanted) {
+            try {
+                List<?> result = redisTemplate.execute(script, List.of(key),
+                        String.valueOf(ratePerSecond), String.valueOf(capacity), String.valueOf(wanted));
+                long granted = ((Number) result.get(0)).longValue();
+                long waitMs = ((Number) result.get(1)).longValue();
+                local += (int) granted;
+                fetchedAt = System.currentTimeMillis();
+                return waitMs;
+            } catch (DataAccessException e) {
+                long now = System.currentTimeMillis();
+                if (now - lastFailureLog > 10_000) {
+                    lastFailureLog = now;
+                    log.warn("⚠️ Rate limiter can't reach Redis, not limiting {}: {}", key, e.getMessage());
+                }
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package org.qbitspark.nexgatenotificationserver.service.retry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.ChannelRetry;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.NotificationRepository;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelSender;
+import org.qbitspark.nexgatenotificationserver.service.idempotency.DeliveryIdempotencyService;
+import org.qbitspark.nexgatenotificationserver.service.lifecycle.ChannelMaskMigration;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Delayed retries for individual failed channels.
+ *
+ * A failed channel is published to the first delay tier; when its TTL expires RabbitMQ
+ * dead-letters it into the channel's ready queue and RetryNotificationConsumer tries that
+ * one channel again. Each failure moves it one tier further out; after the last tier it
+ * goes to the channel's DLQ. Successful retries clear the channel from failedChannels and
+ * settle the notification's status; if that write fails the retry is delayed again, marked
+ * as sent, so it never re-sends. A send that gets no rate-limit token is not an attempt: it
+ * waits out the same tier's delay again. A channel that runs out of tiers settles the row
+ * too: PARTIAL if another channel went out, otherwise FAILED (also for a row still PENDING
+ * because all of its channels were deferred).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChannelRetryService {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final RetryTiers retryTiers;
+    private final ChannelSender channelSender;
+    private final NotificationRepository notificationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DeliveryIdempotencyService idempotencyService;
+    private final ChannelMaskMigration channelMaskMigration;
+
+    @Value("${notification.retry.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Whether a failed channel should be retried. Channels the recipient has no address for
+     * would fail again every time, so they are recorded as failed straight away.
+     */
+    public boolean isRetryable(NotificationChannel channel, Recipient recipient) {
+        return enabled && retryTiers.size() > 0 && channelSender.hasAddress(channel, recipient);
+    }
+
+    /**
+     * The delivery a stored notification stands for, for rows resumed without their original
+     * event (after a crash); sent at NORMAL priority.
+     */
+    public DeliveryTask taskOf(NotificationEntity notification) {
+        Recipient recipient = Recipient.builder()
+                .userId(notification.getUserId())
+                .email(notification.getRecipientEmail())
+                .phone(notification.getRecipientPhone())
+                .name(notification.getRecipientName())
+                .build();
+        NotificationEvent event = NotificationEvent.builder()
+                .eventId(notification.getEventId())
+                .type(notification.getType())
+                .recipients(List.of(recipient))
+                .channels(List.copyOf(notification.getChannels()))
+                .priority(NotificationPriority.NORMAL)
+                .data(notification.getTemplateData())
+                .build();
+        return DeliveryTask.builder()
+                .correlationId(notification.getCorrelationId())
+                .event(event)
+                .recipient(recipient)
+                .build();
+    }
+
+    public void scheduleRetry(NotificationEntity notification, DeliveryTask task, NotificationChannel channel) {
+        publish(retryOf(notification, task, channel, 1));
+    }
+
+    /**
+     * For a channel that was never sent because its provider's quota was used up. It waits
+     * out the first tier's delay and still has every retry attempt ahead of it.
+     */
+    public void scheduleDeferred(NotificationEntity notification, DeliveryTask task, NotificationChannel channel) {
+        publish(retryOf(notification, task, channel, 0));
+    }
+
+    private ChannelRetry retryOf(NotificationEntity notification, DeliveryTask task, NotificationChannel channel,
+                                 int attempt) {
+        NotificationEvent singleChannel = task.getEvent()
+                .withRecipients(List.of(task.getRecipient()))
+                .withChannels(List.of(channel));
+
+        return ChannelRetry.builder()
+                .notificationId(notification.getId())
+                .correlationId(task.getCorrelationId())
+                .channel(channel)
+                .event(singleChannel)
+                .attempt(attempt)
+                .build();
+    }
+
+    public void retry(ChannelRetry retry) {
+        NotificationChannel channel = retry.getChannel();
+        Recipient recipient = retry.getEvent().getRecipients().get(0);
+
+        log.info("🔁 Retrying {} for user {} (attempt {}/{}, notification {})",
+                channel, recipient.getUserId(), retry.getAttempt(), retryTiers.size(), retry.getNotificationId());
+
+        if (!retry.isSent()) {
+            String key = idempotencyService.key(retry.getEvent(), recipient, channel);
+            if (key != null && idempotencyService.reserve(List.of(key)).isEmpty()) {
+                if (!idempotencyService.isDelivered(key)) {
+                    // A copy of the event is sending it right now: look again after this tier's
+                    // delay, without using up an attempt
+                    log.info("♻️ {} for notification {} is being sent elsewhere, checking again later",
+                            channel, retry.getNotificationId());
+                    publish(retry);
+                    return;
+                }
+                log.info("♻️ {} for notification {} was already delivered", channel, retry.getNotificationId());
+                recordDelivered(retry);
+                return;
+            }
+
+            if (!channelSender.acquire(channel)) {
+                log.info("🚦 No {} quota for notification {}, checking again later", channel, retry.getNotificationId());
+                if (key != null) {
+                    idempotencyService.release(key);
+                }
+                publish(retry);
+                return;
+            }
+
+            boolean success;
+            try {
+                success = channelSender.send(channel, recipient, retry.getEvent());
+            } catch (Exception e) {
+                log.error("❌ Retry of {} threw: {}", channel, e.getMessage(), e);
+                retry.setLastError(e.getMessage());
+                success = false;
+            }
+
+            if (!success) {
+                if (key != null) {
+                    idempotencyService.release(key);
+                }
+                retry.setAttempt(retry.getAttempt() + 1);
+                publish(retry);
+                return;
+            }
+
+            if (key != null) {
+                idempotencyService.markDelivered(List.of(key));
+            }
+            log.info("✅ Retry of {} succeeded on attempt {}", channel, retry.getAttempt());
+        }
+
+        recordDelivered(retry);
+    }
+
+    // The send is done, so a failure from here on must not requeue the message (the listener
+    // acks automatically and would redeliver, i.e. re-send, at once). The retry goes back to
+    // its delay tier marked as sent, and its next round only records the delivery.
+    private void recordDelivered(ChannelRetry retry) {
+        try {
+            markChannelDelivered(retry.getNotificationId(), retry.getChannel());
+        } catch (RuntimeException e) {
+            log.error("❌ Recording delivered {} on notification {} failed, trying again later: {}",
+                    retry.getChannel(), retry.getNotificationId(), e.getMessage());
+            retry.setSent(true);
+            retry.setLastError(e.getMessage());
+            publish(retry);
+        }
+    }
+
+    private void publish(ChannelRetry retry) {
+        NotificationChannel channel = retry.getChannel();
+        // Deferred sends (attempt 0) wait at the first tier
+        int tier = Math.max(0, retry.getAttempt() - 1);
+
+        if (retry.isSent()) {
+            // Attempts count sends; recording is retried at this tier's delay until it succeeds
+            tier = Math.min(tier, retryTiers.size() - 1);
+        } else if (tier >= retryTiers.size()) {
+            log.error("☠️ {} retries exhausted for notification {} — moving to {}",
+                    channel, retry.getNotificationId(), retryTiers.deadQueue(channel));
+            rabbitTemplate.convertAndSend(RetryTiers.DEAD_LETTER_EXCHANGE, retryTiers.deadQueue(channel), retry);
+            try {
+                markChannelExhausted(retry.getNotificationId(), channel);
+            } catch (RuntimeException e) {
+                log.error("❌ Settling notification {} after {} ran out of retries failed: {}",
+                        retry.getNotificationId(), channel, e.getMessage());
+            }
+            return;
+        }
+
+        log.info("⏳ Scheduling {} retry #{} for notification {} in {}",
+                channel, retry.getAttempt(), retry.getNotificationId(), retryTiers.label(tier));
+        rabbitTemplate.convertAndSend(RetryTiers.RETRY_EXCHANGE, retryTiers.delayQueue(channel, tier), retry);
+    }
+
+    private void markChannelDelivered(UUID notificationId, NotificationChannel channel) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // A row written before the bitmask columns would otherwise be saved with no channels
+            channelMaskMigration.backfill(notificationId);
+            notificationRepository.findByIdForUpdate(notificationId).ifPresentOrElse(notification -> {
+                // Assigned as a new set so the update doesn't hinge on Hibernate noticing an
+                // in-place change to a converted attribute
+                Set<NotificationChannel> failed = EnumSet.noneOf(NotificationChannel.class);
+                failed.addAll(notification.getFailedChannels());
+                failed.remove(channel);
+                notification.setFailedChannels(failed);
+                notification.setStatus(failed.isEmpty()
+                        ? NotificationStatus.SENT
+                        : NotificationStatus.PARTIAL);
+                if (notification.getSentAt() == null) {
+                    notification.setSentAt(LocalDateTime.now());
+                }
+                notificationRepository.save(notification);
+            }, () -> log.warn("⚠️ Notification {} not found while recording retry of {}", notificationId, channel));
+        });
+    }
+
+    // The channel stays failed for good; the row is final now unless other channels still retry
+    private void markChannelExhausted(UUID notificationId, NotificationChannel channel) {
+        transactionTemplate.executeWithoutResult(status -> {
+            channelMaskMigration.backfill(notificationId);
+            notificationRepository.findByIdForUpdate(notificationId).ifPresent(notification -> {
+                Set<NotificationChannel> failed = EnumSet.noneOf(NotificationChannel.class);
+                failed.addAll(notification.getFailedChannels());
+                failed.add(channel);
+                notification.setFailedChannels(failed);
+                boolean anyDelivered = notification.getChannels().stream().anyMatch(c -> !failed.contains(c));
+                notification.setStatus(anyDelivered ? NotificationStatus.PARTIAL : NotificationStatus.FAILED);
+                notificationRepository.save(notification);
+            });
+        });
+    }
+}
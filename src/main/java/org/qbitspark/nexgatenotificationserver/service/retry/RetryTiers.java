@@ -0,0 +1,65 @@
+package org.qbitspark.nexgatenotificationserver.service.retry;
+
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Retry delay tiers and the queue/routing names derived from them.
+ *
+ * Per channel (e.g. SMS, tiers 10s,1m,10m,1h):
+ *   notification.retry.sms.10s … notification.retry.sms.1h   TTL queues, dead-letter into ↓
+ *   notification.retry.sms.queue                               consumed by RetryNotificationConsumer
+ *   notification.retry.sms.dlq                                 retries exhausted
+ */
+@Component
+public class RetryTiers {
+
+    public static final String RETRY_EXCHANGE = "notification.retry.exchange";
+    public static final String DEAD_LETTER_EXCHANGE = "notification.dlx";
+    public static final String DEAD_QUEUE = "notification.dead.queue";
+
+    private final List<String> labels;
+
+    public RetryTiers(@Value("${notification.retry.delays:10s,1m,10m,1h}") String delays) {
+        this.labels = Arrays.stream(delays.split(",")).map(String::trim).filter(d -> !d.isEmpty()).toList();
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    public String label(int tier) {
+        return labels.get(tier);
+    }
+
+    public Duration delay(int tier) {
+        return DurationStyle.detectAndParse(labels.get(tier));
+    }
+
+    public String delayQueue(NotificationChannel channel, int tier) {
+        return prefix(channel) + "." + labels.get(tier);
+    }
+
+    public String readyQueue(NotificationChannel channel) {
+        return prefix(channel) + ".queue";
+    }
+
+    public String deadQueue(NotificationChannel channel) {
+        return prefix(channel) + ".dlq";
+    }
+
+    /** Used by RetryNotificationConsumer's @RabbitListener. */
+    public String[] readyQueueNames() {
+        return Arrays.stream(NotificationChannel.values()).map(this::readyQueue).toArray(String[]::new);
+    }
+
+    private String prefix(NotificationChannel channel) {
+        return "notification.retry." + channel.name().toLowerCase();
+    }
+}
@@ -0,0 +1,74 @@
+package org.qbitspark.nexgatenotificationserver.service.scheduling;
+
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Per-recipient quiet window, in the recipient's own timezone. A window whose start is after
+ * its end wraps midnight (22:00–07:00); equal start and end means no quiet hours.
+ * Priorities at or above bypassFrom are never held back.
+ */
+class QuietHours {
+
+    private final boolean enabled;
+    private final ZoneId defaultZone;
+    private final LocalTime defaultStart;
+    private final LocalTime defaultEnd;
+    private final NotificationPriority bypassFrom;
+
+    QuietHours(boolean enabled, ZoneId defaultZone, LocalTime defaultStart, LocalTime defaultEnd,
+               NotificationPriority bypassFrom) {
+        this.enabled = enabled;
+        this.defaultZone = defaultZone;
+        this.defaultStart = defaultStart;
+        this.defaultEnd = defaultEnd;
+        this.bypassFrom = bypassFrom;
+    }
+
+    /**
+     * @return sendAt, or the end of the recipient's quiet window if sendAt falls inside it
+     */
+    Instant adjust(Recipient recipient, NotificationPriority priority, Instant sendAt) {
+        if (!enabled || NotificationPriority.orDefault(priority).compareTo(bypassFrom) >= 0) {
+            return sendAt;
+        }
+        LocalTime start = recipient.getQuietHoursStart() != null ? recipient.getQuietHoursStart() : defaultStart;
+        LocalTime end = recipient.getQuietHoursEnd() != null ? recipient.getQuietHoursEnd() : defaultEnd;
+        if (start.equals(end)) {
+            return sendAt;
+        }
+
+        ZonedDateTime local = sendAt.atZone(zoneOf(recipient));
+        LocalTime time = local.toLocalTime();
+        boolean quiet = start.isBefore(end)
+                ? !time.isBefore(start) && time.isBefore(end)
+                : !time.isBefore(start) || time.isBefore(end);
+        if (!quiet) {
+            return sendAt;
+        }
+
+        ZonedDateTime quietEnd = local.with(end);
+        if (!quietEnd.isAfter(local)) {
+            quietEnd = quietEnd.plusDays(1);
+        }
+        return quietEnd.toInstant();
+    }
+
+    private ZoneId zoneOf(Recipient recipient) {
+        String timezone = recipient.getTimezone();
+        if (timezone == null || timezone.isBlank()) {
+            return defaultZone;
+        }
+        try {
+            return ZoneId.of(timezone);
+        } catch (DateTimeException e) {
+            return defaultZone;
+        }
+    }
+}
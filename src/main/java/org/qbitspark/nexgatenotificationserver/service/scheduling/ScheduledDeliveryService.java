@@ -0,0 +1,322 @@
+package org.qbitspark.nexgatenotificationserver.service.scheduling;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.entity.ScheduledNotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.ScheduledStatus;
+import org.qbitspark.nexgatenotificationserver.repository.ScheduledNotificationRepository;
+import org.qbitspark.nexgatenotificationserver.service.adaptive.AdaptiveBatchController;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchProcessor;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deliveries at a later time: events whose sendAt is in the future are stored as one
+ * scheduled_notifications row per recipient, due at sendAt pushed past the recipient's quiet
+ * hours, and the source message is acked once they are written. A redelivered event finds
+ * its rows already there ((event_id, recipient_key) is unique) and adds none.
+ *
+ * Every node polls for due rows, claiming a page at a time with FOR UPDATE SKIP LOCKED, and
+ * hands each page to NotificationBatchProcessor through BatchDispatcher.tryDispatch, so the
+ * poll never blocks a scheduler thread. Pages are only claimed while the executor has room,
+ * so a backlog of due rows waits in Postgres rather than on heap; rows it had no room for
+ * after all go straight back. Rows are deleted once their batch is done. A failed batch,
+ * and the claims of a node that died (after claim-timeout-minutes), go back to PENDING, or to
+ * FAILED once claimed max-attempts times; the idempotency check drops whatever was already
+ * sent.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduledDeliveryService {
+
+    private final ScheduledNotificationRepository scheduledRepository;
+    private final NotificationBatchProcessor batchProcessor;
+    private final BatchDispatcher batchDispatcher;
+    private final AdaptiveBatchController adaptiveController;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    private static final String INSERT_ROWS = "insert into scheduled_notifications (id, correlation_id, event_id, " +
+            "recipient_key, priority, status, send_at, attempts, event, recipient, created_at) values %s " +
+            "on conflict do nothing";
+    private static final String ROW =
+            "(nextval('scheduled_notifications_seq'), ?, ?, ?, ?, ?, ?, 0, cast(? as jsonb), cast(? as jsonb), ?)";
+    private static final String STATUS_CHECK = "select pg_get_constraintdef(oid) from pg_constraint " +
+            "where conname = 'scheduled_notifications_status_check'";
+
+    @Value("${notification.scheduling.enabled:true}")
+    private boolean enabled;
+
+    // sendAt closer than this is treated as "now"; not worth a round trip through the table
+    @Value("${notification.scheduling.min-lead-ms:1000}")
+    private long minLeadMs;
+
+    @Value("${notification.scheduling.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    // Upper bound on pages claimed per poll, so one node can't take the whole due backlog
+    @Value("${notification.scheduling.max-pages-per-poll:20}")
+    private int maxPagesPerPoll;
+
+    @Value("${notification.scheduling.claim-timeout-minutes:10}")
+    private long claimTimeoutMinutes;
+
+    @Value("${notification.scheduling.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notification.scheduling.quiet-hours.enabled:true}")
+    private boolean quietHoursEnabled;
+
+    @Value("${notification.scheduling.quiet-hours.zone:Africa/Dar_es_Salaam}")
+    private String quietHoursZone;
+
+    @Value("${notification.scheduling.quiet-hours.start:21:00}")
+    private String quietHoursStart;
+
+    @Value("${notification.scheduling.quiet-hours.end:08:00}")
+    private String quietHoursEnd;
+
+    @Value("${notification.scheduling.quiet-hours.bypass-priority:HIGH}")
+    private NotificationPriority quietHoursBypass;
+
+    private QuietHours quietHours;
+    private final AtomicInteger batchNumbers = new AtomicInteger();
+    private Counter stored;
+    private Counter claimed;
+
+    @PostConstruct
+    void init() {
+        quietHours = new QuietHours(quietHoursEnabled, ZoneId.of(quietHoursZone),
+                LocalTime.parse(quietHoursStart), LocalTime.parse(quietHoursEnd), quietHoursBypass);
+        stored = Counter.builder("notification.scheduled.stored")
+                .description("Deliveries stored for a later sendAt").register(meterRegistry);
+        claimed = Counter.builder("notification.scheduled.claimed")
+                .description("Due deliveries claimed by this node").register(meterRegistry);
+    }
+
+    public boolean shouldSchedule(NotificationEvent event) {
+        return enabled && event.getSendAt() != null
+                && event.getSendAt().isAfter(Instant.now().plusMillis(minLeadMs));
+    }
+
+    // ── Intake ──
+
+    /**
+     * Stores the event's recipients for delivery at its sendAt, one multi-row insert of
+     * insert-batch-size rows at a time. A failure fails the future so the message is
+     * requeued; rows written before it are skipped on redelivery (events without an eventId
+     * can't be matched and are stored again, the idempotency check can't tell them apart either).
+     *
+     * @return completes once every recipient is stored
+     */
+    public CompletableFuture<Void> schedule(String correlationId, NotificationEvent event) {
+        NotificationEvent header = event.withRecipients(List.of());
+        NotificationPriority priority = NotificationPriority.orDefault(event.getPriority());
+        try {
+            String headerJson = objectMapper.writeValueAsString(header);
+            int[] count = {0};
+            event.forEachRecipientBatch(insertBatchSize, batch ->
+                    count[0] += insert(correlationId, header, headerJson, priority, batch));
+            stored.increment(count[0]);
+            log.info("⏰ Scheduled {} deliveries of {} for {} (correlationId: {})",
+                    count[0], event.getType(), event.getSendAt(), correlationId);
+            return CompletableFuture.completedFuture(null);
+        } catch (DataAccessException | JsonProcessingException | IllegalStateException e) {
+            log.error("❌ Failed to schedule correlationId {}: {}", correlationId, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // @return rows actually added; recipients already scheduled for this event are skipped
+    private int insert(String correlationId, NotificationEvent header, String headerJson,
+                       NotificationPriority priority, List<Recipient> recipients) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object> args = new ArrayList<>(recipients.size() * 9);
+        for (Recipient recipient : recipients) {
+            args.add(correlationId);
+            args.add(header.getEventId());
+            args.add(recipient.deliveryKey());
+            args.add(priority.name());
+            args.add(ScheduledStatus.PENDING.name());
+            args.add(Timestamp.from(quietHours.adjust(recipient, priority, header.getSendAt())));
+            args.add(headerJson);
+            args.add(toJson(recipient));
+            args.add(now);
+        }
+        String values = String.join(", ", Collections.nCopies(recipients.size(), ROW));
+        return jdbcTemplate.update(INSERT_ROWS.formatted(values), args.toArray());
+    }
+
+    private String toJson(Recipient recipient) {
+        try {
+            return objectMapper.writeValueAsString(recipient);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Recipient " + recipient.deliveryKey() + " can't be stored", e);
+        }
+    }
+
+    // Tables created before FAILED existed carry Hibernate's check constraint on the old values
+    @EventListener(ApplicationReadyEvent.class)
+    public void allowFailedStatus() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<String> checks = jdbcTemplate.queryForList(STATUS_CHECK, String.class);
+            if (!checks.isEmpty() && !checks.get(0).contains(ScheduledStatus.FAILED.name())) {
+                jdbcTemplate.execute("alter table scheduled_notifications " +
+                        "drop constraint scheduled_notifications_status_check");
+                log.info("⏰ Dropped the outdated status check of scheduled_notifications");
+            }
+        } catch (DataAccessException e) {
+            log.error("❌ Could not update the status check of scheduled_notifications: {}", e.getMessage());
+        }
+    }
+
+    // ── Polling ──
+
+    @Scheduled(initialDelayString = "${notification.scheduling.initial-delay-ms:10000}",
+            fixedDelayString = "${notification.scheduling.poll-interval-ms:1000}")
+    public void pollDue() {
+        if (!enabled) {
+            return;
+        }
+        for (int page = 0; page < maxPagesPerPoll && batchDispatcher.availableCapacity() > 0; page++) {
+            int pageSize = adaptiveController.batchSize();
+            List<ScheduledNotificationEntity> due = claimDue(pageSize);
+            if (!due.isEmpty() && !dispatch(due)) {
+                break;
+            }
+            if (due.size() < pageSize) {
+                break;
+            }
+        }
+    }
+
+    private List<ScheduledNotificationEntity> claimDue(int limit) {
+        Instant now = Instant.now();
+        List<ScheduledNotificationEntity> due = transactionTemplate.execute(status -> {
+            List<ScheduledNotificationEntity> rows = scheduledRepository.findDueForUpdate(now, limit);
+            rows.forEach(row -> {
+                row.setStatus(ScheduledStatus.CLAIMED);
+                row.setClaimedAt(now);
+                row.setAttempts(row.getAttempts() + 1);
+            });
+            return scheduledRepository.saveAll(rows);
+        });
+        if (due == null) {
+            return List.of();
+        }
+        claimed.increment(due.size());
+        return due;
+    }
+
+    /**
+     * @return false if the executor filled up before every row was dispatched
+     */
+    private boolean dispatch(List<ScheduledNotificationEntity> due) {
+        // One batch per priority, like the orchestrator, so URGENT rows never wait behind LOW;
+        // most urgent first, in case the executor fills up part way
+        Map<NotificationPriority, List<ScheduledNotificationEntity>> byPriority = new EnumMap<>(NotificationPriority.class);
+        due.forEach(row -> byPriority.computeIfAbsent(row.getPriority(), p -> new ArrayList<>()).add(row));
+        List<NotificationPriority> priorities = new ArrayList<>(byPriority.keySet());
+        Collections.reverse(priorities);
+
+        List<Long> undispatched = new ArrayList<>();
+        for (NotificationPriority priority : priorities) {
+            List<ScheduledNotificationEntity> rows = byPriority.get(priority);
+            List<Long> ids = rows.stream().map(ScheduledNotificationEntity::getId).toList();
+            if (!undispatched.isEmpty()) {
+                undispatched.addAll(ids);
+                continue;
+            }
+            int batchNumber = batchNumbers.incrementAndGet();
+            List<DeliveryTask> tasks = rows.stream().map(this::toTask).toList();
+
+            CompletableFuture<Void> batch = batchDispatcher.tryDispatch(priority,
+                    () -> batchProcessor.processTasks(batchNumber, tasks));
+            if (batch == null) {
+                undispatched.addAll(ids);
+                continue;
+            }
+            log.info("⏰ Dispatched scheduled batch #{} ({} deliveries, {})", batchNumber, tasks.size(), priority);
+            batch.whenComplete((ignored, ex) -> settle(batchNumber, ids, ex));
+        }
+
+        if (!undispatched.isEmpty()) {
+            scheduledRepository.unclaim(undispatched);
+            log.info("⏰ Executor full, {} due deliveries wait for the next poll", undispatched.size());
+            return false;
+        }
+        return true;
+    }
+
+    private void settle(int batchNumber, List<Long> ids, Throwable ex) {
+        try {
+            if (ex == null) {
+                scheduledRepository.deleteAllByIdInBatch(ids);
+                return;
+            }
+            log.error("❌ Scheduled batch #{} failed: {}", batchNumber, ex.getMessage());
+            scheduledRepository.releaseFailed(ids, maxAttempts);
+        } catch (DataAccessException e) {
+            // Left CLAIMED; released after claim-timeout-minutes and delivered at most once more
+            log.error("❌ Settling scheduled batch #{} failed: {}", batchNumber, e.getMessage());
+        }
+    }
+
+    // Scheduled deliveries aren't counted against a correlation total: like campaign pages,
+    // their progress is tracked but never completes on its own
+    private DeliveryTask toTask(ScheduledNotificationEntity row) {
+        return DeliveryTask.builder()
+                .correlationId(row.getCorrelationId())
+                .event(row.getEvent())
+                .recipient(row.getRecipient())
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${notification.scheduling.release-interval-ms:60000}")
+    public void releaseStaleClaims() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(claimTimeoutMinutes));
+        int released = scheduledRepository.releaseStaleClaims(cutoff, maxAttempts);
+        if (released > 0) {
+            log.warn("🩹 Released {} scheduled deliveries claimed before {} (FAILED after {} claims)",
+                    released, cutoff, maxAttempts);
+        }
+    }
+}
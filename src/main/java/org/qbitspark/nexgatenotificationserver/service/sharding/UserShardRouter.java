@@ -0,0 +1,93 @@
+package org.qbitspark.nexgatenotificationserver.service.sharding;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Per-user ordered delivery. Each recipient of each event is published as a DeliveryTask
+ * to a consistent-hash exchange keyed by userId, so all of a user's deliveries land on the
+ * same shard queue in the order they were consumed. Every shard queue has a single active
+ * consumer and is delivered sequentially on that consumer's thread (its "lane").
+ *
+ * Needs the rabbitmq_consistent_hash_exchange plugin.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserShardRouter {
+
+    public static final String SHARD_EXCHANGE = "notification.shard.exchange";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${notification.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${notification.sharding.shards:8}")
+    private int shards;
+
+    // Empty = consume every shard. Lets nodes split shards between them; single active
+    // consumer keeps any overlap safe, but only the first node on a queue does the work.
+    @Value("${notification.sharding.local-shards:}")
+    private List<Integer> localShards;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String shardQueue(int shard) {
+        return "notification.shard." + shard + ".queue";
+    }
+
+    public String[] shardQueueNames() {
+        return IntStream.range(0, shards).mapToObj(this::shardQueue).toArray(String[]::new);
+    }
+
+    public String[] localShardQueueNames() {
+        if (localShards == null || localShards.isEmpty()) {
+            return shardQueueNames();
+        }
+        return localShards.stream().map(this::shardQueue).toArray(String[]::new);
+    }
+
+    /**
+     * @return one future per event (same order): completed once its deliveries are published
+     *         to the shards, failed if the broker refused them so the source gets requeued
+     */
+    public List<CompletableFuture<Void>> route(List<NotificationEvent> events) {
+        List<CompletableFuture<Void>> published = new ArrayList<>();
+        for (NotificationEvent event : events) {
+            String correlationId = UUID.randomUUID().toString();
+            try {
+                for (Recipient recipient : event.getRecipients()) {
+                    DeliveryTask task = DeliveryTask.builder()
+                            .correlationId(correlationId)
+                            .event(event.withRecipients(List.of(recipient)))
+                            .recipient(recipient)
+                            .build();
+                    rabbitTemplate.convertAndSend(SHARD_EXCHANGE, recipient.deliveryKey(), task);
+                }
+                published.add(CompletableFuture.completedFuture(null));
+            } catch (AmqpException e) {
+                log.error("❌ Failed to route correlationId {} to shards: {}", correlationId, e.getMessage());
+                published.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        log.info("🔀 Routed {} events to {} user shards", events.size(), shards);
+        return published;
+    }
+}
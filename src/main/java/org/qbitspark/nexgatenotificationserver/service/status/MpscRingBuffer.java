@@ -0,0 +1,88 @@
+package org.qbitspark.nexgatenotificationserver.service.status;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer (Vyukov's bounded queue).
+ *
+ * Each slot carries a sequence number. A producer claims a position with one CAS on the tail
+ * once the slot's sequence says it is free, writes the element, then publishes it by
+ * advancing the sequence; the consumer takes a slot only once it is published. A full queue
+ * makes offer() return false instead of waiting, so the caller decides how to back off.
+ */
+class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, position + 1);  // publishes the element write above
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                return false;  // slot still holds an element from one lap ago
+            } else {
+                position = tail.get();  // another producer took this position
+            }
+        }
+    }
+
+    /**
+     * Hands up to {@code max} published elements to {@code consumer}, oldest first.
+     * Consumer thread only.
+     *
+     * @return elements drained
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<E> consumer, int max) {
+        int drained = 0;
+        long position = head;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;  // empty, or the next producer hasn't published yet
+            }
+            E element = (E) elements[index];
+            elements[index] = null;
+            sequences.set(index, position + mask + 1);
+            head = ++position;
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,405 @@
+package org.qbitspark.nexgatenotificationserver.service.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.NotificationRepository;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchWriter;
+import org.qbitspark.nexgatenotificationserver.service.overflow.MappedJournalFile;
+import org.qbitspark.nexgatenotificationserver.service.retry.ChannelRetryService;
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind for final notification statuses, so delivery threads never wait on Postgres
+ * for them.
+ *
+ * record() appends the batch's outcomes to a local write-ahead file (MappedJournalFile) and
+ * puts them on a lock-free ring buffer. One writer thread drains the buffer and applies
+ * everything it took with NotificationBatchWriter.updateFinal(), once flush-rows outcomes are
+ * waiting or flush-interval-ms has passed. Each batch's afterWrite callback (its retries)
+ * runs only once its rows are written. When the buffer is full, record() waits for the writer
+ * (backpressure) instead of dropping anything.
+ *
+ * A write that fails transiently (or with the database unreachable) is retried until it goes
+ * through. Any other failure splits the write in halves until the rows Postgres rejects are
+ * isolated; those are logged, counted and left in PROCESSING for StaleProcessingRecovery.
+ *
+ * Write-ahead records are committed once their rows are in the table. At startup, records
+ * left by a crash are applied before anything else. For rows with failed channels the retries
+ * are published again from the stored row first, as the crash may have come before they went
+ * out; a retry that turns out to be a repeat finds the channel delivered and only records it.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")  // startup replay writes columns Hibernate may still have to add
+@RequiredArgsConstructor
+public class StatusWriteBehind {
+
+    private static final TypeReference<List<StatusUpdate>> UPDATES = new TypeReference<>() {};
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int RECOVERY_PAGE = 1000;
+
+    private final NotificationBatchWriter batchWriter;
+    private final NotificationRepository notificationRepository;
+    private final ChannelRetryService retryService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.status-journal.enabled:true}")
+    private boolean enabled;
+
+    // Batches (not rows) the ring buffer holds before record() has to wait
+    @Value("${notification.status-journal.capacity:4096}")
+    private int capacity;
+
+    @Value("${notification.status-journal.flush-rows:2000}")
+    private int flushRows;
+
+    @Value("${notification.status-journal.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${notification.status-journal.path:./data/status.wal}")
+    private String path;
+
+    @Value("${notification.status-journal.size-bytes:16777216}")
+    private int sizeBytes;
+
+    // The mapped file survives a process crash either way; force also covers power loss
+    @Value("${notification.status-journal.force:false}")
+    private boolean force;
+
+    /** One row's final state, as written ahead. */
+    record StatusUpdate(UUID id, NotificationStatus status, LocalDateTime sentAt, Set<NotificationChannel> failedChannels) {}
+
+    private record Pending(long sequence, List<NotificationEntity> notifications, Runnable afterWrite) {}
+
+    private MpscRingBuffer<Pending> ring;
+    private MappedJournalFile wal;
+    private Thread writer;
+    private volatile boolean running;
+    // Rows on the ring; producers add after offering, the writer subtracts what it drains
+    private final AtomicInteger queuedRows = new AtomicInteger();
+
+    // Write-ahead sequence: assigned under the journal's lock, so it follows file order
+    private long appended;
+    // Guarded by this: sequences written out of order, waiting for the prefix to close
+    private long committedSequence;
+    private final TreeSet<Long> writtenAhead = new TreeSet<>();
+
+    private Counter waits;
+    private Counter syncWrites;
+    private Counter rejected;
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        wal = new MappedJournalFile(Path.of(path), sizeBytes, force);
+        recover();
+
+        ring = new MpscRingBuffer<>(capacity);
+        Gauge.builder("notification.status-journal.pending", ring, MpscRingBuffer::size)
+                .description("Batches of final statuses waiting for the writer").register(meterRegistry);
+        waits = Counter.builder("notification.status-journal.backpressure")
+                .description("Times a delivery thread waited for the status writer").register(meterRegistry);
+        syncWrites = Counter.builder("notification.status-journal.sync-writes")
+                .description("Batches written directly (write-ahead file full or writer stopped)").register(meterRegistry);
+        rejected = Counter.builder("notification.status-journal.rejected")
+                .description("Final statuses the database rejected, left in PROCESSING").register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::writeLoop, "status-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Hands the batch's final statuses to the writer; {@code afterWrite} runs once they are in
+     * the table (on the writer thread).
+     */
+    public void record(List<NotificationEntity> notifications, Runnable afterWrite) {
+        if (!enabled || !running) {
+            writeNow(-1, notifications, afterWrite);
+            return;
+        }
+
+        long sequence = appendAhead(notifications);
+        if (sequence < 0) {
+            writeNow(-1, notifications, afterWrite);
+            return;
+        }
+
+        Pending pending = new Pending(sequence, notifications, afterWrite);
+        boolean waited = false;
+        while (!ring.offer(pending)) {
+            if (!running) {
+                // Writer gone while we waited: write it here and commit its record in turn, or
+                // leave the record for the next start if the write fails
+                writeNow(sequence, notifications, afterWrite);
+                return;
+            }
+            waited = true;
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+        if (waited) {
+            waits.increment();
+        }
+        if (queuedRows.addAndGet(notifications.size()) >= flushRows) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private long appendAhead(List<NotificationEntity> notifications) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(notifications.stream()
+                    .map(notification -> new StatusUpdate(notification.getId(), notification.getStatus(),
+                            notification.getSentAt(), notification.getFailedChannels()))
+                    .toList());
+        } catch (IOException e) {
+            log.error("❌ Failed to serialize {} statuses for the write-ahead file: {}", notifications.size(), e.getMessage());
+            return -1;
+        }
+        synchronized (wal) {
+            return wal.append(payload) ? ++appended : -1;
+        }
+    }
+
+    // sequence is the batch's write-ahead record, or -1 without one
+    private void writeNow(long sequence, List<NotificationEntity> notifications, Runnable afterWrite) {
+        if (syncWrites != null) {
+            syncWrites.increment();
+        }
+        batchWriter.updateFinal(notifications);
+        if (sequence >= 0) {
+            written(List.of(sequence));
+        }
+        afterWrite.run();
+    }
+
+    // ── Writer thread ──
+
+    private void writeLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        long lastFlush = System.nanoTime();
+        List<Pending> taken = new ArrayList<>();
+        while (running || ring.size() > 0) {
+            long waited = System.nanoTime() - lastFlush;
+            if (running && queuedRows.get() < flushRows && waited < intervalNanos) {
+                LockSupport.parkNanos(intervalNanos - waited);
+                continue;
+            }
+            lastFlush = System.nanoTime();
+
+            int[] rows = {0};
+            // One batch at a time, so a write stays close to flush-rows
+            while (rows[0] < flushRows && ring.drain(pending -> {
+                taken.add(pending);
+                rows[0] += pending.notifications().size();
+            }, 1) > 0) {
+            }
+            if (!taken.isEmpty()) {
+                queuedRows.addAndGet(-rows[0]);
+                flush(taken);
+                taken.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> taken) {
+        List<NotificationEntity> rows = new ArrayList<>();
+        taken.forEach(pending -> rows.addAll(pending.notifications()));
+
+        write(rows);
+
+        List<Long> sequences = new ArrayList<>(taken.size());
+        for (Pending pending : taken) {
+            sequences.add(pending.sequence());
+            try {
+                pending.afterWrite().run();
+            } catch (RuntimeException e) {
+                log.error("❌ Post-write step failed: {}", e.getMessage(), e);
+            }
+        }
+        written(sequences);
+        log.debug("💾 Wrote {} statuses from {} batches", rows.size(), taken.size());
+    }
+
+    private void write(List<NotificationEntity> rows) {
+        // The rows stay in the write-ahead file until this succeeds, so outages are waited out
+        while (true) {
+            try {
+                batchWriter.updateFinal(rows);
+                return;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+                log.error("❌ Status write of {} rows failed, retrying: {}", rows.size(), e.getMessage());
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            } catch (DataAccessException e) {
+                // Retrying won't help; write the rows around the bad one(s)
+                if (rows.size() == 1) {
+                    rejected.increment();
+                    log.error("❌ Status {} of notification {} was rejected, leaving it in PROCESSING: {}",
+                            rows.get(0).getStatus(), rows.get(0).getId(), e.getMessage());
+                    return;
+                }
+                int half = rows.size() / 2;
+                write(rows.subList(0, half));
+                write(rows.subList(half, rows.size()));
+                return;
+            }
+        }
+    }
+
+    // Any thread: the writer, stop(), or a record() that wrote its batch itself.
+    // Records are committed in file order, up to the first one not yet written.
+    private synchronized void written(Collection<Long> sequences) {
+        writtenAhead.addAll(sequences);
+        long offset = -1;
+        while (!writtenAhead.isEmpty() && writtenAhead.first() == committedSequence + 1) {
+            writtenAhead.pollFirst();
+            committedSequence++;
+            MappedJournalFile.Entry entry = wal.next();
+            if (entry != null) {
+                offset = entry.endOffset();
+            }
+        }
+        if (offset >= 0) {
+            wal.commit(offset);
+        }
+    }
+
+    // ── Crash recovery ──
+
+    private void recover() {
+        if (!wal.hasUnread()) {
+            return;
+        }
+        log.warn("💾 Status write-ahead file {} has {} batches from a previous run; applying them",
+                path, wal.unreadCount());
+
+        List<NotificationEntity> settled = new ArrayList<>();
+        Map<UUID, StatusUpdate> withFailures = new LinkedHashMap<>();
+        long offset = -1;
+        MappedJournalFile.Entry entry;
+        while ((entry = wal.next()) != null) {
+            offset = entry.endOffset();
+            try {
+                for (StatusUpdate update : objectMapper.readValue(entry.payload(), UPDATES)) {
+                    if (update.failedChannels() == null || update.failedChannels().isEmpty()) {
+                        settled.add(NotificationEntity.builder()
+                                .id(update.id())
+                                .status(update.status())
+                                .sentAt(update.sentAt())
+                                .failedChannels(new HashSet<>())
+                                .build());
+                    } else {
+                        withFailures.put(update.id(), update);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("❌ Skipping unreadable status write-ahead record: {}", e.getMessage());
+            }
+        }
+
+        int retries = 0;
+        List<UUID> ids = new ArrayList<>(withFailures.keySet());
+        for (int from = 0; from < ids.size(); from += RECOVERY_PAGE) {
+            List<UUID> page = ids.subList(from, Math.min(from + RECOVERY_PAGE, ids.size()));
+            for (NotificationEntity notification : notificationRepository.findAllById(page)) {
+                retries += resendFailed(notification, withFailures.get(notification.getId()), settled);
+            }
+        }
+        batchWriter.updateFinal(settled);
+        wal.commit(offset);
+        log.info("✅ Applied {} statuses from the write-ahead file, republished {} retries", settled.size(), retries);
+    }
+
+    // Publishes the row's retries, then settles it like the others. If they can't be published
+    // the row stays in PROCESSING, and StaleProcessingRecovery retries it later.
+    private int resendFailed(NotificationEntity notification, StatusUpdate update, List<NotificationEntity> settled) {
+        DeliveryTask task = retryService.taskOf(notification);
+        int published = 0;
+        try {
+            for (NotificationChannel channel : update.failedChannels()) {
+                if (retryService.isRetryable(channel, task.getRecipient())) {
+                    retryService.scheduleRetry(notification, task, channel);
+                    published++;
+                }
+            }
+        } catch (AmqpException e) {
+            log.error("❌ Republishing retries of notification {} failed, leaving it in PROCESSING: {}",
+                    notification.getId(), e.getMessage());
+            return published;
+        }
+        notification.setStatus(update.status());
+        notification.setSentAt(update.sentAt());
+        notification.setFailedChannels(new HashSet<>(update.failedChannels()));
+        settled.add(notification);
+        return published;
+    }
+
+    // ── Shutdown ──
+
+    /**
+     * Writes out everything pending and stops the writer; later record() calls write directly.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Offered after the writer's last look
+        List<Pending> leftover = new ArrayList<>();
+        ring.drain(leftover::add, Integer.MAX_VALUE);
+        if (!leftover.isEmpty()) {
+            flush(leftover);
+        }
+        try {
+            wal.close();
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to close status write-ahead file: {}", e.getMessage());
+        }
+    }
+}
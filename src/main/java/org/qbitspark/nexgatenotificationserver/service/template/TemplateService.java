@@ -1,6 +1,7 @@
 package org.qbitspark.nexgatenotificationserver.service.template;
 
 import lombok.extern.slf4j.Slf4j;
+import org.qbitspark.nexgatenotificationserver.service.digest.DigestData;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
@@ -8,6 +9,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,7 +28,18 @@ public class TemplateService {
             Pattern.DOTALL
     );
 
+    // Templates are classpath resources and never change at runtime — read each one once
+    private final Map<String, Optional<String>> templateCache = new ConcurrentHashMap<>();
+
     public String renderEmailTemplate(String templateName, Map<String, Object> data) {
+        // Digests (see DigestCoalescer) use their own template where there is one
+        if (data.get(DigestData.DIGEST) != null) {
+            String digestTemplate = loadTemplate("email/digest_" + templateName + ".html");
+            if (digestTemplate != null) {
+                return renderTemplate(digestTemplate, data);
+            }
+        }
+
         // Check if there's a role-specific template
         String recipientRole = (String) data.get("recipientRole");
 
@@ -58,6 +72,13 @@ public class TemplateService {
 
 
     public String renderSmsTemplate(String templateName, Map<String, Object> data) {
+        if (data.get(DigestData.DIGEST) != null) {
+            String digestTemplate = loadTemplate("sms/digest_" + templateName + ".txt");
+            if (digestTemplate != null) {
+                return renderTemplate(digestTemplate, data);
+            }
+        }
+
         // Check if there's a role-specific template
         String recipientRole = (String) data.get("recipientRole");
 
@@ -89,6 +110,10 @@ public class TemplateService {
     }
 
     private String loadTemplate(String path) {
+        return templateCache.computeIfAbsent(path, p -> Optional.ofNullable(readTemplate(p))).orElse(null);
+    }
+
+    private String readTemplate(String path) {
         try {
             ClassPathResource resource = new ClassPathResource("templates/" + path);
             byte[] bytes = resource.getInputStream().readAllBytes();
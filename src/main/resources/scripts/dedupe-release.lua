@@ -0,0 +1,6 @@
+-- Drops a delivery claim only if this node still holds it. KEYS[1] = dedupe key; ARGV[1] = claim value.
+-- Returns 1 if released; a delivery mark or another node's claim is kept.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
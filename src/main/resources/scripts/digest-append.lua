@@ -0,0 +1,15 @@
+-- Adds one delivery to a digest. KEYS[1] = entries list, KEYS[2] = count, KEYS[3] = due zset;
+-- ARGV = entry, window ms, max entries kept, key ttl ms. Returns the digest's count so far.
+-- The first entry opens the window (ZADD NX); later ones only join it.
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('RPUSH', KEYS[1], ARGV[1])
+redis.call('LTRIM', KEYS[1], -tonumber(ARGV[3]), -1)
+local count = redis.call('INCR', KEYS[2])
+redis.call('ZADD', KEYS[3], 'NX', now + tonumber(ARGV[2]), KEYS[1])
+
+-- Backstop for digests no node ever flushes
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+redis.call('PEXPIRE', KEYS[2], ARGV[4])
+return count
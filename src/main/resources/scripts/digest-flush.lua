@@ -0,0 +1,31 @@
+-- Takes up to ARGV[1] digests whose window has closed, on a lease. KEYS[1] = due zset,
+-- KEYS[2] = lease zset; ARGV = limit, lease ms, flush token, key ttl ms.
+-- Each digest's entry and count keys are renamed to <key>:processing:<token>[:count] and the
+-- processing key is leased until now + lease ms. Returns {processing key, count, {entries...}, ...}.
+-- The digest is gone from the due zset, so exactly one node gets it; new events for the same
+-- recipient open a new window. Keys are derived from the zset members (single-node Redis).
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local keys = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, tonumber(ARGV[1]))
+local result = {}
+for _, key in ipairs(keys) do
+    local countKey = key .. ':count'
+    local processing = key .. ':processing:' .. ARGV[3]
+    local entries = redis.call('LRANGE', key, 0, -1)
+    local count = redis.call('GET', countKey) or '0'
+    redis.call('ZREM', KEYS[1], key)
+    if redis.call('EXISTS', key) == 1 then
+        redis.call('RENAME', key, processing)
+        redis.call('PEXPIRE', processing, ARGV[4])
+    end
+    if redis.call('EXISTS', countKey) == 1 then
+        redis.call('RENAME', countKey, processing .. ':count')
+        redis.call('PEXPIRE', processing .. ':count', ARGV[4])
+    end
+    redis.call('ZADD', KEYS[2], now + tonumber(ARGV[2]), processing)
+    table.insert(result, processing)
+    table.insert(result, count)
+    table.insert(result, entries)
+end
+return result
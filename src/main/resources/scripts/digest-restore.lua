@@ -0,0 +1,40 @@
+-- Puts leased digests back. KEYS[1] = due zset, KEYS[2] = lease zset; ARGV = delay ms, max
+-- entries kept, key ttl ms, then the processing keys to restore. Without processing keys it
+-- restores up to 100 whose lease has run out (their node died or hung).
+-- The entries go back in front of any the digest gathered meanwhile, the counts are added up,
+-- and the digest is due again after the delay. Returns how many were restored.
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local processingKeys = {}
+for i = 4, #ARGV do
+    table.insert(processingKeys, ARGV[i])
+end
+if #processingKeys == 0 then
+    processingKeys = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, 100)
+end
+
+local restored = 0
+for _, processing in ipairs(processingKeys) do
+    -- Acked (or restored) already: nothing to put back
+    if redis.call('ZREM', KEYS[2], processing) == 1 then
+        local key = string.match(processing, '^(.*):processing:[^:]*$')
+        local entries = redis.call('LRANGE', processing, 0, -1)
+        for i = #entries, 1, -1 do
+            redis.call('LPUSH', key, entries[i])
+        end
+        if #entries > 0 then
+            redis.call('LTRIM', key, -tonumber(ARGV[2]), -1)
+            redis.call('PEXPIRE', key, ARGV[3])
+        end
+        local count = tonumber(redis.call('GET', processing .. ':count') or '0')
+        if count > 0 then
+            redis.call('INCRBY', key .. ':count', count)
+            redis.call('PEXPIRE', key .. ':count', ARGV[3])
+        end
+        redis.call('DEL', processing, processing .. ':count')
+        redis.call('ZADD', KEYS[1], now + tonumber(ARGV[1]), key)
+        restored = restored + 1
+    end
+end
+return restored
@@ -0,0 +1,26 @@
+-- Shared token bucket. KEYS[1] = bucket hash; ARGV = rate per second, capacity, tokens wanted.
+-- Returns {tokens granted (0..wanted), ms until the next token if short}.
+-- Uses the Redis clock so nodes with skewed clocks still refill the same bucket consistently.
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local wanted = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1]) or capacity
+local ts = tonumber(state[2]) or now
+
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+local granted = math.min(wanted, math.floor(tokens))
+tokens = tokens - granted
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * 1000 / rate) + 1000)
+
+local waitMs = 0
+if granted < wanted then
+    waitMs = math.ceil((1 - tokens) * 1000 / rate)
+end
+return {granted, waitMs}
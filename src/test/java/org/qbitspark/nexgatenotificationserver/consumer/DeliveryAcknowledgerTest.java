@@ -0,0 +1,73 @@
+package org.qbitspark.nexgatenotificationserver.consumer;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class DeliveryAcknowledgerTest {
+
+    private final DeliveryAcknowledger acknowledger = new DeliveryAcknowledger();
+    private final Channel channel = mock(Channel.class);
+
+    @Test
+    void rejectsOnlyTheEventWhoseFutureWasRejected() throws Exception {
+        acknowledger.processAndAck(messages(3), channel, events -> List.of(
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.failedFuture(new AmqpRejectAndDontRequeueException("bad")),
+                CompletableFuture.failedFuture(new IllegalStateException("smtp down"))));
+
+        verify(channel).basicAck(1L, false);
+        verify(channel).basicNack(2L, false, false);
+        verify(channel).basicNack(3L, false, true);
+    }
+
+    @Test
+    void requeuesEverythingWhenTheExecutorRejects() throws Exception {
+        acknowledger.processAndAck(messages(2), channel, events -> {
+            throw new TaskRejectedException("full");
+        });
+
+        verify(channel).basicNack(1L, false, true);
+        verify(channel).basicNack(2L, false, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), eq(false));
+    }
+
+    @Test
+    void narrowsAThrowingProcessorDownToTheBadMessage() throws Exception {
+        acknowledger.processAndAck(messages(3), channel, events -> {
+            if (events.stream().anyMatch(event -> "event-2".equals(event.getEventId()))) {
+                throw new NullPointerException("no recipients");
+            }
+            return events.stream().map(event -> CompletableFuture.<Void>completedFuture(null)).toList();
+        });
+
+        verify(channel).basicAck(1L, false);
+        verify(channel).basicNack(2L, false, false);
+        verify(channel).basicAck(3L, false);
+    }
+
+    private static List<Message<NotificationEvent>> messages(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(tag -> MessageBuilder
+                        .withPayload(NotificationEvent.builder().eventId("event-" + tag).build())
+                        .setHeader(AmqpHeaders.DELIVERY_TAG, tag)
+                        .build())
+                .toList();
+    }
+}
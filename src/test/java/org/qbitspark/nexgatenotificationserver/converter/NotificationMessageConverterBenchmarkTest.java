@@ -0,0 +1,172 @@
+package org.qbitspark.nexgatenotificationserver.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.converter.NotificationMessageConverter.Compression;
+import org.qbitspark.nexgatenotificationserver.converter.NotificationMessageConverter.WireFormat;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.postprocessor.GZipPostProcessor;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes on the wire and decode time per format for an event-domain booking message
+ * (tickets list plus a qrCodes map of JWTs). Round trips and sizes are checked on every
+ * build; decode times are measured and logged only in the benchmark run (-Pbenchmark).
+ */
+class NotificationMessageConverterBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationMessageConverterBenchmarkTest.class);
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void compactFormatsRoundTripAndAreSmallerThanJson() {
+        NotificationEvent event = bookingEvent(8);
+        int jsonBytes = converter(WireFormat.JSON, Compression.NONE)
+                .toMessage(event, new MessageProperties()).getBody().length;
+
+        for (WireFormat format : WireFormat.values()) {
+            for (Compression compression : Compression.values()) {
+                NotificationMessageConverter converter = converter(format, compression);
+                Message message = converter.toMessage(event, new MessageProperties());
+
+                assertThat(converter.fromMessage(copy(message))).isEqualTo(event);
+                if (format != WireFormat.JSON || compression != Compression.NONE) {
+                    assertThat(message.getBody().length).as(format + "/" + compression).isLessThan(jsonBytes);
+                }
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void compareDecodeTimes() {
+        NotificationEvent event = bookingEvent(8);
+
+        log.info(String.format("%-14s %10s %14s", "format", "bytes", "decode µs/op"));
+        for (WireFormat format : WireFormat.values()) {
+            for (Compression compression : Compression.values()) {
+                NotificationMessageConverter converter = converter(format, compression);
+                Message message = converter.toMessage(event, new MessageProperties());
+
+                for (int i = 0; i < WARMUP; i++) {
+                    converter.fromMessage(copy(message));
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    converter.fromMessage(copy(message));
+                }
+                double micros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+
+                log.info(String.format("%-14s %10d %14.1f", format + "/" + compression, message.getBody().length, micros));
+            }
+        }
+    }
+
+    private NotificationMessageConverter converter(WireFormat format, Compression compression) {
+        return new NotificationMessageConverter(objectMapper, format, compression, 0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void readsMessagesFromPlainJsonPublishers() {
+        NotificationEvent event = bookingEvent(2);
+        Message legacy = new Jackson2JsonMessageConverter(objectMapper).toMessage(event, new MessageProperties());
+
+        NotificationMessageConverter converter =
+                new NotificationMessageConverter(objectMapper, WireFormat.SMILE, Compression.ZSTD, 0, Integer.MAX_VALUE);
+
+        assertThat(converter.fromMessage(legacy)).isEqualTo(event);
+    }
+
+    @Test
+    void readsSpringGzipPostProcessorOutput() throws Exception {
+        NotificationEvent event = bookingEvent(2);
+        Message json = new Jackson2JsonMessageConverter(objectMapper).toMessage(event, new MessageProperties());
+        Message gzipped = new GZipPostProcessor().postProcessMessage(json);
+
+        NotificationMessageConverter converter =
+                new NotificationMessageConverter(objectMapper, WireFormat.JSON, Compression.NONE, 0, Integer.MAX_VALUE);
+
+        assertThat(converter.fromMessage(gzipped)).isEqualTo(event);
+    }
+
+    // fromMessage rewrites the properties of compressed messages, so every decode gets fresh ones
+    private Message copy(Message message) {
+        MessageProperties source = message.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        source.getHeaders().forEach(properties::setHeader);
+        return new Message(message.getBody(), properties);
+    }
+
+    private NotificationEvent bookingEvent(int ticketCount) {
+        Random random = new Random(42);
+        List<Map<String, Object>> tickets = new ArrayList<>();
+        Map<String, Object> qrCodes = new LinkedHashMap<>();
+
+        for (int i = 0; i < ticketCount; i++) {
+            String ticketId = "TCK-" + (100_000 + i);
+            Map<String, Object> attendee = new LinkedHashMap<>();
+            attendee.put("name", "Attendee " + i);
+            attendee.put("email", "attendee" + i + "@example.com");
+
+            Map<String, Object> ticket = new LinkedHashMap<>();
+            ticket.put("ticketId", ticketId);
+            ticket.put("ticketType", i % 2 == 0 ? "VIP" : "REGULAR");
+            ticket.put("price", 25_000 + i * 500);
+            ticket.put("currency", "TZS");
+            ticket.put("seat", "B-" + (10 + i));
+            ticket.put("attendee", attendee);
+            tickets.add(ticket);
+
+            qrCodes.put(ticketId, jwt(random));
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("event", Map.of("name", "Dar Music Festival", "venue", "Mlimani City", "startsAt", "2025-12-20T18:00:00"));
+        data.put("bookingReference", "BK-2025-000123");
+        data.put("tickets", tickets);
+        data.put("qrCodes", qrCodes);
+
+        return NotificationEvent.builder()
+                .type(NotificationType.EVENT_BOOKING_CONFIRMED)
+                .recipients(List.of(Recipient.builder()
+                        .userId("user-1").email("buyer@example.com").phone("+255700000001").name("Buyer").build()))
+                .channels(List.of(NotificationChannel.EMAIL, NotificationChannel.PUSH))
+                .priority(NotificationPriority.HIGH)
+                .data(data)
+                .build();
+    }
+
+    private String jwt(Random random) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] payload = new byte[180];
+        byte[] signature = new byte[32];
+        random.nextBytes(payload);
+        random.nextBytes(signature);
+        return "eyJhbGciOiJIUzI1NiJ9." + encoder.encodeToString(payload) + "." + encoder.encodeToString(signature);
+    }
+}
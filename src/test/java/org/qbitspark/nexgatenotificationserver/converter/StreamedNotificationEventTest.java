@@ -0,0 +1,105 @@
+package org.qbitspark.nexgatenotificationserver.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.converter.NotificationMessageConverter.Compression;
+import org.qbitspark.nexgatenotificationserver.converter.NotificationMessageConverter.WireFormat;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamedNotificationEventTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void streamsRecipientsInBatchesWhateverTheFieldOrder() throws Exception {
+        List<Recipient> recipients = recipients(23);
+        // recipients first, header fields after them
+        String json = "{\"recipients\":" + objectMapper.writeValueAsString(recipients)
+                + ",\"type\":\"PROMOTIONAL_OFFER\",\"channels\":[\"EMAIL\"],\"priority\":\"HIGH\","
+                + "\"data\":{\"offer\":\"10%\"},\"unknown\":{\"nested\":[1,2]}}";
+
+        StreamedNotificationEvent event =
+                StreamedNotificationEvent.decode(objectMapper, json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(event.getType()).isEqualTo(NotificationType.PROMOTIONAL_OFFER);
+        assertThat(event.getChannels()).containsExactly(NotificationChannel.EMAIL);
+        assertThat(event.getPriority()).isEqualTo(NotificationPriority.HIGH);
+        assertThat(event.getData()).isEqualTo(Map.of("offer", "10%"));
+        assertThat(event.recipientCount()).isEqualTo(23);
+
+        List<List<Recipient>> batches = new ArrayList<>();
+        event.forEachRecipientBatch(10, batches::add);
+
+        assertThat(batches).extracting(List::size).containsExactly(10, 10, 3);
+        assertThat(batches.stream().flatMap(List::stream).toList()).isEqualTo(recipients);
+        assertThat(event.getRecipients()).isEqualTo(recipients);
+    }
+
+    @Test
+    void eventWithoutRecipientsHasAnEmptyList() {
+        for (String json : List.of("{\"type\":\"PROMOTIONAL_OFFER\",\"recipients\":[]}",
+                "{\"type\":\"PROMOTIONAL_OFFER\"}")) {
+            StreamedNotificationEvent event =
+                    StreamedNotificationEvent.decode(objectMapper, json.getBytes(StandardCharsets.UTF_8));
+
+            assertThat(event.recipientCount()).isZero();
+            assertThat(event.getRecipients()).isEmpty();
+            List<List<Recipient>> batches = new ArrayList<>();
+            event.forEachRecipientBatch(10, batches::add);
+            assertThat(batches).isEmpty();
+        }
+    }
+
+    @Test
+    void converterStreamsOnlyLargeNotificationEvents() {
+        NotificationEvent event = NotificationEvent.builder()
+                .type(NotificationType.PROMOTIONAL_OFFER)
+                .recipients(recipients(50))
+                .channels(List.of(NotificationChannel.EMAIL))
+                .build();
+
+        NotificationMessageConverter converter =
+                new NotificationMessageConverter(objectMapper, WireFormat.SMILE, Compression.ZSTD, 0, 1024);
+        Message message = converter.toMessage(event, new MessageProperties());
+
+        message.getMessageProperties().setInferredArgumentType(NotificationEvent.class);
+        Object decoded = converter.fromMessage(copy(message));
+
+        assertThat(decoded).isInstanceOf(StreamedNotificationEvent.class);
+        assertThat(((NotificationEvent) decoded).recipientCount()).isEqualTo(50);
+        assertThat(decoded).isEqualTo(event);
+
+        message.getMessageProperties().setInferredArgumentType(null);
+        assertThat(converter.fromMessage(copy(message))).isNotInstanceOf(StreamedNotificationEvent.class);
+    }
+
+    private Message copy(Message message) {
+        MessageProperties source = message.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        properties.setInferredArgumentType(source.getInferredArgumentType());
+        source.getHeaders().forEach(properties::setHeader);
+        return new Message(message.getBody(), properties);
+    }
+
+    private List<Recipient> recipients(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Recipient.builder().userId("u" + i).email("u" + i + "@example.com").name("User " + i).build())
+                .toList();
+    }
+}
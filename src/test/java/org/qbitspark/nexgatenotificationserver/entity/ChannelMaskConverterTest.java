@@ -0,0 +1,46 @@
+package org.qbitspark.nexgatenotificationserver.entity;
+
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelMaskConverterTest {
+
+    private final ChannelMaskConverter.ForList list = new ChannelMaskConverter.ForList();
+    private final ChannelMaskConverter.ForSet set = new ChannelMaskConverter.ForSet();
+
+    @Test
+    void channelsRoundTripThroughTheColumn() {
+        List<NotificationChannel> channels = List.of(NotificationChannel.EMAIL, NotificationChannel.IN_APP,
+                NotificationChannel.CHAT_APP);
+        assertThat(list.convertToDatabaseColumn(channels)).isEqualTo(1 | 8 | 32);
+        assertThat(list.convertToEntityAttribute(list.convertToDatabaseColumn(channels))).isEqualTo(channels);
+
+        Set<NotificationChannel> failed = EnumSet.of(NotificationChannel.SMS, NotificationChannel.WEBHOOK);
+        assertThat(set.convertToDatabaseColumn(failed)).isEqualTo(2 | 16);
+        assertThat(set.convertToEntityAttribute(set.convertToDatabaseColumn(failed))).isEqualTo(failed);
+    }
+
+    @Test
+    void unmigratedNullColumnReadsAsNoChannels() {
+        assertThat(list.convertToEntityAttribute(null)).isEmpty();
+        assertThat(set.convertToEntityAttribute(null)).isEmpty();
+        assertThat(set.convertToDatabaseColumn(null)).isZero();
+    }
+
+    @Test
+    void readValuesAreMutable() {
+        Set<NotificationChannel> failed = set.convertToEntityAttribute(2);
+        failed.add(NotificationChannel.PUSH);
+        List<NotificationChannel> channels = list.convertToEntityAttribute(1);
+        channels.add(NotificationChannel.SMS);
+
+        assertThat(set.convertToDatabaseColumn(failed)).isEqualTo(6);
+        assertThat(list.convertToDatabaseColumn(channels)).isEqualTo(3);
+    }
+}
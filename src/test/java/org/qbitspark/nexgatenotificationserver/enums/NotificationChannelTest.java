@@ -0,0 +1,39 @@
+package org.qbitspark.nexgatenotificationserver.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationChannelTest {
+
+    @Test
+    void bitsNeverMove() {
+        // Stored masks depend on these; a reordered or inserted constant would misread every row
+        assertThat(NotificationChannel.EMAIL.bit()).isEqualTo(1);
+        assertThat(NotificationChannel.SMS.bit()).isEqualTo(2);
+        assertThat(NotificationChannel.PUSH.bit()).isEqualTo(4);
+        assertThat(NotificationChannel.IN_APP.bit()).isEqualTo(8);
+        assertThat(NotificationChannel.WEBHOOK.bit()).isEqualTo(16);
+        assertThat(NotificationChannel.CHAT_APP.bit()).isEqualTo(32);
+    }
+
+    @Test
+    void everyMaskRoundTrips() {
+        int all = (1 << NotificationChannel.values().length) - 1;
+        for (int mask = 0; mask <= all; mask++) {
+            assertThat(NotificationChannel.mask(NotificationChannel.fromMask(mask))).isEqualTo(mask);
+        }
+        assertThat(NotificationChannel.fromMask(all)).isEqualTo(EnumSet.allOf(NotificationChannel.class));
+    }
+
+    @Test
+    void maskIgnoresDuplicatesAndNull() {
+        assertThat(NotificationChannel.mask(List.of(NotificationChannel.SMS, NotificationChannel.SMS,
+                NotificationChannel.PUSH))).isEqualTo(6);
+        assertThat(NotificationChannel.mask(null)).isZero();
+        assertThat(NotificationChannel.fromMask(0)).isEmpty();
+    }
+}
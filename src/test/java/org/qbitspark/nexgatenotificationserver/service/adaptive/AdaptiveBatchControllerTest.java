@@ -0,0 +1,154 @@
+package org.qbitspark.nexgatenotificationserver.service.adaptive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelBulkheads;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveBatchControllerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+    private SimpleMeterRegistry registry;
+    private ChannelBulkheads bulkheads;
+    private AdaptiveBatchController controller;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(50);
+        executor.initialize();
+
+        registry = new SimpleMeterRegistry();
+        bulkheads = new ChannelBulkheads(new MockEnvironment()
+                .withProperty("notification.bulkhead.threads", "8")
+                .withProperty("notification.bulkhead.queue-capacity", "50"), registry);
+        controller = new AdaptiveBatchController(executor, bulkheads, registry);
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "initialBatchSize", 15);
+        ReflectionTestUtils.setField(controller, "minBatchSize", 5);
+        ReflectionTestUtils.setField(controller, "maxBatchSize", 30);
+        ReflectionTestUtils.setField(controller, "batchSizeStep", 5);
+        ReflectionTestUtils.setField(controller, "minConcurrency", 2);
+        ReflectionTestUtils.setField(controller, "maxConcurrency", 0);
+        ReflectionTestUtils.setField(controller, "decreaseFactor", 0.5);
+        ReflectionTestUtils.setField(controller, "targetLatencyMs", 1000L);
+        ReflectionTestUtils.setField(controller, "maxErrorRate", 0.1);
+        ReflectionTestUtils.setField(controller, "minSamples", 10);
+        controller.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+        bulkheads.destroy();
+    }
+
+    @Test
+    void growsAdditivelyWhileHealthyWithBacklogUpToBounds() {
+        fillQueue();
+        for (int tick = 0; tick < 10; tick++) {
+            recordSends(NotificationChannel.SMS, 20, 50, 0);
+            controller.adjust();
+        }
+
+        assertThat(controller.batchSize()).isEqualTo(30);
+        assertThat(executor.getCorePoolSize()).isEqualTo(8);
+        assertThat(registry.get("notification.adaptive.adjustments").tag("decision", "INCREASE").counter().count())
+                .isEqualTo(10);
+    }
+
+    @Test
+    void slowOrFailingChannelHalvesOnlyItsOwnThreads() {
+        fillQueue();
+        recordSends(NotificationChannel.EMAIL, 20, 5000, 0);
+        recordSends(NotificationChannel.SMS, 20, 50, 0);
+        controller.adjust();
+        assertThat(bulkheads.limit(NotificationChannel.EMAIL)).isEqualTo(4);
+        assertThat(bulkheads.limit(NotificationChannel.SMS)).isEqualTo(8);
+        assertThat(controller.batchSize()).isEqualTo(15);
+        assertThat(executor.getCorePoolSize()).isEqualTo(4);
+
+        for (int tick = 0; tick < 3; tick++) {
+            recordSends(NotificationChannel.EMAIL, 20, 50, 5);
+            controller.adjust();
+        }
+        assertThat(bulkheads.limit(NotificationChannel.EMAIL)).isEqualTo(1);
+        assertThat(registry.get("notification.adaptive.channel-threads").tag("channel", "EMAIL").gauge().value())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void halvesBatchingWhenEveryChannelIsCongested() {
+        recordSends(NotificationChannel.EMAIL, 20, 5000, 0);
+        recordSends(NotificationChannel.PUSH, 20, 50, 5);
+        controller.adjust();
+        assertThat(controller.batchSize()).isEqualTo(7);
+        assertThat(executor.getCorePoolSize()).isEqualTo(2);
+
+        recordSends(NotificationChannel.EMAIL, 20, 5000, 0);
+        controller.adjust();
+        assertThat(controller.batchSize()).isEqualTo(5);
+        assertThat(executor.getCorePoolSize()).isEqualTo(2);
+        assertThat(registry.get("notification.adaptive.batch-size").gauge().value()).isEqualTo(5);
+    }
+
+    @Test
+    void channelGetsThreadsBackWhileItsSendsQueue() {
+        bulkheads.setLimit(NotificationChannel.SMS, 2);
+        for (int i = 0; i < 4; i++) {
+            bulkheads.submit(NotificationChannel.SMS, this::await);
+        }
+
+        controller.adjust();
+        controller.adjust();
+
+        assertThat(bulkheads.limit(NotificationChannel.SMS)).isEqualTo(4);
+    }
+
+    @Test
+    void holdsWhenIdleOrTooFewSamples() {
+        recordSends(NotificationChannel.EMAIL, 5, 5000, 5);
+        controller.adjust();
+
+        assertThat(controller.batchSize()).isEqualTo(15);
+        assertThat(executor.getCorePoolSize()).isEqualTo(4);
+        assertThat(registry.get("notification.adaptive.adjustments").tag("decision", "HOLD").counter().count())
+                .isEqualTo(1);
+    }
+
+    private void recordSends(NotificationChannel channel, int count, long latencyMs, int failures) {
+        for (int i = 0; i < count; i++) {
+            controller.recordSend(channel, TimeUnit.MILLISECONDS.toNanos(latencyMs), i >= failures);
+        }
+    }
+
+    // Occupies every core thread so further tasks wait in the queue
+    private void fillQueue() {
+        for (int i = 0; i < 12; i++) {
+            executor.execute(this::await);
+        }
+    }
+
+    private boolean await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+package org.qbitspark.nexgatenotificationserver.service.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Rows per second for a batch's notification writes against a real Postgres, before and after
+ * NotificationBatchWriter:
+ * <ul>
+ *   <li>per-row – what two repository.save() calls per recipient cost with the old channel join
+ *       tables: insert + channel rows in one transaction, then a merge (select row and channels,
+ *       update, rewrite the channel bag, add failed channels) in another</li>
+ *   <li>batch-writer – insertProcessing() and updateFinal() over the whole batch</li>
+ * </ul>
+ * Runs only with -Pbenchmark, and is skipped there unless -Dbenchmark.postgres.url is set (plus
+ * .user / .password); tables are created in a throwaway writer_benchmark schema.
+ * -Dbenchmark.rows sets the batch size (default 2000).
+ */
+@Tag("benchmark")
+class NotificationBatchWriterBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationBatchWriterBenchmarkTest.class);
+
+    private static final String SCHEMA = "writer_benchmark";
+    private static final List<NotificationChannel> CHANNELS =
+            List.of(NotificationChannel.EMAIL, NotificationChannel.SMS, NotificationChannel.PUSH);
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+
+    @BeforeAll
+    static void connect() {
+        String url = System.getProperty("benchmark.postgres.url");
+        assumeTrue(url != null, "set -Dbenchmark.postgres.url to run");
+
+        dataSource = new SingleConnectionDataSource(url, System.getProperty("benchmark.postgres.user", "postgres"),
+                System.getProperty("benchmark.postgres.password", ""), true);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbc.execute("drop schema if exists " + SCHEMA + " cascade");
+        jdbc.execute("create schema " + SCHEMA);
+        jdbc.execute("set search_path to " + SCHEMA);
+        jdbc.execute("create table notifications (id uuid primary key, correlation_id varchar(255), " +
+                "event_id varchar(255), user_id varchar(255), recipient_email varchar(255), " +
+                "recipient_phone varchar(255), recipient_name varchar(255), type varchar(255), channel_mask integer, " +
+                "failed_channel_mask integer, status varchar(255), template_data jsonb, created_at timestamp(6), " +
+                "sent_at timestamp(6))");
+        // Join tables the per-row path writes, as before the channel bitmask columns
+        jdbc.execute("create table notification_entity_channels (notification_entity_id uuid not null " +
+                "references notifications, channels varchar(255))");
+        jdbc.execute("create table notification_failed_channels (notification_entity_id uuid not null " +
+                "references notifications, failed_channels varchar(255))");
+    }
+
+    @AfterAll
+    static void dropSchema() {
+        if (dataSource != null) {
+            jdbc.execute("drop schema if exists " + SCHEMA + " cascade");
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void batchWriterOutrunsPerRowSaves() {
+        int rows = Integer.getInteger("benchmark.rows", 2000);
+
+        double perRow = rowsPerSecond(rows, this::perRow);
+        double batched = rowsPerSecond(rows, this::batchWriter);
+
+        log.info(String.format("%-13s %8s %12s", "path", "rows", "rows/s"));
+        log.info(String.format("%-13s %8d %12.0f", "per-row", rows, perRow));
+        log.info(String.format("%-13s %8d %12.0f", "batch-writer", rows, batched));
+
+        assertThat(jdbc.queryForObject("select count(*) from notifications where status <> 'PROCESSING'", Long.class))
+                .isEqualTo(2L * rows);
+        assertThat(batched).isGreaterThan(perRow * 5);
+    }
+
+    private double rowsPerSecond(int rows, Consumer<List<NotificationEntity>> path) {
+        List<NotificationEntity> notifications = notifications(rows);
+        long start = System.nanoTime();
+        path.accept(notifications);
+        long elapsedNanos = System.nanoTime() - start;
+        return rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    private void perRow(List<NotificationEntity> notifications) {
+        for (NotificationEntity notification : notifications) {
+            notification.setId(UUID.randomUUID());
+            transactions.executeWithoutResult(status -> {
+                jdbc.update("insert into notifications (id, correlation_id, event_id, user_id, recipient_email, " +
+                                "recipient_phone, recipient_name, type, status, template_data, created_at, sent_at) " +
+                                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, cast(? as jsonb), ?, ?)",
+                        notification.getId(), notification.getCorrelationId(), notification.getEventId(),
+                        notification.getUserId(), notification.getRecipientEmail(), notification.getRecipientPhone(),
+                        notification.getRecipientName(), notification.getType().name(), NotificationStatus.PROCESSING.name(),
+                        "{\"orderId\":\"ORD-1\"}", LocalDateTime.now(), null);
+                insertChannels(notification.getId());
+            });
+
+            finish(notification);
+            transactions.executeWithoutResult(status -> {
+                jdbc.queryForMap("select * from notifications where id = ?", notification.getId());
+                jdbc.queryForList("select channels from notification_entity_channels where notification_entity_id = ?",
+                        notification.getId());
+                jdbc.update("update notifications set status = ?, sent_at = ? where id = ?",
+                        notification.getStatus().name(), notification.getSentAt(), notification.getId());
+                jdbc.update("delete from notification_entity_channels where notification_entity_id = ?", notification.getId());
+                insertChannels(notification.getId());
+                for (NotificationChannel channel : notification.getFailedChannels()) {
+                    jdbc.update("insert into notification_failed_channels (notification_entity_id, failed_channels) " +
+                            "values (?, ?)", notification.getId(), channel.name());
+                }
+            });
+        }
+    }
+
+    private void insertChannels(UUID id) {
+        for (NotificationChannel channel : CHANNELS) {
+            jdbc.update("insert into notification_entity_channels (notification_entity_id, channels) values (?, ?)",
+                    id, channel.name());
+        }
+    }
+
+    private void batchWriter(List<NotificationEntity> notifications) {
+        NotificationBatchWriter writer = new NotificationBatchWriter(jdbc, new ObjectMapper());
+        transactions.executeWithoutResult(status -> writer.insertProcessing(notifications));
+        notifications.forEach(this::finish);
+        transactions.executeWithoutResult(status -> writer.updateFinal(notifications));
+    }
+
+    // Every tenth recipient loses SMS, like a flaky provider would
+    private void finish(NotificationEntity notification) {
+        boolean smsFailed = notification.getUserId().hashCode() % 10 == 0;
+        notification.setStatus(smsFailed ? NotificationStatus.PARTIAL : NotificationStatus.SENT);
+        notification.setSentAt(LocalDateTime.now());
+        if (smsFailed) {
+            notification.getFailedChannels().add(NotificationChannel.SMS);
+        }
+    }
+
+    private List<NotificationEntity> notifications(int rows) {
+        String correlationId = UUID.randomUUID().toString();
+        List<NotificationEntity> notifications = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Set<NotificationChannel> failed = new HashSet<>();
+            notifications.add(NotificationEntity.builder()
+                    .correlationId(correlationId)
+                    .eventId("evt-" + i)
+                    .userId(UUID.randomUUID().toString())
+                    .recipientEmail("user" + i + "@example.com")
+                    .recipientPhone("+2557000" + i)
+                    .recipientName("User " + i)
+                    .type(NotificationType.ORDER_CONFIRMATION)
+                    .channels(CHANNELS)
+                    .status(NotificationStatus.PROCESSING)
+                    .failedChannels(failed)
+                    .templateData(Map.of("orderId", "ORD-" + i))
+                    .build());
+        }
+        return notifications;
+    }
+}
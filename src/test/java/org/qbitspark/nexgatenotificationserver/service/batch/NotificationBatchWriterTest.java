@@ -0,0 +1,103 @@
+package org.qbitspark.nexgatenotificationserver.service.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the writer's multi-row statements on an in-memory database in PostgreSQL mode, with
+ * more rows than fit in one statement.
+ */
+class NotificationBatchWriterTest {
+
+    private static final int ROWS = 1001;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private NotificationBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:batch-writer;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table notifications (id uuid primary key, correlation_id varchar(255), " +
+                "event_id varchar(255), user_id varchar(255), recipient_email varchar(255), " +
+                "recipient_phone varchar(255), recipient_name varchar(255), type varchar(255), channel_mask integer, " +
+                "failed_channel_mask integer, status varchar(255), template_data jsonb, created_at timestamp(6), " +
+                "sent_at timestamp(6))");
+        writer = new NotificationBatchWriter(jdbc, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("drop all objects");
+        dataSource.destroy();
+    }
+
+    @Test
+    void insertsEveryRowWithItsChannelMasks() {
+        List<NotificationEntity> notifications = notifications();
+
+        writer.insertProcessing(notifications);
+
+        assertThat(jdbc.queryForObject("select count(*) from notifications", Long.class)).isEqualTo(ROWS);
+        Map<String, Object> first = jdbc.queryForMap("select * from notifications where id = ?", notifications.get(0).getId());
+        assertThat(first.get("user_id")).isEqualTo("user-0");
+        assertThat(first.get("channel_mask")).isEqualTo(1 | 2);
+        assertThat(first.get("failed_channel_mask")).isEqualTo(0);
+        assertThat(first.get("status")).isEqualTo("PROCESSING");
+        assertThat(first.get("template_data")).isNotNull();
+    }
+
+    @Test
+    void updatesFinalStatusesAndFailedChannels() {
+        List<NotificationEntity> notifications = notifications();
+        writer.insertProcessing(notifications);
+
+        LocalDateTime sentAt = LocalDateTime.now().withNano(0);
+        for (NotificationEntity notification : notifications) {
+            notification.setStatus(NotificationStatus.PARTIAL);
+            notification.setSentAt(sentAt);
+            notification.setFailedChannels(Set.of(NotificationChannel.SMS));
+        }
+        writer.updateFinal(notifications);
+
+        assertThat(jdbc.queryForObject("select count(*) from notifications where status = 'PARTIAL' " +
+                "and failed_channel_mask = 2 and sent_at is not null", Long.class)).isEqualTo(ROWS);
+    }
+
+    private static List<NotificationEntity> notifications() {
+        List<NotificationEntity> notifications = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            notifications.add(NotificationEntity.builder()
+                    .correlationId("correlation-1")
+                    .eventId("event-" + i)
+                    .userId("user-" + i)
+                    .recipientEmail("user" + i + "@example.com")
+                    .type(NotificationType.ORDER_CONFIRMATION)
+                    .channels(List.of(NotificationChannel.EMAIL, NotificationChannel.SMS))
+                    .failedChannels(new HashSet<>())
+                    .status(NotificationStatus.PROCESSING)
+                    .templateData(Map.of("orderId", "ORD-" + i))
+                    .build());
+        }
+        return notifications;
+    }
+}
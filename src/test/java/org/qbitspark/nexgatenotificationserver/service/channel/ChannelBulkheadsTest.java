@@ -0,0 +1,178 @@
+package org.qbitspark.nexgatenotificationserver.service.channel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelBulkheadsTest {
+
+    private final CountDownLatch hungProvider = new CountDownLatch(1);
+    private MockEnvironment environment;
+    private SimpleMeterRegistry registry;
+    private ChannelBulkheads bulkheads;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment()
+                .withProperty("notification.bulkhead.threads", "2")
+                .withProperty("notification.bulkhead.queue-capacity", "2")
+                .withProperty("notification.bulkhead.deadline-ms", "2000")
+                .withProperty("notification.bulkhead.email.deadline-ms", "200")
+                .withProperty("notification.bulkhead.push.deadline-ms", "500");
+        registry = new SimpleMeterRegistry();
+        bulkheads = new ChannelBulkheads(environment, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hungProvider.countDown();
+        bulkheads.destroy();
+    }
+
+    @Test
+    void hungChannelIsInterruptedAtItsDeadlineWithoutDelayingOthers() {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> email = bulkheads.submit(NotificationChannel.EMAIL, this::hang);
+        CompletableFuture<Boolean> sms = bulkheads.submit(NotificationChannel.SMS, () -> true);
+
+        assertThat(sms.join()).isTrue();
+        assertThat(email.join()).isFalse();
+        long emailMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(emailMs).isGreaterThanOrEqualTo(200L);
+        assertThat(hungProvider.getCount()).isEqualTo(1);
+        assertThat(registry.get("notification.bulkhead.deadline-exceeded").tag("channel", "EMAIL").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void hungProviderFailsItsSendOnTimeAndIsGivenUpOnInTheQueue() throws Exception {
+        // Both EMAIL threads are held well past the deadline by calls that ignore interrupts
+        long start = System.nanoTime();
+        List<CompletableFuture<Boolean>> stubborn = List.of(
+                bulkheads.submit(NotificationChannel.EMAIL, this::holdIgnoringInterrupts),
+                bulkheads.submit(NotificationChannel.EMAIL, this::holdIgnoringInterrupts));
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        CompletableFuture<Boolean> queued = bulkheads.submit(NotificationChannel.EMAIL, () -> queuedRan.getAndSet(true));
+
+        assertThat(stubborn).allSatisfy(send -> assertThat(send.get(1, TimeUnit.SECONDS)).isFalse());
+        assertThat(queued.get(1, TimeUnit.SECONDS)).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000L);
+        assertThat(hungProvider.getCount()).isEqualTo(1);
+        assertThat(registry.get("notification.bulkhead.deadline-exceeded").tag("channel", "EMAIL").counter().count())
+                .isEqualTo(3);
+
+        // The calls go through in the end; the given-up send never runs, and the interrupts
+        // don't leak into the threads' next sends
+        hungProvider.countDown();
+        assertThat(bulkheads.submit(NotificationChannel.EMAIL, () -> !Thread.currentThread().isInterrupted()).join())
+                .isTrue();
+        assertThat(stubborn).allSatisfy(send -> assertThat(send.join()).isFalse());
+        assertThat(queuedRan).isFalse();
+    }
+
+    @Test
+    void deadlineStartsWhenTheSendRuns() {
+        // The queued send finishes 600ms after it was submitted, but 300ms after it started
+        List<CompletableFuture<Boolean>> sends = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sends.add(bulkheads.submit(NotificationChannel.PUSH, () -> sleep(300)));
+        }
+
+        assertThat(sends).allSatisfy(send -> assertThat(send.join()).isTrue());
+        assertThat(registry.get("notification.bulkhead.deadline-exceeded").tag("channel", "PUSH").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void fullBulkheadRejectsOnlyItsOwnChannel() {
+        // 2 threads + 2 queued saturate EMAIL; the fifth send is rejected immediately
+        List<CompletableFuture<Boolean>> email = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            email.add(bulkheads.submit(NotificationChannel.EMAIL, this::hang));
+        }
+
+        assertThat(email.get(4)).isCompletedWithValue(false);
+        assertThat(bulkheads.submit(NotificationChannel.PUSH, () -> true).join()).isTrue();
+        assertThat(registry.get("notification.bulkhead.rejected").tag("channel", "EMAIL").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("notification.bulkhead.saturation").tag("channel", "EMAIL").gauge().value())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void fullChannelMakesCallersWaitWhenSendsRunOnTheirOwnThreads() throws Exception {
+        // Virtual mode, with a platform thread per send standing in for the virtual ones
+        bulkheads.destroy();
+        bulkheads = new ChannelBulkheads(environment, registry = new SimpleMeterRegistry(),
+                new SimpleAsyncTaskExecutor("send-"));
+        List<CompletableFuture<Boolean>> held = List.of(
+                bulkheads.submit(NotificationChannel.SMS, this::holdIgnoringInterrupts),
+                bulkheads.submit(NotificationChannel.SMS, this::holdIgnoringInterrupts));
+        CompletableFuture<Boolean> waiting = CompletableFuture
+                .supplyAsync(() -> bulkheads.submit(NotificationChannel.SMS, () -> true))
+                .thenCompose(send -> send);
+
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (bulkheads.queued(NotificationChannel.SMS) == 0 && System.nanoTime() < until) {
+            Thread.sleep(10);
+        }
+        assertThat(bulkheads.queued(NotificationChannel.SMS)).isEqualTo(1);
+        assertThat(waiting).isNotDone();
+        assertThat(bulkheads.submit(NotificationChannel.PUSH, () -> true).join()).isTrue();
+        assertThat(registry.get("notification.bulkhead.saturation").tag("channel", "SMS").gauge().value())
+                .isEqualTo(1.0);
+
+        hungProvider.countDown();
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(held).allSatisfy(send -> assertThat(send.join()).isTrue());
+        assertThat(registry.get("notification.bulkhead.rejected").tag("channel", "SMS").counter().count())
+                .isZero();
+    }
+
+    // A provider call that gives up when interrupted
+    private boolean hang() {
+        try {
+            hungProvider.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // A provider call that goes through in the end, interrupted or not
+    private boolean holdIgnoringInterrupts() {
+        while (true) {
+            try {
+                hungProvider.await();
+                return true;
+            } catch (InterruptedException ignored) {
+                // keep waiting
+            }
+        }
+    }
+}
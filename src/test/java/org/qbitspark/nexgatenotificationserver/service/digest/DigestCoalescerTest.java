@@ -0,0 +1,79 @@
+package org.qbitspark.nexgatenotificationserver.service.digest;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationType;
+import org.qbitspark.nexgatenotificationserver.service.template.TemplateService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DigestCoalescerTest {
+
+    private final Recipient seller = Recipient.builder().userId("seller-1").name("Seller").build();
+
+    @Test
+    void singleEventIsSentUnchanged() {
+        DeliveryTask join = join("e1", "Asha", NotificationPriority.LOW, NotificationChannel.PUSH);
+
+        assertThat(DigestCoalescer.merge(List.of(join), 1)).isSameAs(join);
+    }
+
+    @Test
+    void mergesIntoLatestEventWithSummary() {
+        DeliveryTask first = join("e1", "Asha", NotificationPriority.LOW, NotificationChannel.PUSH);
+        DeliveryTask second = join("e2", "Baraka", NotificationPriority.NORMAL, NotificationChannel.EMAIL);
+
+        DeliveryTask digest = DigestCoalescer.merge(List.of(first, second), 5);
+        NotificationEvent event = digest.getEvent();
+
+        assertThat(event.getEventId()).isEqualTo("e2");
+        assertThat(event.getChannels()).containsExactly(NotificationChannel.PUSH, NotificationChannel.EMAIL);
+        assertThat(event.getPriority()).isEqualTo(NotificationPriority.NORMAL);
+        assertThat(digest.getRecipient()).isEqualTo(seller);
+        assertThat(DigestData.count(event.getData())).isEqualTo(5);
+        assertThat(event.getData().get(DigestData.DIGEST))
+                .asInstanceOf(InstanceOfAssertFactories.map(String.class, Object.class))
+                .containsEntry(DigestData.MORE, 3L);
+        assertThat(((Map<?, ?>) event.getData().get("newMember")).get("name")).isEqualTo("Baraka");
+        assertThat(event.getData().get(DigestData.ITEMS))
+                .asInstanceOf(InstanceOfAssertFactories.list(Map.class))
+                .extracting(item -> item.get("newMember.name"))
+                .containsExactly("Asha", "Baraka");
+    }
+
+    @Test
+    void digestTemplateListsEveryItem() {
+        DeliveryTask digest = DigestCoalescer.merge(List.of(
+                join("e1", "Asha", NotificationPriority.LOW, NotificationChannel.SMS),
+                join("e2", "Baraka", NotificationPriority.LOW, NotificationChannel.SMS)), 2);
+
+        String html = new TemplateService().renderEmailTemplate("group_member_joined", digest.getEvent().getData());
+        String sms = new TemplateService().renderSmsTemplate("group_member_joined", digest.getEvent().getData());
+
+        assertThat(html).contains("Asha").contains("Baraka").contains("2 people");
+        assertThat(sms).contains("2 people joined your group G-1");
+    }
+
+    private DeliveryTask join(String eventId, String member, NotificationPriority priority, NotificationChannel channel) {
+        NotificationEvent event = NotificationEvent.builder()
+                .eventId(eventId)
+                .type(NotificationType.GROUP_MEMBER_JOINED)
+                .channels(List.of(channel))
+                .priority(priority)
+                .data(Map.of("group", Map.of("code", "G-1"), "newMember", Map.of("name", member, "quantity", 1)))
+                .build();
+        return DeliveryTask.builder()
+                .correlationId("c-" + eventId)
+                .event(event)
+                .recipient(seller)
+                .build();
+    }
+}
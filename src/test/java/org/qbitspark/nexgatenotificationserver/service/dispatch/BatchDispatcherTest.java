@@ -0,0 +1,147 @@
+package org.qbitspark.nexgatenotificationserver.service.dispatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.config.AsyncConfig;
+import org.qbitspark.nexgatenotificationserver.dto.OverflowBatch;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchDispatcherTest {
+
+    private static final int LOW_BACKLOG = 90;
+    private static final long LOW_BATCH_MS = 10;
+    private static final int URGENT_EVENTS = 8;
+
+    private ThreadPoolTaskExecutor executor;
+    private BatchDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "parallelThreads", 1);
+        ReflectionTestUtils.setField(config, "queueCapacity", 100);
+        executor = config.notificationExecutor();
+        dispatcher = new BatchDispatcher(executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void urgentLatencyStaysFlatWhileLowBacklogDrains() throws Exception {
+        AtomicInteger lowCompleted = new AtomicInteger();
+        List<CompletableFuture<Void>> lowFutures = new ArrayList<>();
+        for (int i = 0; i < LOW_BACKLOG; i++) {
+            lowFutures.add(dispatcher.dispatch(NotificationPriority.LOW, () -> {
+                sleep(LOW_BATCH_MS);
+                lowCompleted.incrementAndGet();
+            }));
+        }
+
+        List<Long> urgentLatenciesMs = new ArrayList<>();
+        List<Integer> lowPendingAtUrgent = new ArrayList<>();
+        for (int i = 0; i < URGENT_EVENTS; i++) {
+            sleep(50);
+            long submittedAt = System.nanoTime();
+            long[] startedAt = new long[1];
+            dispatcher.dispatch(NotificationPriority.URGENT, () -> startedAt[0] = System.nanoTime())
+                    .get(5, TimeUnit.SECONDS);
+
+            urgentLatenciesMs.add(TimeUnit.NANOSECONDS.toMillis(startedAt[0] - submittedAt));
+            lowPendingAtUrgent.add(LOW_BACKLOG - lowCompleted.get());
+        }
+
+        CompletableFuture.allOf(lowFutures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // Every URGENT event ran while LOW work was still queued...
+        assertThat(lowPendingAtUrgent).allMatch(pending -> pending > 0);
+        // ...and waited at most for the LOW batch already running, not for the backlog
+        assertThat(urgentLatenciesMs).allMatch(latency -> latency < 5 * LOW_BATCH_MS);
+        assertThat(lowCompleted).hasValue(LOW_BACKLOG);
+    }
+
+    @Test
+    void equalPriorityKeepsSubmissionOrder() throws Exception {
+        CompletableFuture<Void> blocker = dispatcher.dispatch(NotificationPriority.NORMAL, () -> sleep(50));
+
+        List<Integer> order = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            futures.add(dispatcher.dispatch(NotificationPriority.NORMAL, () -> {
+                synchronized (order) {
+                    order.add(index);
+                }
+            }));
+        }
+
+        blocker.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertThat(order).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void checkpointTakesBackOnlyBatchesThatHaveNotStarted() throws Exception {
+        CompletableFuture<Void> running = dispatcher.dispatch(NotificationPriority.NORMAL, () -> sleep(200),
+                () -> OverflowBatch.builder().batchNumber(0).build());
+        sleep(50);
+
+        AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Void>> queued = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            int number = i;
+            queued.add(dispatcher.dispatch(NotificationPriority.LOW, ran::incrementAndGet,
+                    () -> OverflowBatch.builder().priority(NotificationPriority.LOW).batchNumber(number).build()));
+        }
+        assertThat(dispatcher.inFlightCount()).isEqualTo(4);
+
+        List<OverflowBatch> checkpointed = dispatcher.checkpointQueued();
+
+        assertThat(checkpointed).extracting(OverflowBatch::getBatchNumber).containsExactly(1, 2, 3);
+        // Not acked: their messages are requeued when the channels close
+        assertThat(queued).noneMatch(CompletableFuture::isDone);
+        assertThat(dispatcher.inFlightCount()).isEqualTo(1);
+
+        running.get(5, TimeUnit.SECONDS);
+        sleep(50);
+        assertThat(ran).hasValue(0);
+        assertThat(dispatcher.inFlightCount()).isZero();
+    }
+
+    @Test
+    void tryDispatchReturnsInsteadOfBlockingWhenFull() throws Exception {
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        int capacity = dispatcher.availableCapacity();
+        for (int i = 0; i < capacity; i++) {
+            assertThat(dispatcher.tryDispatch(NotificationPriority.NORMAL, release::join)).isNotNull();
+        }
+
+        AtomicInteger ran = new AtomicInteger();
+        assertThat(dispatcher.tryDispatch(NotificationPriority.URGENT, ran::incrementAndGet)).isNull();
+
+        release.complete(null);
+        dispatcher.dispatch(NotificationPriority.URGENT, ran::incrementAndGet).get(5, TimeUnit.SECONDS);
+        assertThat(ran).hasValue(1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
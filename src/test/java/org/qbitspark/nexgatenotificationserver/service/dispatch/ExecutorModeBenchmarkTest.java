@@ -0,0 +1,132 @@
+package org.qbitspark.nexgatenotificationserver.service.dispatch;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.config.AsyncConfig;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.service.channel.ProviderConcurrencyLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Same batch workload through the platform pool and the virtual-thread mode, against stub
+ * providers that only sleep (SMTP ~50ms, SMS API ~20ms, push ~10ms). The provider limit is
+ * checked on every build; throughput and peak in-flight sends are compared and logged only in
+ * the benchmark run (-Pbenchmark). Virtual mode needs JDK 21 and is skipped otherwise.
+ */
+class ExecutorModeBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorModeBenchmarkTest.class);
+
+    private static final int BATCHES = 50;
+    private static final int RECIPIENTS_PER_BATCH = 5;
+    private static final int EMAIL_LIMIT = 20;
+    private static final Map<NotificationChannel, Long> LATENCY_MS = Map.of(
+            NotificationChannel.EMAIL, 50L,
+            NotificationChannel.SMS, 20L,
+            NotificationChannel.PUSH, 10L);
+
+    @Test
+    void virtualThreadsStayWithinProviderLimits() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual mode needs JDK 21");
+
+        Result virtual = run("virtual");
+
+        assertThat(virtual.peakByChannel.get(NotificationChannel.EMAIL)).isLessThanOrEqualTo(EMAIL_LIMIT);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void virtualThreadsRaiseInFlightSendsWithinProviderLimits() throws Exception {
+        Result platform = run("platform");
+        log.info(String.format("%-9s %8s %12s %16s %18s", "mode", "ms", "sends/s", "peak in-flight", "peak EMAIL"));
+        print("platform", platform);
+
+        assumeTrue(Runtime.version().feature() >= 21, "virtual mode needs JDK 21");
+
+        Result virtual = run("virtual");
+        print("virtual", virtual);
+
+        assertThat(virtual.peakInFlight).isGreaterThan(platform.peakInFlight * 4);
+        assertThat(virtual.elapsedMs).isLessThan(platform.elapsedMs / 2);
+        assertThat(virtual.peakByChannel.get(NotificationChannel.EMAIL)).isLessThanOrEqualTo(EMAIL_LIMIT);
+    }
+
+    private Result run(String mode) throws Exception {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "parallelThreads", 5);
+        ReflectionTestUtils.setField(config, "queueCapacity", 100);
+        ReflectionTestUtils.setField(config, "executorMode", mode);
+        ReflectionTestUtils.setField(config, "virtualConcurrency", 1000);
+        ThreadPoolTaskExecutor executor = config.notificationExecutor();
+        BatchDispatcher dispatcher = new BatchDispatcher(executor);
+        ProviderConcurrencyLimiter limiter = new ProviderConcurrencyLimiter(
+                new MockEnvironment().withProperty("notification.provider.email.max-concurrency", String.valueOf(EMAIL_LIMIT)));
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        Map<NotificationChannel, AtomicInteger> byChannel = new EnumMap<>(NotificationChannel.class);
+        Map<NotificationChannel, AtomicInteger> peakByChannel = new EnumMap<>(NotificationChannel.class);
+        LATENCY_MS.keySet().forEach(channel -> {
+            byChannel.put(channel, new AtomicInteger());
+            peakByChannel.put(channel, new AtomicInteger());
+        });
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int b = 0; b < BATCHES; b++) {
+            futures.add(dispatcher.dispatch(NotificationPriority.NORMAL, () -> {
+                for (int r = 0; r < RECIPIENTS_PER_BATCH; r++) {
+                    for (NotificationChannel channel : LATENCY_MS.keySet()) {
+                        limiter.send(channel, () -> {
+                            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            peakByChannel.get(channel).accumulateAndGet(byChannel.get(channel).incrementAndGet(), Math::max);
+                            sleep(LATENCY_MS.get(channel));
+                            byChannel.get(channel).decrementAndGet();
+                            inFlight.decrementAndGet();
+                            return true;
+                        });
+                    }
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+
+        Map<NotificationChannel, Integer> peaks = new EnumMap<>(NotificationChannel.class);
+        peakByChannel.forEach((channel, peak) -> peaks.put(channel, peak.get()));
+        return new Result(elapsedMs, peakInFlight.get(), peaks);
+    }
+
+    private void print(String mode, Result result) {
+        long sends = (long) BATCHES * RECIPIENTS_PER_BATCH * LATENCY_MS.size();
+        log.info(String.format("%-9s %8d %12.0f %16d %18d", mode, result.elapsedMs,
+                sends * 1000.0 / result.elapsedMs, result.peakInFlight, result.peakByChannel.get(NotificationChannel.EMAIL)));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(long elapsedMs, int peakInFlight, Map<NotificationChannel, Integer> peakByChannel) {}
+}
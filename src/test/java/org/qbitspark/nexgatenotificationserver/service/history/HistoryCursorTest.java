@@ -0,0 +1,29 @@
+package org.qbitspark.nexgatenotificationserver.service.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTest {
+
+    @Test
+    void roundTripsThroughAnUrlSafeToken() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2026, 10, 16, 9, 30, 12, 345_678_000), UUID.randomUUID());
+
+        String token = cursor.encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(HistoryCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsTokensItDidNotMake() {
+        assertThatThrownBy(() -> HistoryCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HistoryCursor.decode("bm8tc2VwYXJhdG9y")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HistoryCursor.decode("MjAyNi0xMC0xNnxub3QtYS11dWlk")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,96 @@
+package org.qbitspark.nexgatenotificationserver.service.lifecycle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.service.partition.NotificationPartitionManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Backfills on an in-memory database in PostgreSQL mode, starting from the baseline schema:
+ * channels in notification_entity_channels, no notification_failed_channels table, and the
+ * mask columns Hibernate added still null.
+ */
+class ChannelMaskMigrationTest {
+
+    private final UUID emailAndSms = UUID.randomUUID();
+    private final UUID push = UUID.randomUUID();
+    private final UUID none = UUID.randomUUID();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ChannelMaskMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:channel-mask;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table notifications (id uuid primary key, status varchar(255), " +
+                "channel_mask integer, failed_channel_mask integer)");
+        jdbc.execute("create table notification_entity_channels (notification_entity_id uuid not null " +
+                "references notifications, channels varchar(255))");
+        for (UUID id : new UUID[] {emailAndSms, push, none}) {
+            jdbc.update("insert into notifications (id, status) values (?, 'SENT')", id);
+        }
+        jdbc.update("insert into notification_entity_channels values (?, 'EMAIL'), (?, 'SMS'), (?, 'PUSH')",
+                emailAndSms, emailAndSms, push);
+
+        migration = new ChannelMaskMigration(jdbc, mock(NotificationPartitionManager.class));
+        ReflectionTestUtils.setField(migration, "pageSize", 2);
+        ReflectionTestUtils.setField(migration, "dropLegacyTables", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("drop all objects");
+        dataSource.destroy();
+    }
+
+    @Test
+    void backfillsEveryRowWithoutAFailedChannelsTable() {
+        migration.backfill();
+
+        assertThat(masks(emailAndSms)).containsExactly(1 | 2, 0);
+        assertThat(masks(push)).containsExactly(4, 0);
+        assertThat(masks(none)).containsExactly(0, 0);
+        assertThat(tableExists("notification_entity_channels")).isFalse();
+    }
+
+    @Test
+    void backfillsOneRowAheadOfThePass() {
+        migration.backfill(push);
+
+        assertThat(masks(push)).containsExactly(4, 0);
+        assertThat(masks(emailAndSms)).containsExactly(null, null);
+    }
+
+    @Test
+    void readsFailedChannelsWhenTheirTableExists() {
+        jdbc.execute("create table notification_failed_channels (notification_entity_id uuid not null " +
+                "references notifications, failed_channels varchar(255))");
+        jdbc.update("insert into notification_failed_channels values (?, 'SMS')", emailAndSms);
+
+        migration.backfill();
+
+        assertThat(masks(emailAndSms)).containsExactly(1 | 2, 2);
+        assertThat(tableExists("notification_failed_channels")).isFalse();
+    }
+
+    private Integer[] masks(UUID id) {
+        return jdbc.queryForObject("select channel_mask, failed_channel_mask from notifications where id = ?",
+                (row, i) -> new Integer[] {row.getObject(1, Integer.class), row.getObject(2, Integer.class)}, id);
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("select exists (select 1 from information_schema.tables " +
+                "where table_schema = current_schema() and table_name = ?)", Boolean.class, table));
+    }
+}
@@ -0,0 +1,76 @@
+package org.qbitspark.nexgatenotificationserver.service.overflow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedJournalFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysUncommittedRecordsInOrderAfterReopen() throws Exception {
+        Path file = dir.resolve("overflow.journal");
+        try (MappedJournalFile journal = new MappedJournalFile(file, 4096, false)) {
+            assertThat(journal.append(bytes("batch-1"))).isTrue();
+            assertThat(journal.append(bytes("batch-2"))).isTrue();
+            assertThat(journal.append(bytes("batch-3"))).isTrue();
+
+            MappedJournalFile.Entry first = journal.next();
+            assertThat(text(first)).isEqualTo("batch-1");
+            journal.commit(first.endOffset());
+            // batch-2 handed out but not committed: it must come back after a restart
+            assertThat(text(journal.next())).isEqualTo("batch-2");
+        }
+
+        try (MappedJournalFile journal = new MappedJournalFile(file, 4096, false)) {
+            assertThat(journal.unreadCount()).isEqualTo(2);
+            assertThat(text(journal.next())).isEqualTo("batch-2");
+            assertThat(text(journal.next())).isEqualTo("batch-3");
+            assertThat(journal.next()).isNull();
+        }
+    }
+
+    @Test
+    void wrapsWhenDrainedAndIgnoresStaleRecordsAfterTheWrap() throws Exception {
+        Path file = dir.resolve("overflow.journal");
+        try (MappedJournalFile journal = new MappedJournalFile(file, 4096, false)) {
+            journal.append(bytes("old-1"));
+            journal.append(bytes("old-2"));
+            journal.next();
+            MappedJournalFile.Entry last = journal.next();
+            journal.commit(last.endOffset());
+            assertThat(journal.backlogBytes()).isZero();
+
+            // Lands on top of old-1; old-2 is still on disk right behind it
+            journal.append(bytes("new-1"));
+        }
+
+        try (MappedJournalFile journal = new MappedJournalFile(file, 4096, false)) {
+            assertThat(text(journal.next())).isEqualTo("new-1");
+            assertThat(journal.next()).isNull();
+        }
+    }
+
+    @Test
+    void refusesRecordsThatDoNotFit() throws Exception {
+        try (MappedJournalFile journal = new MappedJournalFile(dir.resolve("small.journal"), 64, false)) {
+            assertThat(journal.append(new byte[40])).isTrue();
+            assertThat(journal.append(new byte[40])).isFalse();
+            assertThat(journal.unreadCount()).isEqualTo(1);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(MappedJournalFile.Entry entry) {
+        return new String(entry.payload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+package org.qbitspark.nexgatenotificationserver.service.overflow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchProcessor;
+import org.qbitspark.nexgatenotificationserver.service.dispatch.BatchDispatcher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class OverflowJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final NotificationBatchProcessor processor = mock(NotificationBatchProcessor.class);
+    private ThreadPoolTaskExecutor executor;
+    private BatchDispatcher dispatcher;
+    private OverflowJournal journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        dispatcher = new BatchDispatcher(executor);
+
+        journal = new OverflowJournal(dispatcher, processor, new ObjectMapper().findAndRegisterModules(),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "path", dir.resolve("overflow.journal").toString());
+        ReflectionTestUtils.setField(journal, "sizeBytes", 1 << 16);
+        ReflectionTestUtils.setField(journal, "force", false);
+        ReflectionTestUtils.setField(journal, "bypassPriority", NotificationPriority.HIGH);
+        journal.open();
+        journal.startReplay();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        journal.close();
+        executor.shutdown();
+    }
+
+    @Test
+    void journaledBatchCompletesOnlyOnceReplayed() {
+        saturate();
+        assertThat(journal.shouldJournal(NotificationPriority.NORMAL)).isTrue();
+
+        CompletableFuture<Void> journaled = journal.append(NotificationPriority.NORMAL, 7, tasks());
+
+        // Acking now would lose the batch if this node died before replaying it
+        assertThat(journaled).isNotNull().isNotDone();
+        release.countDown();
+        journaled.orTimeout(5, TimeUnit.SECONDS).join();
+        verify(processor, timeout(1000)).processTasks(eq(7), anyList());
+    }
+
+    @Test
+    void highPriorityBypassesTheJournal() {
+        saturate();
+        journal.append(NotificationPriority.LOW, 1, tasks());
+
+        assertThat(journal.shouldJournal(NotificationPriority.LOW)).isTrue();
+        assertThat(journal.shouldJournal(NotificationPriority.HIGH)).isFalse();
+        assertThat(journal.shouldJournal(NotificationPriority.URGENT)).isFalse();
+    }
+
+    // One batch running and one queued use up the dispatcher's capacity of two
+    private void saturate() {
+        for (int i = 0; i < 2; i++) {
+            dispatcher.dispatch(NotificationPriority.NORMAL, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertThat(dispatcher.availableCapacity()).isZero();
+    }
+
+    private static List<DeliveryTask> tasks() {
+        Recipient recipient = Recipient.builder().userId("user-1").email("user-1@example.com").build();
+        return List.of(DeliveryTask.builder()
+                .correlationId("correlation-1")
+                .event(NotificationEvent.builder().eventId("event-1").recipients(List.of(recipient)).build())
+                .recipient(recipient)
+                .build());
+    }
+}
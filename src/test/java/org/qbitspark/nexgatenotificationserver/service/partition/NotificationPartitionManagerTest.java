@@ -0,0 +1,57 @@
+package org.qbitspark.nexgatenotificationserver.service.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotificationPartitionManagerTest {
+
+    private final ThreadPoolTaskExecutor maintenanceExecutor = new ThreadPoolTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        maintenanceExecutor.shutdown();
+    }
+
+    @Test
+    void convertsOffTheStartupThreadAndRunsDependentJobsAfterIt() throws Exception {
+        maintenanceExecutor.setCorePoolSize(2);
+        maintenanceExecutor.initialize();
+        CountDownLatch conversionStarted = new CountDownLatch(1);
+        CountDownLatch conversionDone = new CountDownLatch(1);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any())).thenAnswer(invocation -> {
+            conversionStarted.countDown();
+            conversionDone.await();
+            return null;
+        });
+        when(jdbcTemplate.queryForObject(any(String.class), eq(Boolean.class))).thenReturn(false);
+
+        NotificationPartitionManager manager = new NotificationPartitionManager(jdbcTemplate,
+                mock(TransactionTemplate.class), maintenanceExecutor);
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        CountDownLatch indexes = new CountDownLatch(1);
+
+        manager.start();
+        manager.afterConversion(indexes::countDown);
+
+        assertThat(conversionStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(indexes.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        conversionDone.countDown();
+        assertThat(indexes.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
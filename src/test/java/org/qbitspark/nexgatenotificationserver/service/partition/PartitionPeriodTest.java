@@ -0,0 +1,40 @@
+package org.qbitspark.nexgatenotificationserver.service.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionPeriodTest {
+
+    @Test
+    void monthsStartOnTheFirst() {
+        LocalDate date = LocalDate.of(2026, 12, 17);
+        assertThat(PartitionPeriod.MONTH.start(date)).isEqualTo(LocalDate.of(2026, 12, 1));
+        assertThat(PartitionPeriod.MONTH.next(date)).isEqualTo(LocalDate.of(2027, 1, 1));
+        assertThat(PartitionPeriod.MONTH.plus(LocalDate.of(2026, 3, 1), -12)).isEqualTo(LocalDate.of(2025, 3, 1));
+    }
+
+    @Test
+    void weeksStartOnMonday() {
+        // 2026-10-16 is a Friday
+        LocalDate date = LocalDate.of(2026, 10, 16);
+        assertThat(PartitionPeriod.WEEK.start(date)).isEqualTo(LocalDate.of(2026, 10, 12));
+        assertThat(PartitionPeriod.WEEK.next(date)).isEqualTo(LocalDate.of(2026, 10, 19));
+        assertThat(PartitionPeriod.WEEK.start(LocalDate.of(2026, 10, 12))).isEqualTo(LocalDate.of(2026, 10, 12));
+    }
+
+    @Test
+    void readsUpperBoundsOfRangePartitions() {
+        assertThat(NotificationPartitionManager.upperBound(
+                "FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')"))
+                .isEqualTo(LocalDateTime.of(2026, 11, 1, 0, 0));
+        assertThat(NotificationPartitionManager.upperBound(
+                "FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00')"))
+                .isEqualTo(LocalDateTime.of(2026, 11, 1, 0, 0));
+        assertThat(NotificationPartitionManager.upperBound("FOR VALUES FROM ('2026-10-01 00:00:00') TO (MAXVALUE)")).isNull();
+        assertThat(NotificationPartitionManager.upperBound("DEFAULT")).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package org.qbitspark.nexgatenotificationserver.service.progress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Answers;
+import org.qbitspark.nexgatenotificationserver.dto.CorrelationProgress;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.CorrelationChunkRepository;
+import org.qbitspark.nexgatenotificationserver.repository.CorrelationProgressRepository;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CorrelationProgressServiceTest {
+
+    private static final int RECIPIENTS = 2000;
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class, Answers.RETURNS_DEEP_STUBS);
+    private final CorrelationProgressService service =
+            new CorrelationProgressService(mock(CorrelationProgressRepository.class), rabbitTemplate,
+                    mock(CorrelationChunkRepository.class), mock(TransactionTemplate.class), redisTemplate,
+                    new ObjectMapper().findAndRegisterModules());
+
+    {
+        ReflectionTestUtils.setField(service, "retentionMinutes", 60L);
+        ReflectionTestUtils.setField(service, "maxTracked", 100_000);
+    }
+
+    @Test
+    void concurrentBatchesCompleteTheCorrelationExactlyOnce() throws Exception {
+        List<Recipient> recipients = IntStream.range(0, RECIPIENTS)
+                .mapToObj(i -> Recipient.builder().userId("user-" + i).build())
+                .toList();
+        NotificationEvent event = NotificationEvent.builder()
+                .eventId("evt-1")
+                .recipients(recipients)
+                .channels(List.of(NotificationChannel.EMAIL, NotificationChannel.SMS))
+                .build();
+        service.begin("corr-1", event);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<DeliveryTask> tasks = new ArrayList<>();
+        recipients.forEach(r -> tasks.add(DeliveryTask.builder().correlationId("corr-1").event(event).recipient(r).build()));
+        for (int i = 0; i < tasks.size(); i++) {
+            DeliveryTask task = tasks.get(i);
+            int n = i;
+            pool.execute(() -> {
+                if (n % 10 == 0) {
+                    service.recordSkipped(task);
+                } else if (n % 10 == 1) {
+                    service.recordDelivery(task, NotificationStatus.PARTIAL,
+                            Map.of(NotificationChannel.EMAIL, true, NotificationChannel.SMS, false));
+                } else {
+                    service.recordDelivery(task, NotificationStatus.SENT,
+                            Map.of(NotificationChannel.EMAIL, true, NotificationChannel.SMS, true));
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        ArgumentCaptor<CorrelationProgress> published = ArgumentCaptor.forClass(CorrelationProgress.class);
+        verify(rabbitTemplate, times(1)).convertAndSend(eq(CorrelationProgressService.NOTIFICATION_EXCHANGE),
+                eq(CorrelationProgressService.COMPLETED_ROUTING_KEY), published.capture());
+
+        CorrelationProgress progress = published.getValue();
+        assertThat(progress.isCompleted()).isTrue();
+        assertThat(progress.getProcessed()).isEqualTo(RECIPIENTS);
+        assertThat(progress.getSkipped()).isEqualTo(200);
+        assertThat(progress.getPartial()).isEqualTo(200);
+        assertThat(progress.getSent()).isEqualTo(1600);
+        assertThat(progress.getSentByChannel()).containsEntry(NotificationChannel.EMAIL, 1800L);
+        assertThat(progress.getFailedByChannel()).containsEntry(NotificationChannel.SMS, 200L);
+        assertThat(service.findByEventId("evt-1")).contains(progress);
+    }
+
+    @Test
+    void oldestCorrelationsMoveToRedisPastMaxTracked() {
+        ReflectionTestUtils.setField(service, "maxTracked", 10);
+        for (int i = 0; i < 11; i++) {
+            Recipient recipient = Recipient.builder().userId("user-" + i).build();
+            service.begin("corr-" + i, NotificationEvent.builder()
+                    .eventId("evt-" + i)
+                    .recipients(List.of(recipient))
+                    .channels(List.of(NotificationChannel.EMAIL))
+                    .build());
+        }
+
+        // Trimmed to 90%: the two oldest unfinished ones are kept in Redis instead
+        verify(redisTemplate.opsForValue(), times(2))
+                .set(matches("notification:progress:corr-\\d+"), anyString(), any(Duration.class));
+        assertThat(IntStream.range(0, 11).filter(i -> service.find("corr-" + i).isPresent())).hasSize(9);
+    }
+}
@@ -0,0 +1,85 @@
+package org.qbitspark.nexgatenotificationserver.service.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderRateLimiterTest {
+
+    private final FakeRedis redis = new FakeRedis();
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("notification.ratelimit.prefetch", "10")
+            .withProperty("notification.ratelimit.max-wait-ms", "300")
+            .withProperty("notification.ratelimit.sms.rate-per-second", "100")
+            .withProperty("notification.ratelimit.sms.burst", "50")
+            .withProperty("notification.ratelimit.email.rate-per-second", "1");
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProviderRateLimiter limiter = new ProviderRateLimiter(redis, environment, registry);
+
+    @Test
+    void prefetchKeepsMostAcquiresOffTheNetwork() {
+        for (int i = 0; i < 50; i++) {
+            assertThat(limiter.acquire("sms", 1)).isTrue();
+        }
+        assertThat(redis.calls.get()).isEqualTo(5);
+    }
+
+    @Test
+    void waitsForRefillThenReschedulesPastMaxWait() {
+        redis.tokens = 0;
+        long start = System.currentTimeMillis();
+        assertThat(limiter.acquire("sms", 5)).isTrue();
+        assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(10);
+
+        // Next token is a second away, past the 300ms max wait
+        redis.rate = 1;
+        redis.tokens = 0;
+        assertThat(limiter.acquire("email", 1)).isFalse();
+        assertThat(registry.get("notification.ratelimit.rescheduled").tag("provider", "email").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void unconfiguredProvidersAndRedisOutagesAreNotLimited() {
+        assertThat(limiter.acquire("gotify", 1000)).isTrue();
+        assertThat(redis.calls.get()).isZero();
+
+        redis.down = true;
+        assertThat(limiter.acquire("sms", 1)).isTrue();
+    }
+
+    // The token-bucket script, evaluated in memory
+    private static class FakeRedis extends StringRedisTemplate {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile double tokens = 50;
+        volatile double rate = 100;
+        volatile boolean down;
+        long ts = System.currentTimeMillis();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            calls.incrementAndGet();
+            if (down) {
+                throw new QueryTimeoutException("redis down");
+            }
+            long now = System.currentTimeMillis();
+            double capacity = Double.parseDouble((String) args[1]);
+            long wanted = Long.parseLong((String) args[2]);
+            tokens = Math.min(capacity, tokens + (now - ts) * rate / 1000);
+            ts = now;
+            long granted = Math.min(wanted, (long) tokens);
+            tokens -= granted;
+            long waitMs = granted < wanted ? (long) Math.ceil((1 - tokens) * 1000 / rate) : 0;
+            return (T) List.of(granted, waitMs);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.qbitspark.nexgatenotificationserver.service.retry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.dto.ChannelRetry;
+import org.qbitspark.nexgatenotificationserver.dto.NotificationEvent;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.NotificationRepository;
+import org.qbitspark.nexgatenotificationserver.service.channel.ChannelSender;
+import org.qbitspark.nexgatenotificationserver.service.idempotency.DeliveryIdempotencyService;
+import org.qbitspark.nexgatenotificationserver.service.lifecycle.ChannelMaskMigration;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChannelRetryServiceTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final ChannelSender channelSender = mock(ChannelSender.class);
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final DeliveryIdempotencyService idempotencyService = mock(DeliveryIdempotencyService.class);
+    private final UUID notificationId = UUID.randomUUID();
+    private ChannelRetryService retryService;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactions = new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+        retryService = new ChannelRetryService(rabbitTemplate, new RetryTiers("10s"), channelSender,
+                notificationRepository, transactions, idempotencyService, mock(ChannelMaskMigration.class));
+        ReflectionTestUtils.setField(retryService, "enabled", true);
+        when(channelSender.acquire(any())).thenReturn(true);
+    }
+
+    @Test
+    void exhaustedChannelOfAnAllDeferredRowSettlesItAsFailed() {
+        NotificationEntity notification = stored(NotificationStatus.PENDING, EnumSet.of(NotificationChannel.SMS));
+        when(notificationRepository.findByIdForUpdate(notificationId)).thenReturn(Optional.of(notification));
+
+        retryService.retry(failingRetry(NotificationChannel.SMS));
+
+        verify(rabbitTemplate).convertAndSend(eq(RetryTiers.DEAD_LETTER_EXCHANGE), any(String.class), any(ChannelRetry.class));
+        assertThat(notification.getStatus()).isEqualTo(NotificationStatus.FAILED);
+        assertThat(notification.getFailedChannels()).containsExactly(NotificationChannel.SMS);
+    }
+
+    @Test
+    void exhaustedChannelNextToADeliveredOneSettlesThePartialRow() {
+        NotificationEntity notification = stored(NotificationStatus.PARTIAL, EnumSet.of(NotificationChannel.SMS));
+        notification.setChannels(List.of(NotificationChannel.EMAIL, NotificationChannel.SMS));
+        when(notificationRepository.findByIdForUpdate(notificationId)).thenReturn(Optional.of(notification));
+
+        retryService.retry(failingRetry(NotificationChannel.SMS));
+
+        assertThat(notification.getStatus()).isEqualTo(NotificationStatus.PARTIAL);
+        verify(idempotencyService, never()).release(null);
+    }
+
+    // The only tier is used up once this attempt fails; the event has no eventId, so no key
+    private ChannelRetry failingRetry(NotificationChannel channel) {
+        when(channelSender.send(eq(channel), any(), any())).thenReturn(false);
+        Recipient recipient = Recipient.builder().userId("user-1").phone("+255700000000").build();
+        return ChannelRetry.builder()
+                .notificationId(notificationId)
+                .channel(channel)
+                .event(NotificationEvent.builder().recipients(List.of(recipient)).channels(List.of(channel)).build())
+                .attempt(1)
+                .build();
+    }
+
+    private NotificationEntity stored(NotificationStatus status, EnumSet<NotificationChannel> failed) {
+        return NotificationEntity.builder()
+                .id(notificationId)
+                .status(status)
+                .channels(List.of(NotificationChannel.SMS))
+                .failedChannels(failed)
+                .build();
+    }
+}
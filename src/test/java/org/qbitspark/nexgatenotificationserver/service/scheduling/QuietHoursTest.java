@@ -0,0 +1,72 @@
+package org.qbitspark.nexgatenotificationserver.service.scheduling;
+
+import org.junit.jupiter.api.Test;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationPriority;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuietHoursTest {
+
+    // Dar es Salaam is UTC+3: quiet from 18:00Z to 05:00Z
+    private final QuietHours quietHours = new QuietHours(true, ZoneId.of("Africa/Dar_es_Salaam"),
+            LocalTime.of(21, 0), LocalTime.of(8, 0), NotificationPriority.HIGH);
+
+    private final Recipient recipient = Recipient.builder().userId("u1").build();
+
+    @Test
+    void sendOutsideWindowIsUnchanged() {
+        Instant noon = Instant.parse("2025-03-10T09:00:00Z");
+
+        assertThat(quietHours.adjust(recipient, NotificationPriority.NORMAL, noon)).isEqualTo(noon);
+    }
+
+    @Test
+    void sendBeforeMidnightMovesToNextMorning() {
+        Instant lateEvening = Instant.parse("2025-03-10T20:30:00Z");  // 23:30 local
+
+        assertThat(quietHours.adjust(recipient, NotificationPriority.NORMAL, lateEvening))
+                .isEqualTo(Instant.parse("2025-03-11T05:00:00Z"));
+    }
+
+    @Test
+    void sendAfterMidnightMovesToSameMorning() {
+        Instant night = Instant.parse("2025-03-10T23:00:00Z");  // 02:00 local on the 11th
+
+        assertThat(quietHours.adjust(recipient, NotificationPriority.LOW, night))
+                .isEqualTo(Instant.parse("2025-03-11T05:00:00Z"));
+    }
+
+    @Test
+    void recipientZoneAndWindowOverrideDefaults() {
+        Recipient berlin = Recipient.builder()
+                .timezone("Europe/Berlin")
+                .quietHoursStart(LocalTime.of(13, 0))
+                .quietHoursEnd(LocalTime.of(14, 0))
+                .build();
+        Instant lunch = Instant.parse("2025-01-15T12:30:00Z");  // 13:30 in Berlin (UTC+1)
+
+        assertThat(quietHours.adjust(berlin, NotificationPriority.NORMAL, lunch))
+                .isEqualTo(Instant.parse("2025-01-15T13:00:00Z"));
+    }
+
+    @Test
+    void highPriorityIgnoresQuietHours() {
+        Instant night = Instant.parse("2025-03-10T23:00:00Z");
+
+        assertThat(quietHours.adjust(recipient, NotificationPriority.URGENT, night)).isEqualTo(night);
+    }
+
+    @Test
+    void unknownTimezoneFallsBackToDefault() {
+        Recipient unknown = Recipient.builder().timezone("Mars/Olympus").build();
+        Instant lateEvening = Instant.parse("2025-03-10T20:30:00Z");
+
+        assertThat(quietHours.adjust(unknown, NotificationPriority.NORMAL, lateEvening))
+                .isEqualTo(Instant.parse("2025-03-11T05:00:00Z"));
+    }
+}
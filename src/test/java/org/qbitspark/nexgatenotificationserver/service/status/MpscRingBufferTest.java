@@ -0,0 +1,78 @@
+package org.qbitspark.nexgatenotificationserver.service.status;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscRingBufferTest {
+
+    @Test
+    void refusesOffersWhenFullUntilDrained() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ring.drain(drained::add, 2)).isEqualTo(2);
+        assertThat(drained).containsExactly(0, 1);
+        assertThat(ring.offer(4)).isTrue();
+        assertThat(ring.offer(5)).isTrue();
+
+        ring.drain(drained::add, Integer.MAX_VALUE);
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void concurrentProducersLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<Long> ring = new MpscRingBuffer<>(64);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            pool.submit(() -> {
+                start.await();
+                for (long i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();  // let the consumer run on small machines
+                    }
+                }
+                return null;
+            });
+        }
+
+        Set<Long> seen = new HashSet<>();
+        long[] lastPerProducer = new long[producers];
+        Arrays.fill(lastPerProducer, -1);
+        boolean[] ordered = {true};
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+            ring.drain(value -> {
+                assertThat(seen.add(value)).isTrue();
+                int producer = (int) (value / perProducer);
+                // Each producer's elements come out in the order it offered them
+                ordered[0] &= value > lastPerProducer[producer];
+                lastPerProducer[producer] = value;
+            }, 256);
+        }
+        pool.shutdown();
+
+        assertThat(seen).hasSize(producers * perProducer);
+        assertThat(ordered[0]).isTrue();
+    }
+}
@@ -0,0 +1,117 @@
+package org.qbitspark.nexgatenotificationserver.service.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.qbitspark.nexgatenotificationserver.dto.DeliveryTask;
+import org.qbitspark.nexgatenotificationserver.dto.Recipient;
+import org.qbitspark.nexgatenotificationserver.entity.NotificationEntity;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationChannel;
+import org.qbitspark.nexgatenotificationserver.enums.NotificationStatus;
+import org.qbitspark.nexgatenotificationserver.repository.NotificationRepository;
+import org.qbitspark.nexgatenotificationserver.service.batch.NotificationBatchWriter;
+import org.qbitspark.nexgatenotificationserver.service.overflow.MappedJournalFile;
+import org.qbitspark.nexgatenotificationserver.service.retry.ChannelRetryService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusWriteBehindTest {
+
+    @TempDir
+    Path dir;
+
+    private final NotificationBatchWriter batchWriter = mock(NotificationBatchWriter.class);
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final ChannelRetryService retryService = mock(ChannelRetryService.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void writesAroundARowTheDatabaseRejects() throws Exception {
+        NotificationEntity bad = notification(NotificationStatus.SENT);
+        List<NotificationEntity> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<NotificationEntity> rows = invocation.getArgument(0);
+            if (rows.contains(bad)) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            written.addAll(rows);
+            return null;
+        }).when(batchWriter).updateFinal(anyList());
+
+        StatusWriteBehind writeBehind = open();
+        List<NotificationEntity> batch = List.of(notification(NotificationStatus.SENT), bad,
+                notification(NotificationStatus.PARTIAL), notification(NotificationStatus.SENT));
+        AtomicBoolean afterWrite = new AtomicBoolean();
+        writeBehind.record(batch, () -> afterWrite.set(true));
+        writeBehind.stop();
+
+        assertThat(written).containsExactlyInAnyOrder(batch.get(0), batch.get(2), batch.get(3));
+        assertThat(afterWrite).isTrue();
+    }
+
+    @Test
+    void recoveryRepublishesRetriesOfFailedChannels() throws Exception {
+        NotificationEntity stored = notification(NotificationStatus.PROCESSING);
+        StatusWriteBehind.StatusUpdate update = new StatusWriteBehind.StatusUpdate(stored.getId(),
+                NotificationStatus.PARTIAL, LocalDateTime.now(), Set.of(NotificationChannel.SMS));
+        try (MappedJournalFile wal = new MappedJournalFile(dir.resolve("status.wal"), 1 << 16, false)) {
+            wal.append(objectMapper.writeValueAsBytes(List.of(update)));
+        }
+
+        DeliveryTask task = DeliveryTask.builder().recipient(Recipient.builder().phone("+255700000000").build()).build();
+        when(notificationRepository.findAllById(List.of(stored.getId()))).thenReturn(List.of(stored));
+        when(retryService.taskOf(stored)).thenReturn(task);
+        when(retryService.isRetryable(NotificationChannel.SMS, task.getRecipient())).thenReturn(true);
+        List<NotificationEntity> written = new ArrayList<>();
+        doAnswer(invocation -> written.addAll(invocation.getArgument(0))).when(batchWriter).updateFinal(anyList());
+
+        open().stop();
+
+        verify(retryService).scheduleRetry(eq(stored), eq(task), eq(NotificationChannel.SMS));
+        assertThat(written).containsExactly(stored);
+        assertThat(stored.getStatus()).isEqualTo(NotificationStatus.PARTIAL);
+        assertThat(stored.getFailedChannels()).containsExactly(NotificationChannel.SMS);
+    }
+
+    private StatusWriteBehind open() throws Exception {
+        StatusWriteBehind writeBehind = new StatusWriteBehind(batchWriter, notificationRepository, retryService,
+                objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writeBehind, "enabled", true);
+        ReflectionTestUtils.setField(writeBehind, "capacity", 16);
+        ReflectionTestUtils.setField(writeBehind, "flushRows", 2000);
+        ReflectionTestUtils.setField(writeBehind, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(writeBehind, "path", dir.resolve("status.wal").toString());
+        ReflectionTestUtils.setField(writeBehind, "sizeBytes", 1 << 16);
+        ReflectionTestUtils.setField(writeBehind, "force", false);
+        writeBehind.open();
+        return writeBehind;
+    }
+
+    private static NotificationEntity notification(NotificationStatus status) {
+        return NotificationEntity.builder()
+                .id(UUID.randomUUID())
+                .status(status)
+                .sentAt(LocalDateTime.now())
+                .failedChannels(new HashSet<>())
+                .build();
+    }
+}